@@ -0,0 +1,184 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeds the database used by the benchmarks and gives them the ids to work on.
+ *
+ * Benchmark rows are recognizable (emails ending in @bench.invalid, formations
+ * titled "bench-...") and are reused by later runs when the requested sizes are
+ * already there, so seeding a million clients is paid once. Point the benchmarks
+ * at a dedicated schema with -Ddb.url=jdbc:mysql://localhost:3306/formation_bench.
+ */
+public final class BenchmarkDatabase {
+
+    static final String EMAIL_DOMAIN = "@bench.invalid";
+    static final String FORMATION_PREFIX = "bench-";
+    static final String USERNAME = "bench";
+    static final String PASSWORD = "bench";
+
+    private static final String[] LAST_NAMES = {"Alami", "Benali", "Chraibi", "Daoudi", "El Fassi", "Fikri", "Ghazali",
+            "Haddad", "Idrissi", "Jabri", "Kettani", "Lahlou", "Mansouri", "Naciri", "Ouazzani", "Qadiri", "Rami",
+            "Sebti", "Tazi", "Zniber"};
+    private static final String[] FIRST_NAMES = {"Yassine", "Sara", "Omar", "Khadija", "Mehdi", "Salma", "Youssef",
+            "Imane", "Hamza", "Nora", "Amine", "Leila", "Karim", "Ines", "Rachid", "Hiba"};
+
+    private static BenchmarkDatabase instance;
+
+    private final int[] clientIds;
+    private final int[] formationIds;
+    private final String[] lastNames;
+
+    private BenchmarkDatabase(int[] clientIds, int[] formationIds, String[] lastNames) {
+        this.clientIds = clientIds;
+        this.formationIds = formationIds;
+        this.lastNames = lastNames;
+    }
+
+    /**
+     * Gets the seeded data set, seeding it on first use in this JVM
+     *
+     * @param clients              number of benchmark clients
+     * @param formations           number of benchmark formations
+     * @param enrollmentsPerClient number of formations each client is enrolled in
+     * @return the ids of the benchmark rows
+     */
+    public static synchronized BenchmarkDatabase get(int clients, int formations, int enrollmentsPerClient)
+            throws SQLException {
+        if (instance == null) {
+            if (!SchemaMigrator.migrateDatabase()) {
+                throw new SQLException("Could not migrate the benchmark database");
+            }
+            seed(clients, formations, enrollmentsPerClient);
+            instance = load();
+        }
+        return instance;
+    }
+
+    public int[] getClientIds() {
+        return clientIds;
+    }
+
+    public int[] getFormationIds() {
+        return formationIds;
+    }
+
+    /**
+     * Gets the last names used by the clients, for seeks and searches
+     */
+    public String[] getLastNames() {
+        return lastNames;
+    }
+
+    private static void seed(int clients, int formations, int enrollmentsPerClient) throws SQLException {
+        int existingFormations = count("SELECT COUNT(*) FROM formation WHERE libele LIKE '" + FORMATION_PREFIX + "%'");
+        int existingClients = count("SELECT COUNT(*) FROM client WHERE email LIKE '%" + EMAIL_DOMAIN + "'");
+        if (existingFormations >= formations && existingClients >= clients) {
+            return;
+        }
+        System.out.println("Seeding benchmark data: " + clients + " clients, " + formations + " formations, "
+                + enrollmentsPerClient + " enrollments per client");
+
+        FormationDAO formationDAO = new FormationDAO();
+        Random random = new Random(42);
+        for (int i = existingFormations; i < formations; i++) {
+            // Room for every enrollment so capacity never limits the benchmarks
+            formationDAO.insertFormation(new Formation(0, FORMATION_PREFIX + i, "Benchmark formation " + i,
+                    new java.sql.Date(System.currentTimeMillis() + i * 86_400_000L), 1 + random.nextInt(10),
+                    100 + random.nextInt(900), Integer.MAX_VALUE / 2));
+        }
+
+        ClientDAO clientDAO = new ClientDAO();
+        List<Client> chunk = new ArrayList<>(ClientImporter.CHUNK_SIZE);
+        for (int i = existingClients; i < clients; i++) {
+            chunk.add(new Client(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                    LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " " + (i % 1000),
+                    "client" + i + EMAIL_DOMAIN, String.format("06%08d", i), new Date()));
+            if (chunk.size() == ClientImporter.CHUNK_SIZE) {
+                insertClients(clientDAO, chunk);
+            }
+        }
+        insertClients(clientDAO, chunk);
+
+        seedEnrollments(enrollmentsPerClient);
+        seedUser();
+    }
+
+    private static void insertClients(ClientDAO clientDAO, List<Client> chunk) throws SQLException {
+        if (!chunk.isEmpty() && !clientDAO.createClients(chunk)) {
+            throw new SQLException("Could not seed benchmark clients");
+        }
+        chunk.clear();
+    }
+
+    /**
+     * Enrolls every benchmark client in consecutive benchmark formations, then
+     * recomputes the seat counters of those formations
+     */
+    private static void seedEnrollments(int enrollmentsPerClient) throws SQLException {
+        String insert = "INSERT IGNORE INTO client_formation (id_client, id_formation) " +
+                "SELECT c.id_client, f.id_formation FROM client c " +
+                "JOIN (SELECT id_formation, ROW_NUMBER() OVER (ORDER BY id_formation) - 1 AS position, " +
+                "COUNT(*) OVER () AS total FROM formation WHERE libele LIKE '" + FORMATION_PREFIX + "%') f " +
+                "ON (f.position - c.id_client % f.total + f.total) % f.total < ? " +
+                "WHERE c.email LIKE '%" + EMAIL_DOMAIN + "'";
+        String recount = "UPDATE formation f SET nb_inscrits = " +
+                "(SELECT COUNT(*) FROM client_formation cf WHERE cf.id_formation = f.id_formation) " +
+                "WHERE f.libele LIKE '" + FORMATION_PREFIX + "%'";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement insertStmt = conn.prepareStatement(insert);
+             Statement recountStmt = conn.createStatement()) {
+            insertStmt.setInt(1, enrollmentsPerClient);
+            insertStmt.executeUpdate();
+            recountStmt.executeUpdate(recount);
+        }
+    }
+
+    private static void seedUser() throws SQLException {
+        if (count("SELECT COUNT(*) FROM receptionniste WHERE username = '" + USERNAME + "'") > 0) {
+            return;
+        }
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO receptionniste (username, password, nom) VALUES (?, ?, ?)")) {
+            stmt.setString(1, USERNAME);
+            stmt.setString(2, PASSWORD);
+            stmt.setString(3, "Benchmark");
+            stmt.executeUpdate();
+        }
+    }
+
+    private static BenchmarkDatabase load() throws SQLException {
+        return new BenchmarkDatabase(
+                ids("SELECT id_client FROM client WHERE email LIKE '%" + EMAIL_DOMAIN + "' ORDER BY id_client"),
+                ids("SELECT id_formation FROM formation WHERE libele LIKE '" + FORMATION_PREFIX + "%' ORDER BY id_formation"),
+                LAST_NAMES.clone());
+    }
+
+    private static int[] ids(String query) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int count(String query) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Client lookups, table pages and searches
+ */
+public class ClientDAOBenchmark {
+
+    static Map<String, DaoBenchmarks.Call> benchmarks(DatabaseState db) {
+        ClientDAO clientDAO = new ClientDAO();
+        Map<String, DaoBenchmarks.Call> benchmarks = new LinkedHashMap<>();
+
+        benchmarks.put("getClientById", () -> {
+            int clientId = db.randomClientId();
+            // Measure the query, not the cache
+            ClientDAO.getCache().invalidate(clientId);
+            clientDAO.getClientById(clientId);
+        });
+        benchmarks.put("countClients", clientDAO::countClients);
+        benchmarks.put("getClientsPageKeyset",
+                () -> clientDAO.getClientsPage(db.randomLastName(), 0, LazyClientTableModel.PAGE_SIZE));
+        benchmarks.put("getClientsPageOffset", () -> {
+            int offset = ThreadLocalRandom.current().nextInt(db.getClientCount());
+            clientDAO.getClientsPageAt(offset, LazyClientTableModel.PAGE_SIZE);
+        });
+        benchmarks.put("searchClientsByName", () -> clientDAO.searchClientsByName(db.randomLastName()));
+        // What typing "<name> 06" does: one indexed word and one short LIKE word
+        benchmarks.put("searchClientsStreaming",
+                () -> clientDAO.searchClients(db.randomLastName() + " 06", ClientDAO.SEARCH_LIMIT, client -> { }));
+        return benchmarks;
+    }
+}
@@ -0,0 +1,167 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Times the DAO calls against a local MySQL server.
+ *
+ * Each benchmark calls one DAO method in a loop from bench.threads threads, first
+ * for bench.warmupSeconds without recording, then for bench.seconds with every
+ * call timed into a LatencyHistogram. The report gives the throughput, latency
+ * percentiles and DAO errors of each benchmark; a benchmark with errors timed
+ * failures rather than queries, so its figures are meaningless.
+ *
+ * Use a dedicated schema, the benchmarks seed it and write to it:
+ * -Ddb.url=jdbc:mysql://localhost:3306/formation_bench?rewriteBatchedStatements=true
+ * Other settings: -Dbench.include=Enrollment (regular expression on the names),
+ * -Dbench.threads=8, -Dbench.clients=1000000, -Dbench.formations=500,
+ * -Dbench.enrollmentsPerClient=3. Results are appended to bench-results.csv to
+ * compare runs.
+ */
+public class DaoBenchmarks {
+
+    /**
+     * One call of a DAO method
+     */
+    public interface Call {
+        void run();
+    }
+
+    private static final Path RESULTS = Paths.get("bench-results.csv");
+
+    private final int threads = Integer.getInteger("bench.threads", 1);
+    private final int warmupSeconds = Integer.getInteger("bench.warmupSeconds", 10);
+    private final int seconds = Integer.getInteger("bench.seconds", 30);
+    private final Pattern include = Pattern.compile(System.getProperty("bench.include", ".*"));
+
+    private volatile boolean recording;
+    private volatile boolean stopped;
+
+    public static void main(String[] args) throws Exception {
+        new DaoBenchmarks().run();
+    }
+
+    public void run() throws SQLException, InterruptedException, IOException {
+        DatabaseState db = new DatabaseState(Integer.getInteger("bench.clients", 100_000),
+                Integer.getInteger("bench.formations", 500), Integer.getInteger("bench.enrollmentsPerClient", 3));
+
+        Map<String, Call> benchmarks = new LinkedHashMap<>();
+        add(benchmarks, ClientDAOBenchmark.class, ClientDAOBenchmark.benchmarks(db));
+        add(benchmarks, FormationDAOBenchmark.class, FormationDAOBenchmark.benchmarks(db));
+        add(benchmarks, EnrollmentDAOBenchmark.class, EnrollmentDAOBenchmark.benchmarks(db));
+        add(benchmarks, UserDAOBenchmark.class, UserDAOBenchmark.benchmarks(db));
+        benchmarks.keySet().removeIf(name -> !include.matcher(name).find());
+
+        System.out.println("Running " + benchmarks.size() + " benchmark(s) on " + threads + " thread(s), "
+                + warmupSeconds + " s of warmup and " + seconds + " s measured each");
+        System.out.printf("%-50s %10s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "benchmark", "count", "ops/s", "errors", "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        boolean newFile = !Files.exists(RESULTS);
+        try (Writer writer = Files.newBufferedWriter(RESULTS, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             PrintWriter csv = new PrintWriter(writer)) {
+            if (newFile) {
+                csv.println("time,benchmark,threads,count,ops_per_s,errors,mean_ms,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+            }
+            String time = LocalDateTime.now().withNano(0).toString();
+            for (Map.Entry<String, Call> benchmark : benchmarks.entrySet()) {
+                LatencyHistogram histogram = new LatencyHistogram();
+                long errorsBefore = MetricsRegistry.getDaoErrorCount();
+                double elapsedSeconds = measure(benchmark.getValue(), histogram);
+                long errors = MetricsRegistry.getDaoErrorCount() - errorsBefore;
+
+                String[] row = row(histogram, errors, elapsedSeconds);
+                System.out.printf("%-50s %10s %9s %7s %9s %9s %9s %9s %9s %9s%n", benchmark.getKey(),
+                        row[0], row[1], row[2], row[3], row[4], row[5], row[6], row[7], row[8]);
+                csv.println(time + "," + benchmark.getKey() + "," + threads + "," + String.join(",", row));
+                csv.flush();
+            }
+        }
+    }
+
+    private static void add(Map<String, Call> benchmarks, Class<?> group, Map<String, Call> calls) {
+        calls.forEach((name, call) -> benchmarks.put(group.getSimpleName() + "." + name, call));
+    }
+
+    /**
+     * Runs a call in a loop on every thread: warmup, then the timed window
+     *
+     * @param call      the call
+     * @param histogram receives the latency of the calls made in the timed window
+     * @return the length of the timed window in seconds
+     */
+    private double measure(Call call, LatencyHistogram histogram) throws InterruptedException {
+        recording = false;
+        stopped = false;
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    while (!stopped) {
+                        long start = System.nanoTime();
+                        call.run();
+                        long elapsed = System.nanoTime() - start;
+                        if (recording) {
+                            histogram.recordNanos(elapsed);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    stopped = true;
+                }
+            }, "benchmark-" + (i + 1));
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+
+        Thread.sleep(warmupSeconds * 1000L);
+        recording = true;
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        recording = false;
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        stopped = true;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return elapsedSeconds;
+    }
+
+    private static String[] row(LatencyHistogram histogram, long errors, double elapsedSeconds) {
+        return new String[]{
+                Long.toString(histogram.getCount()),
+                String.format(Locale.ROOT, "%.1f", histogram.getCount() / elapsedSeconds),
+                Long.toString(errors),
+                millis(Math.round(histogram.getMeanMicros())),
+                millis(histogram.getPercentileMicros(50)),
+                millis(histogram.getPercentileMicros(90)),
+                millis(histogram.getPercentileMicros(99)),
+                millis(histogram.getPercentileMicros(99.9)),
+                millis(histogram.getMaxMicros())
+        };
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.2f", micros / 1000.0);
+    }
+}
@@ -0,0 +1,78 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The seeded database shared by all benchmark threads, with helpers to pick
+ * random benchmark rows
+ */
+public class DatabaseState {
+
+    private final int enrollmentsPerClient;
+    private final BenchmarkDatabase data;
+
+    /**
+     * Seeds the database if it does not have these sizes yet
+     *
+     * @param clients              the number of benchmark clients
+     * @param formations           the number of benchmark formations
+     * @param enrollmentsPerClient the enrollments of each client
+     * @throws SQLException if the database cannot be seeded
+     */
+    public DatabaseState(int clients, int formations, int enrollmentsPerClient) throws SQLException {
+        this.enrollmentsPerClient = enrollmentsPerClient;
+        data = BenchmarkDatabase.get(clients, formations, enrollmentsPerClient);
+        if (data.getFormationIds().length <= enrollmentsPerClient) {
+            throw new IllegalStateException("Need more formations than enrollments per client");
+        }
+    }
+
+    public int getClientCount() {
+        return data.getClientIds().length;
+    }
+
+    public int randomClientId() {
+        int[] ids = data.getClientIds();
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    public int randomFormationId() {
+        int[] ids = data.getFormationIds();
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    public String randomLastName() {
+        String[] names = data.getLastNames();
+        return names[ThreadLocalRandom.current().nextInt(names.length)];
+    }
+
+    /**
+     * Picks distinct random clients, like the rows of one screen
+     *
+     * @param count the number of clients
+     * @return their IDs
+     */
+    public List<Integer> randomClientIds(int count) {
+        int[] ids = data.getClientIds();
+        int start = ThreadLocalRandom.current().nextInt(ids.length);
+        List<Integer> picked = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            picked.add(ids[(start + i * 7919) % ids.length]);
+        }
+        return picked;
+    }
+
+    /**
+     * Gets a benchmark formation the client is not enrolled in. Seeding enrolls
+     * every client in the enrollmentsPerClient formations following position
+     * id_client % formations, so the next one is free.
+     *
+     * @param clientId a benchmark client
+     * @return the ID of a formation without that client
+     */
+    public int freeFormationId(int clientId) {
+        int[] ids = data.getFormationIds();
+        return ids[(clientId % ids.length + enrollmentsPerClient) % ids.length];
+    }
+}
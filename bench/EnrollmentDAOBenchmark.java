@@ -0,0 +1,38 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Enrollment reads, including the full roster and the per-client loop
+ * against its batched replacement, and the enroll/unenroll write path
+ */
+public class EnrollmentDAOBenchmark {
+
+    // Clients shown on one screen of the enrollment panel
+    private static final int SCREEN_ROWS = 50;
+
+    static Map<String, DaoBenchmarks.Call> benchmarks(DatabaseState db) {
+        EnrollmentDAO enrollmentDAO = new EnrollmentDAO();
+        Map<String, DaoBenchmarks.Call> benchmarks = new LinkedHashMap<>();
+
+        benchmarks.put("getAllEnrollments", enrollmentDAO::getAllEnrollments);
+        benchmarks.put("forEachEnrollmentView", () -> enrollmentDAO.forEachEnrollmentView(view -> { }));
+        benchmarks.put("getEnrollmentsByClientLoop", () -> {
+            for (int clientId : db.randomClientIds(SCREEN_ROWS)) {
+                enrollmentDAO.getEnrollmentsByClient(clientId);
+            }
+        });
+        benchmarks.put("getEnrollmentsByClients",
+                () -> enrollmentDAO.getEnrollmentsByClients(db.randomClientIds(SCREEN_ROWS)));
+        benchmarks.put("isClientEnrolled",
+                () -> enrollmentDAO.isClientEnrolled(db.randomClientId(), db.randomFormationId()));
+        benchmarks.put("enrollThenUnenroll", () -> {
+            // Leaves the data set as it was, so every call measures the same thing
+            int clientId = db.randomClientId();
+            int formationId = db.freeFormationId(clientId);
+            if (enrollmentDAO.enroll(clientId, formationId) == EnrollmentDAO.EnrollResult.CREATED) {
+                enrollmentDAO.deleteEnrollment(clientId, formationId);
+            }
+        });
+        return benchmarks;
+    }
+}
@@ -0,0 +1,24 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Formation list, seat availability and enrollment counts
+ */
+public class FormationDAOBenchmark {
+
+    static Map<String, DaoBenchmarks.Call> benchmarks(DatabaseState db) {
+        FormationDAO formationDAO = new FormationDAO();
+        Map<String, DaoBenchmarks.Call> benchmarks = new LinkedHashMap<>();
+
+        benchmarks.put("getAllFormations", formationDAO::getAllFormations);
+        benchmarks.put("getFormationById", () -> {
+            int formationId = db.randomFormationId();
+            FormationDAO.getCache().invalidate(formationId);
+            formationDAO.getFormationById(formationId);
+        });
+        benchmarks.put("isFormationAvailable", () -> formationDAO.isFormationAvailable(db.randomFormationId()));
+        benchmarks.put("getEnrollmentCount", () -> formationDAO.getEnrollmentCount(db.randomFormationId()));
+        benchmarks.put("getEnrollmentCounts", formationDAO::getEnrollmentCounts);
+        return benchmarks;
+    }
+}
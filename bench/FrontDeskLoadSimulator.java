@@ -0,0 +1,307 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless load generator driving the DAO layer like several receptionists
+ * working at the same time.
+ *
+ * Each simulated receptionist is a thread that repeatedly picks an operation
+ * according to the mix, runs it through the same DAO calls as the panels, then
+ * waits for a random think time. At the end it prints throughput, latency
+ * percentiles and error counts per operation, and the deadlocks and lock wait
+ * timeouts InnoDB counted meanwhile (the DAOs retry those, so they do not show
+ * up as errors).
+ *
+ * Settings are system properties, for example
+ * -Dsim.receptionists=12 -Dsim.durationSeconds=300 -Dsim.thinkMillis=200
+ * -Dsim.mix=search:40,add:5,enroll:25,unenroll:10,browse:20
+ * -Dsim.hotFormations=5 (enroll into the 5 first formations only, like the
+ * opening of registration season). The database is seeded like the benchmarks:
+ * use a dedicated schema with -Ddb.url=jdbc:mysql://localhost:3306/formation_bench.
+ */
+public class FrontDeskLoadSimulator {
+
+    enum Operation {
+        SEARCH, ADD, ENROLL, UNENROLL, BROWSE
+    }
+
+    // Clients added by the simulator, told apart from seeded ones
+    private static final String EMAIL_DOMAIN = "@loadsim.invalid";
+    private static final AtomicLong CLIENT_SEQUENCE = new AtomicLong(System.currentTimeMillis());
+
+    private final int receptionists = Integer.getInteger("sim.receptionists", 8);
+    private final int durationSeconds = Integer.getInteger("sim.durationSeconds", 60);
+    private final int warmupSeconds = Integer.getInteger("sim.warmupSeconds", 10);
+    private final int thinkMillis = Integer.getInteger("sim.thinkMillis", 250);
+    private final int hotFormations = Integer.getInteger("sim.hotFormations", 0);
+    private final Map<Operation, Integer> mix = parseMix(System.getProperty("sim.mix",
+            "search:40,add:5,enroll:25,unenroll:10,browse:20"));
+
+    private final ClientDAO clientDAO = new ClientDAO();
+    private final FormationDAO formationDAO = new FormationDAO();
+    private final EnrollmentDAO enrollmentDAO = new EnrollmentDAO();
+
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    // DAO calls that report a failure only through their timer's error count, by operation
+    private final Map<Operation, List<MetricsRegistry.Timer>> errorTimers = new EnumMap<>(Operation.class);
+    private final LongAdder fullFormations = new LongAdder();
+    private final LongAdder alreadyEnrolled = new LongAdder();
+
+    private BenchmarkDatabase data;
+    private volatile boolean recording;
+    private volatile boolean stopped;
+
+    public static void main(String[] args) throws Exception {
+        new FrontDeskLoadSimulator().run();
+    }
+
+    public FrontDeskLoadSimulator() {
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            errors.put(operation, new LongAdder());
+        }
+        errorTimers.put(Operation.SEARCH, List.of(MetricsRegistry.daoTimer("ClientDAO.searchClients")));
+        errorTimers.put(Operation.BROWSE, List.of(MetricsRegistry.daoTimer("FormationDAO.getAllFormations"),
+                MetricsRegistry.daoTimer("FormationDAO.getEnrollmentCounts")));
+    }
+
+    public void run() throws SQLException, InterruptedException {
+        data = BenchmarkDatabase.get(Integer.getInteger("sim.clients", 100_000),
+                Integer.getInteger("sim.formations", 500), Integer.getInteger("sim.enrollmentsPerClient", 3));
+
+        System.out.println("Simulating " + receptionists + " receptionists for " + durationSeconds + " s after "
+                + warmupSeconds + " s of warmup, mix " + mix + ", think time " + thinkMillis + " ms");
+
+        CountDownLatch finished = new CountDownLatch(receptionists);
+        List<Deque<int[]>> ownEnrollments = new ArrayList<>();
+        for (int i = 0; i < receptionists; i++) {
+            Deque<int[]> enrollments = new ArrayDeque<>();
+            ownEnrollments.add(enrollments);
+            Thread thread = new Thread(() -> {
+                try {
+                    work(enrollments);
+                } finally {
+                    finished.countDown();
+                }
+            }, "receptionist-" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        Thread.sleep(warmupSeconds * 1000L);
+        long[] lockCountersBefore = readLockCounters();
+        Map<Operation, Long> errorCountsBefore = readErrorCounts();
+        recording = true;
+        long start = System.nanoTime();
+        Thread.sleep(durationSeconds * 1000L);
+        recording = false;
+        readErrorCounts().forEach((operation, count) ->
+                errors.get(operation).add(count - errorCountsBefore.get(operation)));
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        long[] lockCountersAfter = readLockCounters();
+        stopped = true;
+        finished.await();
+
+        printReport(elapsedSeconds, lockCountersBefore, lockCountersAfter);
+
+        // Leave the seeded enrollments as they were
+        for (Deque<int[]> enrollments : ownEnrollments) {
+            for (int[] enrollment : enrollments) {
+                enrollmentDAO.deleteEnrollment(enrollment[0], enrollment[1]);
+            }
+        }
+    }
+
+    private void work(Deque<int[]> enrollments) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        while (!stopped) {
+            Operation operation = pick(random.nextInt(totalWeight));
+            long start = System.nanoTime();
+            boolean ok = perform(operation, enrollments, random);
+            long elapsed = System.nanoTime() - start;
+            if (recording) {
+                latencies.get(operation).recordNanos(elapsed);
+                if (!ok) {
+                    errors.get(operation).increment();
+                }
+            }
+            if (thinkMillis > 0) {
+                try {
+                    // Exponential think time: arrivals of a receptionist are a Poisson process
+                    Thread.sleep((long) (-thinkMillis * Math.log(1 - random.nextDouble())));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean perform(Operation operation, Deque<int[]> enrollments, ThreadLocalRandom random) {
+        switch (operation) {
+            case SEARCH: {
+                String name = data.getLastNames()[random.nextInt(data.getLastNames().length)];
+                // Typed a few letters at a time, like search-as-you-type does
+                String term = name.substring(0, Math.min(name.length(), 3 + random.nextInt(3)));
+                clientDAO.searchClients(term, ClientDAO.SEARCH_LIMIT);
+                return true; // a failed search returns no rows; it is counted from errorTimers
+            }
+            case ADD: {
+                long n = CLIENT_SEQUENCE.incrementAndGet();
+                Client client = new Client("Sim", "Client " + n, "client" + n + EMAIL_DOMAIN,
+                        String.format("07%08d", n % 100_000_000), new Date());
+                return clientDAO.createClient(client) != null;
+            }
+            case ENROLL: {
+                int[] clientIds = data.getClientIds();
+                int[] formationIds = data.getFormationIds();
+                int clientId = clientIds[random.nextInt(clientIds.length)];
+                int range = hotFormations > 0 ? Math.min(hotFormations, formationIds.length) : formationIds.length;
+                int formationId = formationIds[random.nextInt(range)];
+                EnrollmentDAO.EnrollResult result = enrollmentDAO.enroll(clientId, formationId);
+                switch (result) {
+                    case CREATED:
+                        enrollments.add(new int[]{clientId, formationId});
+                        return true;
+                    case FULL:
+                        fullFormations.increment();
+                        return true;
+                    case ALREADY_ENROLLED:
+                        alreadyEnrolled.increment();
+                        return true;
+                    default:
+                        return false;
+                }
+            }
+            case UNENROLL: {
+                // Only undo enrollments this receptionist made, so the seeded data stays stable
+                int[] enrollment = enrollments.poll();
+                return enrollment == null || enrollmentDAO.deleteEnrollment(enrollment[0], enrollment[1]);
+            }
+            case BROWSE: {
+                formationDAO.getAllFormations();
+                formationDAO.getEnrollmentCounts();
+                return true; // counted from errorTimers like SEARCH
+            }
+            default:
+                throw new IllegalStateException("Unknown operation: " + operation);
+        }
+    }
+
+    /**
+     * Sums the error counts of the DAO timers of each operation. The difference over
+     * the recording window is exact, unlike a difference taken around each call,
+     * which would also catch the failures of other receptionists meanwhile.
+     */
+    private Map<Operation, Long> readErrorCounts() {
+        Map<Operation, Long> counts = new EnumMap<>(Operation.class);
+        errorTimers.forEach((operation, timers) ->
+                counts.put(operation, timers.stream().mapToLong(MetricsRegistry.Timer::getErrorCount).sum()));
+        return counts;
+    }
+
+    private Operation pick(int ticket) {
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            ticket -= entry.getValue();
+            if (ticket < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Ticket outside of the mix");
+    }
+
+    private void printReport(double elapsedSeconds, long[] lockCountersBefore, long[] lockCountersAfter) {
+        System.out.println();
+        System.out.printf("%-10s %10s %9s %8s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "ops/s", "errors", "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        LatencyHistogram all = new LatencyHistogram();
+        long allErrors = 0;
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = latencies.get(operation);
+            long operationErrors = errors.get(operation).sum();
+            if (histogram.getCount() > 0) {
+                printRow(operation.name().toLowerCase(), histogram, operationErrors, elapsedSeconds);
+            }
+            all.add(histogram);
+            allErrors += operationErrors;
+        }
+        printRow("total", all, allErrors, elapsedSeconds);
+
+        System.out.println();
+        System.out.println("Enrollments refused, formation full: " + fullFormations.sum()
+                + ", already enrolled: " + alreadyEnrolled.sum());
+        if (lockCountersBefore != null && lockCountersAfter != null) {
+            System.out.println("InnoDB deadlocks: " + (lockCountersAfter[0] - lockCountersBefore[0])
+                    + ", lock wait timeouts: " + (lockCountersAfter[1] - lockCountersBefore[1]));
+        }
+    }
+
+    private static void printRow(String name, LatencyHistogram histogram, long errorCount, double elapsedSeconds) {
+        System.out.printf("%-10s %10d %9.1f %8d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, histogram.getCount(), histogram.getCount() / elapsedSeconds, errorCount,
+                histogram.getMeanMicros() / 1000.0,
+                histogram.getPercentileMicros(50) / 1000.0,
+                histogram.getPercentileMicros(90) / 1000.0,
+                histogram.getPercentileMicros(99) / 1000.0,
+                histogram.getPercentileMicros(99.9) / 1000.0,
+                histogram.getMaxMicros() / 1000.0);
+    }
+
+    /**
+     * Reads the server-wide InnoDB deadlock and lock wait timeout counters
+     *
+     * @return {deadlocks, timeouts}, or null if the counters cannot be read
+     */
+    private static long[] readLockCounters() {
+        String query = "SELECT name, count FROM information_schema.INNODB_METRICS " +
+                "WHERE name IN ('lock_deadlocks', 'lock_timeouts')";
+        long[] counters = new long[2];
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                counters["lock_deadlocks".equals(rs.getString("name")) ? 0 : 1] = rs.getLong("count");
+            }
+            return counters;
+        } catch (SQLException e) {
+            System.err.println("Error reading InnoDB lock counters: " + e.getMessage());
+            return null;
+        }
+    }
+
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] nameAndWeight = part.trim().split(":");
+            if (nameAndWeight.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry, expected name:weight: " + part);
+            }
+            int weight = Integer.parseInt(nameAndWeight[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in mix: " + part);
+            }
+            if (weight > 0) {
+                weights.put(Operation.valueOf(nameAndWeight[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no operation: " + mix);
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,18 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Login, for a receptionist found in the first table and for a failed attempt
+ * that queries both tables. The database state only makes sure the user is seeded.
+ */
+public class UserDAOBenchmark {
+
+    static Map<String, DaoBenchmarks.Call> benchmarks(DatabaseState db) {
+        UserDAO userDAO = new UserDAO();
+        Map<String, DaoBenchmarks.Call> benchmarks = new LinkedHashMap<>();
+
+        benchmarks.put("authenticate", () -> userDAO.authenticate(BenchmarkDatabase.USERNAME, BenchmarkDatabase.PASSWORD));
+        benchmarks.put("authenticateWrongPassword", () -> userDAO.authenticate(BenchmarkDatabase.USERNAME, "wrong"));
+        return benchmarks;
+    }
+}
@@ -0,0 +1,257 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Admin dashboard: enrollments, fill rate and revenue of each formation, and
+ * new clients per month, read from the precomputed figures of StatisticsDAO
+ */
+public class AdminDashboardPanel extends JPanel {
+
+    // Months shown in the new clients table, the current one included
+    private static final int MONTHS = 12;
+
+    private final StatisticsDAO statisticsDAO;
+    private final FormationStatsTableModel formationModel = new FormationStatsTableModel();
+    private final MonthlyClientsTableModel monthModel = new MonthlyClientsTableModel();
+    private final BackgroundLoader<FormationStats> formationLoader = new BackgroundLoader<>("AdminDashboardPanel.formations");
+    private final BackgroundLoader<StatisticsDAO.MonthlyClients> monthLoader = new BackgroundLoader<>("AdminDashboardPanel.newClients");
+
+    private JLabel formationsLabel;
+    private JLabel enrollmentsLabel;
+    private JLabel fillRateLabel;
+    private JLabel revenueLabel;
+
+    public AdminDashboardPanel() {
+        this.statisticsDAO = new StatisticsDAO();
+        initializeComponents();
+        loadData();
+    }
+
+    private void initializeComponents() {
+        setLayout(new BorderLayout(10, 10));
+        setBorder(BorderFactory.createTitledBorder("Dashboard"));
+
+        // Totals
+        JPanel totalsPanel = new JPanel(new GridLayout(1, 4, 10, 10));
+        formationsLabel = createTotalLabel();
+        enrollmentsLabel = createTotalLabel();
+        fillRateLabel = createTotalLabel();
+        revenueLabel = createTotalLabel();
+        totalsPanel.add(createTotalPanel("Formations", formationsLabel));
+        totalsPanel.add(createTotalPanel("Enrollments", enrollmentsLabel));
+        totalsPanel.add(createTotalPanel("Seats taken", fillRateLabel));
+        totalsPanel.add(createTotalPanel("Revenue", revenueLabel));
+
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> loadData());
+
+        JPanel topPanel = new JPanel(new BorderLayout(10, 10));
+        topPanel.add(totalsPanel, BorderLayout.CENTER);
+        topPanel.add(refreshButton, BorderLayout.EAST);
+        add(topPanel, BorderLayout.NORTH);
+
+        // Per formation
+        JTable formationTable = new JTable(formationModel);
+        formationTable.setAutoCreateRowSorter(true);
+        formationTable.getColumnModel().getColumn(0).setPreferredWidth(250);
+        formationTable.setDefaultRenderer(Double.class, new NumberRenderer("%,.2f"));
+        formationTable.getColumnModel().getColumn(3).setCellRenderer(new NumberRenderer("%.0f %%"));
+
+        // Per month
+        JTable monthTable = new JTable(monthModel);
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT,
+                new JScrollPane(formationTable), new JScrollPane(monthTable));
+        splitPane.setResizeWeight(0.75);
+        add(splitPane, BorderLayout.CENTER);
+
+        JPanel progressPanel = new JPanel(new GridLayout(1, 2));
+        progressPanel.add(formationLoader.getProgressBar());
+        progressPanel.add(monthLoader.getProgressBar());
+        add(progressPanel, BorderLayout.SOUTH);
+    }
+
+    private JLabel createTotalLabel() {
+        JLabel label = new JLabel("-", JLabel.CENTER);
+        label.setFont(new Font("Arial", Font.BOLD, 18));
+        return label;
+    }
+
+    private JPanel createTotalPanel(String title, JLabel valueLabel) {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(BorderFactory.createEtchedBorder());
+        panel.add(new JLabel(title, JLabel.CENTER), BorderLayout.NORTH);
+        panel.add(valueLabel, BorderLayout.CENTER);
+        return panel;
+    }
+
+    private void loadData() {
+        formationLoader.load(sink -> statisticsDAO.getFormationStats().forEach(sink),
+                new BackgroundLoader.Listener<FormationStats>() {
+                    private final List<FormationStats> loaded = new ArrayList<>();
+
+                    @Override
+                    public void rowsLoaded(List<FormationStats> rows) {
+                        loaded.addAll(rows);
+                    }
+
+                    @Override
+                    public void loadFinished() {
+                        formationModel.setRows(loaded);
+                        updateTotals(loaded);
+                    }
+                });
+
+        YearMonth to = YearMonth.now();
+        YearMonth from = to.minusMonths(MONTHS - 1);
+        monthLoader.load(sink -> statisticsDAO.getNewClientsPerMonth(from, to).forEach(sink),
+                new BackgroundLoader.Listener<StatisticsDAO.MonthlyClients>() {
+                    private final List<StatisticsDAO.MonthlyClients> loaded = new ArrayList<>();
+
+                    @Override
+                    public void rowsLoaded(List<StatisticsDAO.MonthlyClients> rows) {
+                        loaded.addAll(rows);
+                    }
+
+                    @Override
+                    public void loadFinished() {
+                        // Most recent month first
+                        List<StatisticsDAO.MonthlyClients> rows = new ArrayList<>(loaded);
+                        Collections.reverse(rows);
+                        monthModel.setRows(rows);
+                    }
+                });
+    }
+
+    private void updateTotals(List<FormationStats> stats) {
+        long enrolled = 0;
+        long capacity = 0;
+        double revenue = 0;
+        for (FormationStats formation : stats) {
+            enrolled += formation.getEnrolled();
+            capacity += formation.getCapacity();
+            revenue += formation.getRevenue();
+        }
+        formationsLabel.setText(String.valueOf(stats.size()));
+        enrollmentsLabel.setText(String.valueOf(enrolled));
+        fillRateLabel.setText(capacity > 0 ? String.format("%.0f %%", 100.0 * enrolled / capacity) : "-");
+        revenueLabel.setText(String.format("%,.2f", revenue));
+    }
+
+    private static class NumberRenderer extends DefaultTableCellRenderer {
+        private final String format;
+
+        NumberRenderer(String format) {
+            this.format = format;
+            setHorizontalAlignment(RIGHT);
+        }
+
+        @Override
+        protected void setValue(Object value) {
+            setText(value instanceof Number ? String.format(format, ((Number) value).doubleValue()) : "");
+        }
+    }
+
+    private static class FormationStatsTableModel extends AbstractTableModel {
+        private final String[] columnNames = {"Formation", "Enrolled", "Capacity", "Fill rate", "Price", "Revenue"};
+        private List<FormationStats> rows = new ArrayList<>();
+
+        void setRows(List<FormationStats> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            switch (column) {
+                case 0:
+                    return String.class;
+                case 1:
+                case 2:
+                    return Integer.class;
+                default:
+                    return Double.class;
+            }
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            FormationStats stats = rows.get(row);
+            switch (column) {
+                case 0:
+                    return stats.getTitle();
+                case 1:
+                    return stats.getEnrolled();
+                case 2:
+                    return stats.getCapacity();
+                case 3:
+                    return stats.getFillRate() * 100;
+                case 4:
+                    return stats.getPrice();
+                case 5:
+                    return stats.getRevenue();
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private static class MonthlyClientsTableModel extends AbstractTableModel {
+        private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+        private final String[] columnNames = {"Month", "New clients"};
+        private List<StatisticsDAO.MonthlyClients> rows = new ArrayList<>();
+
+        void setRows(List<StatisticsDAO.MonthlyClients> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 1 ? Integer.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            StatisticsDAO.MonthlyClients month = rows.get(row);
+            return column == 0 ? month.getMonth().format(MONTH_FORMAT) : month.getNewClients();
+        }
+    }
+}
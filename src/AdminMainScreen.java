@@ -80,11 +80,20 @@ public class AdminMainScreen extends JFrame {
 
     private JPanel createSidePanel() {
         JPanel panel = new JPanel();
-        panel.setLayout(new GridLayout(5, 1, 10, 10));
+        panel.setLayout(new GridLayout(7, 1, 10, 10));
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         panel.setPreferredSize(new Dimension(200, getHeight()));
         panel.setBackground(new Color(230, 230, 230));
 
+        JButton dashboardButton = new JButton("Dashboard");
+        dashboardButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showPanel(new AdminDashboardPanel());
+            }
+        });
+        panel.add(dashboardButton);
+
         JButton clientsButton = new JButton("Manage Clients");
         clientsButton.addActionListener(new ActionListener() {
             @Override
@@ -130,6 +139,15 @@ public class AdminMainScreen extends JFrame {
         });
         panel.add(addFormationbutton);
 
+        JButton slowQueriesButton = new JButton("Slow Queries");
+        slowQueriesButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showPanel(new SlowQueryPanel());
+            }
+        });
+        panel.add(slowQueriesButton);
+
         return panel;
     }
 
@@ -0,0 +1,235 @@
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Runs a DAO load off the Event Dispatch Thread and hands the rows back to the
+ * EDT in batches as they arrive.
+ *
+ * A loader runs at most one load at a time: starting a new load cancels the
+ * previous one, and rows or completion callbacks of a superseded load are
+ * dropped. All methods must be called on the EDT. Each completed load is timed,
+ * up to its last row, under the loader's name in the MetricsRegistry, or under
+ * the name given to the load; its slow queries are attributed to that name when
+ * no panel method is on the stack.
+ *
+ * @param <T> the type of the loaded rows
+ */
+public class BackgroundLoader<T> {
+
+    /**
+     * Produces the rows. Runs on a background thread.
+     */
+    public interface Source<T> {
+        /**
+         * Loads the rows and passes each of them to the sink.
+         * The sink throws CancellationException once the load has been superseded.
+         */
+        void load(Consumer<T> sink) throws Exception;
+    }
+
+    /**
+     * Receives the results. Every method is called on the EDT.
+     */
+    public interface Listener<T> {
+        /**
+         * Called when the load starts, before any row is delivered
+         */
+        default void loadStarted() {
+        }
+
+        /**
+         * Called with the next batch of rows
+         */
+        void rowsLoaded(List<T> rows);
+
+        /**
+         * Called once every row has been delivered
+         */
+        default void loadFinished() {
+        }
+
+        /**
+         * Called if the source threw an exception
+         */
+        default void loadFailed(Exception e) {
+            System.err.println("Error loading data: " + e.getMessage());
+        }
+    }
+
+    // Rows are handed to the EDT when this many are pending or after this delay
+    private static final int MAX_BATCH = 500;
+    private static final long MAX_BATCH_DELAY_NANOS = 50_000_000L;
+
+    private final JProgressBar progressBar;
+    private final String name;
+    private Worker current;
+
+    /**
+     * Creates a loader
+     *
+     * @param name the panel and table it loads, as "FormationManagementPanel.formations"
+     */
+    public BackgroundLoader(String name) {
+        this.name = name;
+        progressBar = createProgressBar();
+    }
+
+    /**
+     * Creates a hidden progress bar like the loaders', for panels showing the loads of the DomainStore
+     *
+     * @return the progress bar, to show while loading
+     */
+    public static JProgressBar createProgressBar() {
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setStringPainted(true);
+        progressBar.setString("Loading...");
+        progressBar.setVisible(false);
+        return progressBar;
+    }
+
+    /**
+     * Gets the progress bar shown while a load is running; panels add it to their layout
+     *
+     * @return the progress bar
+     */
+    public JProgressBar getProgressBar() {
+        return progressBar;
+    }
+
+    /**
+     * Starts a load, cancelling the one in progress if any
+     *
+     * @param source   produces the rows on a background thread
+     * @param listener receives the rows on the EDT
+     */
+    public void load(Source<T> source, Listener<T> listener) {
+        load(name, source, listener);
+    }
+
+    /**
+     * Starts a load for a given panel, cancelling the one in progress if any.
+     * Used by loaders shared between panels, such as the DomainStore's.
+     *
+     * @param name     the panel and table the load is for, as "EnrollmentManagementPanel.clients"
+     * @param source   produces the rows on a background thread
+     * @param listener receives the rows on the EDT
+     */
+    public void load(String name, Source<T> source, Listener<T> listener) {
+        cancel();
+        current = new Worker(name, source, listener);
+        progressBar.setString("Loading...");
+        progressBar.setVisible(true);
+        listener.loadStarted();
+        current.execute();
+    }
+
+    /**
+     * Cancels the load in progress, if any. Its listener receives no further calls.
+     */
+    public void cancel() {
+        if (current != null) {
+            current.cancel(false);
+            current = null;
+            progressBar.setVisible(false);
+        }
+    }
+
+    public boolean isLoading() {
+        return current != null;
+    }
+
+    private class Worker extends SwingWorker<Void, Void> {
+        private final String name;
+        private final Source<T> source;
+        private final Listener<T> listener;
+        private final MetricsRegistry.Timer refreshTimer;
+        private final MetricsRegistry.Sample sample;
+        private int delivered;
+
+        // Background thread only
+        private List<T> batch = new ArrayList<>();
+        private long lastFlush = System.nanoTime();
+
+        Worker(String name, Source<T> source, Listener<T> listener) {
+            this.name = name;
+            this.source = source;
+            this.listener = listener;
+            refreshTimer = MetricsRegistry.panelTimer(name);
+            sample = refreshTimer.start();
+        }
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            SlowQueryLog.setOrigin(name);
+            try {
+                source.load(row -> {
+                    if (isCancelled()) {
+                        // Unwinds the DAO loop. A streaming DAO cancels its query first, since
+                        // closing its result set would otherwise read every remaining row.
+                        throw new CancellationException();
+                    }
+                    batch.add(row);
+                    if (batch.size() >= MAX_BATCH || System.nanoTime() - lastFlush > MAX_BATCH_DELAY_NANOS) {
+                        flush();
+                    }
+                });
+            } finally {
+                SlowQueryLog.setOrigin(null);
+            }
+            flush();
+            return null;
+        }
+
+        /**
+         * Hands the pending rows to the EDT. invokeLater keeps batches in order and
+         * ahead of done(), which SwingWorker.publish does not guarantee.
+         */
+        private void flush() {
+            lastFlush = System.nanoTime();
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<T> rows = batch;
+            batch = new ArrayList<>();
+            SwingUtilities.invokeLater(() -> deliver(rows));
+        }
+
+        private void deliver(List<T> rows) {
+            if (current != this) {
+                return;
+            }
+            delivered += rows.size();
+            progressBar.setString("Loading... " + delivered + " rows");
+            listener.rowsLoaded(rows);
+        }
+
+        @Override
+        protected void done() {
+            if (current != this) {
+                return;
+            }
+            current = null;
+            progressBar.setVisible(false);
+            try {
+                get();
+                listener.loadFinished();
+                sample.setRows(delivered);
+                sample.close();
+            } catch (CancellationException e) {
+                // superseded, nothing to report
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                refreshTimer.recordError();
+                sample.close();
+                Throwable cause = e.getCause();
+                listener.loadFailed(cause instanceof Exception ? (Exception) cause : e);
+            }
+        }
+    }
+}
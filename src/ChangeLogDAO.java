@@ -0,0 +1,173 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Data Access Object for the change log filled by triggers on client, formation
+ * and client_formation
+ *
+ * A watermark is the id of the last change a reader has applied. Ids are given
+ * when a change is written but become visible when its transaction commits, so a
+ * change may appear below a watermark that was already passed. The watermark
+ * returned with the changes therefore stops before the first change younger than
+ * SETTLE_SECONDS: recent changes are read again by the next call, and applying a
+ * change twice is harmless since readers load the current state of the rows.
+ */
+public class ChangeLogDAO {
+
+    static final String CLIENT = "client";
+    static final String FORMATION = "formation";
+    static final String ENROLLMENT = "client_formation";
+
+    // Longer than any transaction of the application
+    private static final int SETTLE_SECONDS = 30;
+
+    private static final MetricsRegistry.Timer GET_WATERMARK = MetricsRegistry.daoTimer("ChangeLogDAO.getWatermark");
+    private static final MetricsRegistry.Timer PURGE = MetricsRegistry.daoTimer("ChangeLogDAO.purge");
+
+    /**
+     * Changes read from the log: the ids of the changed rows of each table
+     */
+    static class Changes {
+        private final Map<String, Set<Integer>> rowIds = new HashMap<>();
+        private final Set<Long> enrollmentKeys = new LinkedHashSet<>();
+        private long watermark;
+
+        Changes(long watermark) {
+            this.watermark = watermark;
+        }
+
+        /**
+         * Gets the ids of the changed rows of a table, in change order
+         */
+        Set<Integer> getRowIds(String table) {
+            return rowIds.getOrDefault(table, new LinkedHashSet<>());
+        }
+
+        /**
+         * Gets the changed enrollments, as EnrollmentView keys
+         */
+        Set<Long> getEnrollmentKeys() {
+            return enrollmentKeys;
+        }
+
+        long getWatermark() {
+            return watermark;
+        }
+    }
+
+    /**
+     * Gets the id of the latest settled change, to take before loading a table in full.
+     * A younger change may still have a lower id waiting for its commit, so the
+     * changes after this watermark are read again by the first delta.
+     *
+     * @return the watermark, or -1 if the change log cannot be read
+     */
+    public long getWatermark() {
+        String query = "SELECT COALESCE(MAX(id), 0) FROM change_log " +
+                "WHERE changed_at < NOW(3) - INTERVAL " + SETTLE_SECONDS + " SECOND";
+        try (MetricsRegistry.Sample sample = GET_WATERMARK.start();
+             Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            if (!rs.next()) {
+                return 0;
+            }
+            sample.addRow();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            GET_WATERMARK.recordError();
+            System.err.println("Error getting change log watermark: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Deletes the changes older than a number of days.
+     * A panel left open longer than that should be reloaded in full.
+     *
+     * @param retentionDays the number of days of changes to keep
+     * @return the number of changes deleted
+     */
+    public int purge(int retentionDays) {
+        String query = "DELETE FROM change_log WHERE changed_at < NOW(3) - INTERVAL ? DAY";
+
+        try (MetricsRegistry.Sample sample = PURGE.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setInt(1, retentionDays);
+            int deleted = stmt.executeUpdate();
+            sample.setRows(deleted);
+            return deleted;
+        } catch (SQLException e) {
+            PURGE.recordError();
+            System.err.println("Error purging change log: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Reads the changes of some tables after a watermark, on the caller's connection
+     *
+     * @param conn      the connection of the DAO reading the changed rows
+     * @param watermark the id of the last change already applied
+     * @param tables    the tables to read the changes of
+     * @return the changed row ids and the next watermark
+     * @throws SQLException if the log cannot be read
+     */
+    static Changes readChanges(Connection conn, long watermark, String... tables) throws SQLException {
+        StringBuilder query = new StringBuilder("SELECT id, table_name, row_id, row_id2, " +
+                "changed_at < NOW(3) - INTERVAL " + SETTLE_SECONDS + " SECOND AS settled " +
+                "FROM change_log WHERE table_name IN (");
+        for (int i = 0; i < tables.length; i++) {
+            query.append(i == 0 ? "?" : ",?");
+        }
+        query.append(") AND id > ? ORDER BY id");
+
+        List<long[]> entries = new ArrayList<>();
+        Changes changes = new Changes(watermark);
+        try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+            for (int i = 0; i < tables.length; i++) {
+                stmt.setString(i + 1, tables[i]);
+            }
+            stmt.setLong(tables.length + 1, watermark);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String table = rs.getString("table_name");
+                    int rowId = rs.getInt("row_id");
+                    if (table.equals(ENROLLMENT)) {
+                        changes.enrollmentKeys.add(EnrollmentView.key(rowId, rs.getInt("row_id2")));
+                    } else {
+                        changes.rowIds.computeIfAbsent(table, k -> new LinkedHashSet<>()).add(rowId);
+                    }
+                    entries.add(new long[]{rs.getLong("id"), rs.getBoolean("settled") ? 1 : 0});
+                }
+            }
+        }
+        changes.watermark = nextWatermark(watermark, entries);
+        return changes;
+    }
+
+    /**
+     * Gets the watermark after a run of changes: the last one before the first unsettled change
+     *
+     * @param watermark the watermark the changes were read from
+     * @param entries   the changes in id order, as {id, 1 if settled else 0}
+     * @return the next watermark
+     */
+    static long nextWatermark(long watermark, List<long[]> entries) {
+        for (long[] entry : entries) {
+            if (entry[1] == 0) {
+                break;
+            }
+            watermark = entry[0];
+        }
+        return watermark;
+    }
+}
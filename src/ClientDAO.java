@@ -1,12 +1,43 @@
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for Client operations
+ *
+ * Every insert also counts the client in client_par_mois, the new clients per
+ * month shown by the admin dashboard, in the same transaction.
  */
 public class ClientDAO {
 
+    // Relevance of a client for a boolean-mode search, backed by the FULLTEXT index on these columns
+    private static final String FULLTEXT_MATCH = "MATCH (nom, prenom, email, telephone) AGAINST (? IN BOOLEAN MODE)";
+
+    // Maximum number of clients returned by a search
+    static final int SEARCH_LIMIT = 500;
+
+    // Shared by every ClientDAO instance so all panels benefit from the same cache
+    private static final EntityCache<Integer, Client> CACHE = new EntityCache<>(
+            Integer.getInteger("cache.client.maxSize", 10_000),
+            Long.getLong("cache.client.ttlMs", 300_000L));
+
+    private static final MetricsRegistry.Timer CREATE_CLIENT = MetricsRegistry.daoTimer("ClientDAO.createClient");
+    private static final MetricsRegistry.Timer CREATE_CLIENTS = MetricsRegistry.daoTimer("ClientDAO.createClients");
+    private static final MetricsRegistry.Timer UPDATE_CLIENT = MetricsRegistry.daoTimer("ClientDAO.updateClient");
+    private static final MetricsRegistry.Timer LOAD_CLIENT_BY_ID = MetricsRegistry.daoTimer("ClientDAO.loadClientById");
+    private static final MetricsRegistry.Timer GET_ALL_CLIENTS = MetricsRegistry.daoTimer("ClientDAO.getAllClients");
+    private static final MetricsRegistry.Timer COUNT_CLIENTS = MetricsRegistry.daoTimer("ClientDAO.countClients");
+    private static final MetricsRegistry.Timer GET_CLIENTS_PAGE = MetricsRegistry.daoTimer("ClientDAO.getClientsPage");
+    private static final MetricsRegistry.Timer GET_CLIENTS_PAGE_AT = MetricsRegistry.daoTimer("ClientDAO.getClientsPageAt");
+    private static final MetricsRegistry.Timer SEARCH_CLIENTS = MetricsRegistry.daoTimer("ClientDAO.searchClients");
+    private static final MetricsRegistry.Timer GET_CLIENT_CHANGES = MetricsRegistry.daoTimer("ClientDAO.getClientChanges");
+
     /**
      * Creates a new client in the database
      *
@@ -17,25 +48,37 @@ public class ClientDAO {
         String query = "INSERT INTO client (nom, prenom, email, telephone, date_arrivee) " +
                 "VALUES (?, ?, ?, ?, ?)";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        try (MetricsRegistry.Sample sample = CREATE_CLIENT.start();
+             Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
 
-            stmt.setString(1, client.getLastname());
-            stmt.setString(2, client.getFirstname());
-            stmt.setString(3, client.getEmail());
-            stmt.setString(4, client.getPhoneNumber());
-            stmt.setDate(5, new Date(client.getRegistrationDate().getTime()));
+                stmt.setString(1, client.getLastname());
+                stmt.setString(2, client.getFirstname());
+                stmt.setString(3, client.getEmail());
+                stmt.setString(4, client.getPhoneNumber());
+                stmt.setDate(5, new Date(client.getRegistrationDate().getTime()));
 
-            int rowsInserted = stmt.executeUpdate();
-            if (rowsInserted > 0) {
-                try (ResultSet rs = stmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        client.setClientId(rs.getInt(1));
-                        return client;
+                int rowsInserted = stmt.executeUpdate();
+                sample.setRows(rowsInserted);
+                if (rowsInserted > 0) {
+                    try (ResultSet rs = stmt.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            countNewClients(conn, List.of(client));
+                            conn.commit();
+                            client.setClientId(rs.getInt(1));
+                            CACHE.put(client.getClientId(), client);
+                            return client;
+                        }
                     }
                 }
+                conn.rollback();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         } catch (SQLException e) {
+            CREATE_CLIENT.recordError();
             System.err.println("Error creating client: " + e.getMessage());
         }
 
@@ -43,6 +86,91 @@ public class ClientDAO {
     }
 
 
+    /**
+     * Creates several clients in one transaction using a JDBC batch.
+     * Generated ids are set on the clients. Imported clients are not cached.
+     *
+     * @param clients the clients to create
+     * @return true if all clients were created, false if the transaction was rolled back
+     */
+    public boolean createClients(List<Client> clients) {
+        String query = "INSERT INTO client (nom, prenom, email, telephone, date_arrivee) " +
+                "VALUES (?, ?, ?, ?, ?)";
+
+        try (MetricsRegistry.Sample sample = CREATE_CLIENTS.start();
+             Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                for (Client client : clients) {
+                    stmt.setString(1, client.getLastname());
+                    stmt.setString(2, client.getFirstname());
+                    stmt.setString(3, client.getEmail());
+                    stmt.setString(4, client.getPhoneNumber());
+                    stmt.setDate(5, new Date(client.getRegistrationDate().getTime()));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+
+                // Keys come back in insertion order, also when the driver rewrites the batch
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    for (Client client : clients) {
+                        if (!rs.next()) {
+                            break;
+                        }
+                        client.setClientId(rs.getInt(1));
+                    }
+                }
+                countNewClients(conn, clients);
+                conn.commit();
+                sample.setRows(clients.size());
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            CREATE_CLIENTS.recordError();
+            System.err.println("Error creating clients: " + e.getMessage());
+            for (Client client : clients) {
+                client.setClientId(0);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Adds inserted clients to the monthly counts, in the caller's transaction
+     *
+     * @param conn    the connection the clients were inserted with
+     * @param clients the inserted clients
+     * @throws SQLException if the counts cannot be updated
+     */
+    private static void countNewClients(Connection conn, List<Client> clients) throws SQLException {
+        // Sorted so that concurrent inserts lock the month rows in the same order
+        Map<Date, Integer> newClients = new TreeMap<>();
+        for (Client client : clients) {
+            newClients.merge(monthOf(client.getRegistrationDate()), 1, Integer::sum);
+        }
+
+        String query = "INSERT INTO client_par_mois (mois, nb_nouveaux) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE nb_nouveaux = nb_nouveaux + VALUES(nb_nouveaux)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (Map.Entry<Date, Integer> month : newClients.entrySet()) {
+                stmt.setDate(1, month.getKey());
+                stmt.setInt(2, month.getValue());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Gets the first day of the month of a date, the key of client_par_mois
+     */
+    static Date monthOf(java.util.Date date) {
+        return Date.valueOf(new Date(date.getTime()).toLocalDate().withDayOfMonth(1));
+    }
+
     /**
      * Updates an existing client in the database
      *
@@ -50,10 +178,11 @@ public class ClientDAO {
      * @return true if update was successful, false otherwise
      */
     public boolean updateClient(Client client) {
-        String query = "UPDATE clients SET nom = ?, prenom =?, email = ?, phone_number = ? " +
+        String query = "UPDATE client SET nom = ?, prenom = ?, email = ?, telephone = ? " +
                 "WHERE id_client = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (MetricsRegistry.Sample sample = UPDATE_CLIENT.start();
+             Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, client.getLastname());
@@ -63,41 +192,60 @@ public class ClientDAO {
             stmt.setInt(5, client.getClientId());
 
             int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            sample.setRows(rowsAffected);
+            if (rowsAffected > 0) {
+                CACHE.put(client.getClientId(), client);
+                return true;
+            }
+            CACHE.invalidate(client.getClientId());
+            return false;
 
         } catch (SQLException e) {
+            UPDATE_CLIENT.recordError();
             System.err.println("Error updating client: " + e.getMessage());
+            // The caller may have modified a cached instance before the failed update
+            CACHE.invalidate(client.getClientId());
             return false;
         }
     }
 
     /**
-     * Gets a client by ID
+     * Gets a client by ID, from the cache when possible
      *
      * @param clientId the client ID
      * @return Client object if found, null otherwise
      */
     public Client getClientById(int clientId) {
+        return CACHE.getOrLoad(clientId, this::loadClientById);
+    }
+
+    /**
+     * Gets the hit/miss/eviction counters of the client cache
+     *
+     * @return the shared client cache
+     */
+    public static EntityCache<Integer, Client> getCache() {
+        return CACHE;
+    }
+
+    private Client loadClientById(int clientId) {
         String query = "SELECT * FROM client WHERE id_client = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        // Timed here rather than around the cache, which counts its own hits and misses
+        try (MetricsRegistry.Sample sample = LOAD_CLIENT_BY_ID.start();
+             Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setInt(1, clientId);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return new Client(
-                            rs.getInt("id_client"),
-                            rs.getString("nom"),
-                            rs.getString("prenom"),
-                            rs.getString("email"),
-                            rs.getString("telephone"),
-                            rs.getDate("date_arrivee")
-                    );
+                    sample.addRow();
+                    return mapClient(rs);
                 }
             }
         } catch (SQLException e) {
+            LOAD_CLIENT_BY_ID.recordError();
             System.err.println("Error getting client: " + e.getMessage());
         }
 
@@ -113,21 +261,17 @@ public class ClientDAO {
         List<Client> clients = new ArrayList<>();
         String query = "SELECT * FROM client ORDER BY nom";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (MetricsRegistry.Sample sample = GET_ALL_CLIENTS.start();
+             Connection conn = DatabaseConnection.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
 
             while (rs.next()) {
-                clients.add(new Client(
-                        rs.getInt("id_client"),
-                        rs.getString("nom"),
-                        rs.getString("prenom"),
-                        rs.getString("email"),
-                        rs.getString("telephone"),
-                        rs.getDate("date_arrivee")
-                ));
+                clients.add(mapClient(rs));
             }
+            sample.setRows(clients.size());
         } catch (SQLException e) {
+            GET_ALL_CLIENTS.recordError();
             System.err.println("Error getting clients: " + e.getMessage());
         }
 
@@ -135,36 +279,277 @@ public class ClientDAO {
     }
 
     /**
-     * Searches for clients by name
+     * Gets the clients inserted, updated or deleted after a watermark of the change log.
+     * The client cache is updated with them too.
+     *
+     * @param watermark the watermark of the last full load or delta
+     * @return the changes, or null if an error occurred
+     */
+    public Delta<Integer, Client> getClientChanges(long watermark) {
+        try (MetricsRegistry.Sample sample = GET_CLIENT_CHANGES.start();
+             Connection conn = DatabaseConnection.getConnection()) {
+
+            ChangeLogDAO.Changes changes = ChangeLogDAO.readChanges(conn, watermark, ChangeLogDAO.CLIENT);
+            List<Integer> ids = new ArrayList<>(changes.getRowIds(ChangeLogDAO.CLIENT));
+            Map<Integer, Client> changed = new LinkedHashMap<>();
+            for (int from = 0; from < ids.size(); from += EnrollmentDAO.IN_LIST_CHUNK) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + EnrollmentDAO.IN_LIST_CHUNK, ids.size()));
+                String query = "SELECT * FROM client WHERE id_client IN (" + EnrollmentDAO.placeholders(chunk.size()) + ")";
+
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Client client = mapClient(rs);
+                            changed.put(client.getClientId(), client);
+                            CACHE.put(client.getClientId(), client);
+                        }
+                    }
+                }
+            }
+
+            Set<Integer> deleted = new LinkedHashSet<>(ids);
+            deleted.removeAll(changed.keySet());
+            for (Integer id : deleted) {
+                CACHE.invalidate(id);
+            }
+            sample.setRows(ids.size());
+            return new Delta<>(changed, deleted, changes.getWatermark());
+        } catch (SQLException e) {
+            GET_CLIENT_CHANGES.recordError();
+            System.err.println("Error getting client changes: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Counts the clients
+     *
+     * @return the number of clients, or 0 if an error occurred
+     */
+    public int countClients() {
+        String query = "SELECT COUNT(*) FROM client";
+
+        try (MetricsRegistry.Sample sample = COUNT_CLIENTS.start();
+             Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+
+            if (rs.next()) {
+                sample.addRow();
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            COUNT_CLIENTS.recordError();
+            System.err.println("Error counting clients: " + e.getMessage());
+        }
+
+        return 0;
+    }
+
+    /**
+     * Gets the page of clients that follows a given client in (nom, id_client) order.
+     * The seek condition uses the index on nom, so every page costs the same
+     * however deep it is.
+     *
+     * @param afterNom the last name of the last client of the previous page, or null for the first page
+     * @param afterId  the id of the last client of the previous page
+     * @param limit    the page size
+     * @return the clients of the page, possibly fewer than limit at the end
+     */
+    public List<Client> getClientsPage(String afterNom, int afterId, int limit) {
+        List<Client> clients = new ArrayList<>(limit);
+        String query = afterNom == null
+                ? "SELECT * FROM client ORDER BY nom, id_client LIMIT ?"
+                : "SELECT * FROM client WHERE nom > ? OR (nom = ? AND id_client > ?) ORDER BY nom, id_client LIMIT ?";
+
+        try (MetricsRegistry.Sample sample = GET_CLIENTS_PAGE.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            int index = 1;
+            if (afterNom != null) {
+                stmt.setString(index++, afterNom);
+                stmt.setString(index++, afterNom);
+                stmt.setInt(index++, afterId);
+            }
+            stmt.setInt(index, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    clients.add(mapClient(rs));
+                }
+            }
+            sample.setRows(clients.size());
+        } catch (SQLException e) {
+            GET_CLIENTS_PAGE.recordError();
+            System.err.println("Error getting clients page: " + e.getMessage());
+        }
+
+        return clients;
+    }
+
+    /**
+     * Gets a page of clients by position, for jumps where the previous page is unknown.
+     * The offset is skipped on the index alone before the full rows are read.
+     *
+     * @param offset the position of the first client in (nom, id_client) order
+     * @param limit  the page size
+     * @return the clients of the page
+     */
+    public List<Client> getClientsPageAt(int offset, int limit) {
+        List<Client> clients = new ArrayList<>(limit);
+        String query = "SELECT c.* FROM client c " +
+                "JOIN (SELECT id_client FROM client ORDER BY nom, id_client LIMIT ? OFFSET ?) page " +
+                "ON page.id_client = c.id_client " +
+                "ORDER BY c.nom, c.id_client";
+
+        try (MetricsRegistry.Sample sample = GET_CLIENTS_PAGE_AT.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setInt(1, limit);
+            stmt.setInt(2, offset);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    clients.add(mapClient(rs));
+                }
+            }
+            sample.setRows(clients.size());
+        } catch (SQLException e) {
+            GET_CLIENTS_PAGE_AT.recordError();
+            System.err.println("Error getting clients page: " + e.getMessage());
+        }
+
+        return clients;
+    }
+
+    /**
+     * Searches for clients by name, email or phone number
      *
      * @param searchTerm the search term
-     * @return List of matching Client objects
+     * @return the matching clients, best matches first
      */
     public List<Client> searchClientsByName(String searchTerm) {
+        return searchClients(searchTerm, SEARCH_LIMIT);
+    }
+
+    /**
+     * Searches clients on nom, prenom, email and telephone.
+     *
+     * Every word of the term must match the beginning of a word of the client, so
+     * "ala yas" finds "Yassine Alami" and "0612" finds his phone number. Words of
+     * three characters or more go through the FULLTEXT index and results are ranked
+     * by relevance; shorter words can only match the beginning of a column, which
+     * still uses the column indexes instead of scanning the table.
+     *
+     * @param searchTerm the search term
+     * @param limit      maximum number of clients returned
+     * @return the matching clients, best matches first
+     */
+    public List<Client> searchClients(String searchTerm, int limit) {
         List<Client> clients = new ArrayList<>();
-        String query = "SELECT * FROM client WHERE nom LIKE ? ORDER BY nom";
+        searchClients(searchTerm, limit, clients::add);
+        return clients;
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+    /**
+     * Searches clients and passes each match to a consumer as it is read.
+     * The consumer may throw to stop reading, for example when the search was superseded.
+     *
+     * @param searchTerm the search term
+     * @param limit      maximum number of clients returned
+     * @param consumer   receives the matching clients, best matches first
+     */
+    public void searchClients(String searchTerm, int limit, Consumer<Client> consumer) {
+        searchClients(searchTerm, limit, consumer, null);
+    }
 
-            stmt.setString(1, "%" + searchTerm + "%");
+    /**
+     * Searches clients like searchClients(searchTerm, limit, consumer), with a
+     * handle through which another thread can stop the query on the server
+     *
+     * @param running cancelled when the search is superseded, or null
+     * @throws java.util.concurrent.CancellationException if running was cancelled before the query started
+     */
+    public void searchClients(String searchTerm, int limit, Consumer<Client> consumer, RunningQuery running) {
+        ClientSearch search = ClientSearch.parse(searchTerm);
+        if (search.isEmpty()) {
+            return;
+        }
 
+        StringBuilder query = new StringBuilder("SELECT * FROM client WHERE ");
+        boolean fullText = search.getFullTextQuery() != null;
+        if (fullText) {
+            query.append(FULLTEXT_MATCH);
+        }
+        for (int i = 0; i < search.getShortWords().size(); i++) {
+            if (fullText || i > 0) {
+                query.append(" AND ");
+            }
+            query.append("(nom LIKE ? OR prenom LIKE ? OR email LIKE ? OR telephone LIKE ?)");
+        }
+        query.append(fullText ? " ORDER BY " + FULLTEXT_MATCH + " DESC, nom, id_client" : " ORDER BY nom, id_client");
+        query.append(" LIMIT ?");
+
+        try (MetricsRegistry.Sample sample = SEARCH_CLIENTS.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+
+            int index = 1;
+            if (fullText) {
+                stmt.setString(index++, search.getFullTextQuery());
+            }
+            for (String word : search.getShortWords()) {
+                for (int column = 0; column < 4; column++) {
+                    stmt.setString(index++, word + "%");
+                }
+            }
+            if (fullText) {
+                stmt.setString(index++, search.getFullTextQuery());
+            }
+            stmt.setInt(index, limit);
+
+            if (running != null) {
+                running.start(stmt);
+            }
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    clients.add(new Client(
-                            rs.getInt("id_client"),
-                            rs.getString("nom"),
-                            rs.getString("prenom"),
-                            rs.getString("email"),
-                            rs.getString("telephone"),
-                            rs.getDate("date_arrivee")
-                    ));
+                    sample.addRow();
+                    consumer.accept(mapClient(rs));
+                }
+            } finally {
+                if (running != null) {
+                    running.finish();
                 }
             }
         } catch (SQLException e) {
+            if (running != null && running.isCancelled()) {
+                return; // interrupted on purpose, the caller no longer wants the results
+            }
+            SEARCH_CLIENTS.recordError();
             System.err.println("Error searching clients: " + e.getMessage());
         }
+    }
 
-        return clients;
+    /**
+     * Builds a Client from the current row of a result set
+     *
+     * @param rs a result set positioned on a row containing the client columns
+     * @return the mapped Client
+     * @throws SQLException if a column is missing
+     */
+    static Client mapClient(ResultSet rs) throws SQLException {
+        return new Client(
+                rs.getInt("id_client"),
+                rs.getString("prenom"),
+                rs.getString("nom"),
+                rs.getString("email"),
+                rs.getString("telephone"),
+                rs.getDate("date_arrivee")
+        );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,218 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Imports clients from a CSV file.
+ *
+ * Expected columns: first name, last name, email, phone and optionally the
+ * registration date (yyyy-MM-dd, today if empty). The first record is taken as
+ * a header and skipped when its email column holds a label such as "Email".
+ * Rows are parsed as they are read, validated with the same rules as the
+ * client dialog, and inserted in chunks through ClientDAO.createClients; rows
+ * that cannot be imported are collected in the report with their line number.
+ */
+public class ClientImporter {
+
+    /**
+     * Receives progress notifications. Called on the importing thread.
+     */
+    public interface ProgressListener {
+        void progress(int imported, int rejected);
+    }
+
+    /**
+     * A row that was not imported
+     */
+    public static class RowError {
+        private final int line;
+        private final String message;
+
+        public RowError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + message;
+        }
+    }
+
+    /**
+     * Outcome of an import
+     */
+    public static class Report {
+        private int imported;
+        private final List<RowError> errors = new ArrayList<>();
+        private boolean cancelled;
+        private int headerLine;
+
+        public int getImportedCount() {
+            return imported;
+        }
+
+        /**
+         * @return the line of the header row that was skipped, or 0 if there was none
+         */
+        public int getHeaderLine() {
+            return headerLine;
+        }
+
+        public List<RowError> getErrors() {
+            return Collections.unmodifiableList(errors);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    // Rows inserted per transaction
+    static final int CHUNK_SIZE = 1000;
+
+    // Labels of the email column in a header row, in lower case without spaces or dashes
+    private static final Set<String> EMAIL_LABELS = new HashSet<>(Arrays.asList(
+            "email", "mail", "emailaddress", "courriel", "adresseemail", "adressemail", "adressecourriel"));
+
+    private final ClientDAO clientDAO;
+
+    public ClientImporter(ClientDAO clientDAO) {
+        this.clientDAO = clientDAO;
+    }
+
+    /**
+     * Imports every row of a CSV file.
+     * Chunks already committed stay imported if the import is cancelled or fails.
+     *
+     * @param csv       the CSV reader
+     * @param listener  notified after each chunk
+     * @param cancelled checked between rows; returning true stops the import
+     * @return the number of imported clients and the rejected rows
+     * @throws IOException if the file cannot be read
+     */
+    public Report importClients(CsvReader csv, ProgressListener listener, BooleanSupplier cancelled) throws IOException {
+        Report report = new Report();
+        List<Client> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Integer> chunkLines = new ArrayList<>(CHUNK_SIZE);
+        boolean firstRecord = true;
+
+        String[] record;
+        while ((record = csv.readRecord()) != null) {
+            if (cancelled.getAsBoolean()) {
+                report.cancelled = true;
+                break;
+            }
+            if (firstRecord) {
+                firstRecord = false;
+                if (isHeader(record)) {
+                    report.headerLine = csv.getRecordLine();
+                    continue;
+                }
+            }
+
+            int line = csv.getRecordLine();
+            try {
+                chunk.add(parseClient(record));
+                chunkLines.add(line);
+            } catch (IllegalArgumentException e) {
+                report.errors.add(new RowError(line, e.getMessage()));
+            }
+
+            if (chunk.size() == CHUNK_SIZE) {
+                insertChunk(chunk, chunkLines, report);
+                listener.progress(report.imported, report.errors.size());
+            }
+        }
+
+        if (!report.cancelled) {
+            insertChunk(chunk, chunkLines, report);
+        }
+        listener.progress(report.imported, report.errors.size());
+        return report;
+    }
+
+    /**
+     * Builds a client from a CSV record
+     *
+     * @param record the fields of the record
+     * @return the validated client
+     * @throws IllegalArgumentException with the reason if the record is invalid
+     */
+    static Client parseClient(String[] record) {
+        if (record.length < 4 || record.length > 5) {
+            throw new IllegalArgumentException("Expected 4 or 5 columns, found " + record.length + ".");
+        }
+        String firstname = record[0].trim();
+        String lastname = record[1].trim();
+        String email = record[2].trim();
+        String phone = record[3].trim();
+
+        String error = ClientValidator.validate(firstname, lastname, email, phone);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+
+        Date registrationDate = new Date();
+        if (record.length == 5 && !record[4].trim().isEmpty()) {
+            try {
+                registrationDate = java.sql.Date.valueOf(record[4].trim());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid registration date (expected yyyy-MM-dd): " + record[4].trim());
+            }
+        }
+        return new Client(firstname, lastname, email, phone, registrationDate);
+    }
+
+    /**
+     * A header is recognised by the label of its email column, so a first client
+     * with a malformed address is reported rather than skipped, and one whose
+     * address contains "mail" is still imported
+     */
+    static boolean isHeader(String[] record) {
+        if (record.length < 3) {
+            return false;
+        }
+        // "E-mail", "Adresse email" and "email_address" all become one word
+        String label = record[2].toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}]", "");
+        return EMAIL_LABELS.contains(label);
+    }
+
+    /**
+     * Inserts a chunk in one transaction. If the batch is rejected, the rows are
+     * inserted one by one so only the faulty rows end up in the report.
+     */
+    private void insertChunk(List<Client> chunk, List<Integer> lines, Report report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        if (clientDAO.createClients(chunk)) {
+            report.imported += chunk.size();
+        } else {
+            for (int i = 0; i < chunk.size(); i++) {
+                if (clientDAO.createClient(chunk.get(i)) != null) {
+                    report.imported++;
+                } else {
+                    report.errors.add(new RowError(lines.get(i), "Rejected by the database."));
+                }
+            }
+        }
+        chunk.clear();
+        lines.clear();
+    }
+}
@@ -1,23 +1,63 @@
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Panel for managing clients using ClientDAO
  */
 public class ClientManagementPanel extends JPanel {
+    // Name of the panel's loads and writes in the DomainStore
+    private static final String NAME = "ClientManagementPanel";
     private ClientDAO clientDAO;
+    private final ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+    private final DomainStore store = DomainStore.getInstance();
     private JTable clientTable;
-    private DefaultTableModel tableModel;
+    private LazyClientTableModel tableModel;
     private JTextField searchField;
     private JButton addButton;
     private JButton editButton;
     private JButton refreshButton;
+    private JButton importButton;
+    private JButton exportButton;
+    private final BackgroundLoader<Client> loader = new BackgroundLoader<>("ClientManagementPanel.search");
+    // Query of the search being loaded, stopped on the server when the search is superseded
+    private RunningQuery runningSearch;
+
+    // Delay after the last keystroke before searching
+    private static final int SEARCH_DELAY_MS = 250;
+    private final Timer searchTimer = new Timer(SEARCH_DELAY_MS, e -> searchClients());
+
+    // Last search whose complete results are displayed, used to narrow the next one in memory
+    private ClientSearch lastSearch;
+    private List<Client> lastResults;
+    private boolean showingAllClients;
+
+    // The table reads its own pages; the store publishes the client changes shared with the other panels
+    private final DomainStore.Listener storeListener = new DomainStore.Listener() {
+        @Override
+        public void clientsChanged(Delta<Integer, Client> delta) {
+            // The kept results may be about to change; the next search queries the database
+            lastSearch = null;
+            lastResults = null;
+            tableModel.applyChanges(delta, ClientSearch.parse(searchField.getText())::matches);
+        }
+    };
 
     /**
      * Constructor for the client management panel
@@ -34,6 +74,18 @@ public class ClientManagementPanel extends JPanel {
         refreshClientTable();
     }
 
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        store.addListener(storeListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        store.removeListener(storeListener);
+        super.removeNotify();
+    }
+
     /**
      * Initialize all UI components
      */
@@ -46,7 +98,27 @@ public class ClientManagementPanel extends JPanel {
         searchField = new JTextField(20);
         JButton searchButton = new JButton("Search");
         searchButton.addActionListener(e -> searchClients());
-        searchPanel.add(new JLabel("Search by Name: "), BorderLayout.WEST);
+        searchField.addActionListener(e -> searchClients());
+
+        // Search as the user types, once typing pauses
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+        searchPanel.add(new JLabel("Search: "), BorderLayout.WEST);
         searchPanel.add(searchField, BorderLayout.CENTER);
         searchPanel.add(searchButton, BorderLayout.EAST);
 
@@ -54,27 +126,27 @@ public class ClientManagementPanel extends JPanel {
         JPanel buttonsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         addButton = new JButton("Add Client");
         editButton = new JButton("Edit Client");
+        importButton = new JButton("Import CSV");
+        exportButton = new JButton("Export");
         refreshButton = new JButton("Refresh");
 
         addButton.addActionListener(e -> showAddClientDialog());
         editButton.addActionListener(e -> showEditClientDialog());
-        refreshButton.addActionListener(e -> refreshClientTable());
+        importButton.addActionListener(e -> importClients());
+        exportButton.addActionListener(e -> ExportTask.start(this, DataExporter.Dataset.CLIENTS));
+        refreshButton.addActionListener(e -> store.refresh(NAME));
 
         buttonsPanel.add(addButton);
         buttonsPanel.add(editButton);
+        buttonsPanel.add(importButton);
+        buttonsPanel.add(exportButton);
         buttonsPanel.add(refreshButton);
 
         topPanel.add(searchPanel, BorderLayout.WEST);
         topPanel.add(buttonsPanel, BorderLayout.EAST);
 
-        // Table
-        String[] columnNames = {"ID", "first Name", "last name", "Email", "Phone Number", "Registration Date"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table cells non-editable
-            }
-        };
+        // Table: rows are fetched page by page as they are scrolled into view
+        tableModel = new LazyClientTableModel(clientDAO);
 
         clientTable = new JTable(tableModel);
         clientTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -93,55 +165,116 @@ public class ClientManagementPanel extends JPanel {
         // Add components to main panel
         add(topPanel, BorderLayout.NORTH);
         add(scrollPane, BorderLayout.CENTER);
+        add(loader.getProgressBar(), BorderLayout.SOUTH);
     }
 
     /**
      * Refresh the client table with all clients
      */
     private void refreshClientTable() {
-        // Clear existing data
-        tableModel.setRowCount(0);
-
-        // Get all clients and add to table
-        List<Client> clients = clientDAO.getAllClients();
-        for (Client client : clients) {
-            addClientToTable(client);
-        }
+        cancelSearch();
+        searchTimer.stop();
+        lastSearch = null;
+        lastResults = null;
+        showingAllClients = true;
+        tableModel.showAllClients();
     }
 
     /**
-     * Search clients by name
+     * Search clients by name, email or phone number.
+     * When the term only narrows the previous search (the user kept typing), the
+     * previous results are filtered in memory; otherwise the database is queried
+     * in the background, superseding any search still running.
      */
     private void searchClients() {
-        String searchTerm = searchField.getText().trim();
-
-        // Clear existing data
-        tableModel.setRowCount(0);
+        searchTimer.stop();
+        ClientSearch search = ClientSearch.parse(searchField.getText());
 
         // If search field is empty, show all clients
-        if (searchTerm.isEmpty()) {
-            refreshClientTable();
+        if (search.isEmpty()) {
+            if (!showingAllClients) {
+                refreshClientTable();
+            }
             return;
         }
+        showingAllClients = false;
+
+        if (lastSearch != null && lastResults != null && search.narrows(lastSearch)) {
+            List<Client> narrowed = new ArrayList<>();
+            for (Client client : lastResults) {
+                if (search.matches(client)) {
+                    narrowed.add(client);
+                }
+            }
+            cancelSearch();
+            tableModel.showClients();
+            tableModel.addClients(narrowed);
+            lastSearch = search;
+            lastResults = narrowed;
+            return;
+        }
+
+        loadClients(search);
+    }
 
-        // Get clients by search term
-        List<Client> clients = clientDAO.searchClientsByName(searchTerm);
-        for (Client client : clients) {
-            addClientToTable(client);
+    /**
+     * Cancel the search being loaded, and its query on the server
+     */
+    private void cancelSearch() {
+        loader.cancel();
+        if (runningSearch != null) {
+            runningSearch.cancel();
+            runningSearch = null;
         }
     }
 
     /**
-     * Add a client to the table
+     * Replace the table content with search results loaded in the background.
+     * A newer search or a refresh cancels this one.
      */
-    private void addClientToTable(Client client) {
-        tableModel.addRow(new Object[]{
-                client.getClientId(),
-                client.getFirstname(),
-                client.getLastname(),
-                client.getEmail(),
-                client.getPhoneNumber(),
-                client.getRegistrationDate()
+    private void loadClients(ClientSearch search) {
+        String searchTerm = searchField.getText();
+        List<Client> results = new ArrayList<>();
+        AtomicLong watermark = new AtomicLong(-1);
+        lastSearch = null;
+        lastResults = null;
+        cancelSearch();
+        RunningQuery running = new RunningQuery();
+        runningSearch = running;
+
+        loader.load(sink -> {
+            watermark.set(changeLogDAO.getWatermark());
+            clientDAO.searchClients(searchTerm, ClientDAO.SEARCH_LIMIT, sink, running);
+        }, new BackgroundLoader.Listener<Client>() {
+            @Override
+            public void loadStarted() {
+                tableModel.showClients();
+                tableModel.setWatermark(-1);
+            }
+
+            @Override
+            public void rowsLoaded(List<Client> clients) {
+                results.addAll(clients);
+                tableModel.addClients(clients);
+            }
+
+            @Override
+            public void loadFinished() {
+                tableModel.setWatermark(watermark.get());
+                // A truncated result set cannot be narrowed: later matches were never fetched
+                if (results.size() < ClientDAO.SEARCH_LIMIT) {
+                    lastSearch = search;
+                    lastResults = results;
+                }
+            }
+
+            @Override
+            public void loadFailed(Exception e) {
+                JOptionPane.showMessageDialog(ClientManagementPanel.this,
+                        "Error loading clients: " + e.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+            }
         });
     }
 
@@ -164,9 +297,7 @@ public class ClientManagementPanel extends JPanel {
         saveButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (saveNewClient(formPanel)) {
-                    dialog.dispose();
-                }
+                saveNewClient(formPanel, saveButton, dialog);
             }
         });
 
@@ -192,8 +323,15 @@ public class ClientManagementPanel extends JPanel {
             return;
         }
 
-        int clientId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        Client client = clientDAO.getClientById(clientId);
+        Client selected = tableModel.getClient(selectedRow);
+        if (selected == null) {
+            JOptionPane.showMessageDialog(this,
+                    "The selected row is still loading.",
+                    "No Selection",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        Client client = clientDAO.getClientById(selected.getClientId());
 
         if (client == null) {
             JOptionPane.showMessageDialog(this,
@@ -218,9 +356,7 @@ public class ClientManagementPanel extends JPanel {
         saveButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (updateExistingClient(formPanel, client)) {
-                    dialog.dispose();
-                }
+                updateExistingClient(formPanel, client, saveButton, dialog);
             }
         });
 
@@ -272,9 +408,9 @@ public class ClientManagementPanel extends JPanel {
     }
 
     /**
-     * Save a new client from form data
+     * Save a new client from form data in the background, and close the dialog once it is saved
      */
-    private boolean saveNewClient(JPanel formPanel) {
+    private void saveNewClient(JPanel formPanel, JButton saveButton, JDialog dialog) {
         JTextField fnameField = (JTextField) findComponentByName(formPanel, "fnameField");
         JTextField lnameField = (JTextField) findComponentByName(formPanel, "lnameField");
         JTextField emailField = (JTextField) findComponentByName(formPanel, "emailField");
@@ -287,7 +423,7 @@ public class ClientManagementPanel extends JPanel {
 
         // Basic validation
         if (!validateFormData(firstname,lastname, email, phone)) {
-            return false;
+            return;
         }
 
         // Create and save new client
@@ -298,31 +434,30 @@ public class ClientManagementPanel extends JPanel {
         newClient.setPhoneNumber(phone);
         newClient.setRegistrationDate(new Date()); // Current date
 
-        Client createdClient = clientDAO.createClient(newClient);
-
-        if (createdClient != null) {
-            // Add to table and refresh
-            addClientToTable(createdClient);
-            JOptionPane.showMessageDialog(this,
-                    "Client added successfully.",
-                    "Success",
-                    JOptionPane.INFORMATION_MESSAGE);
-            return true;
-        } else {
-            JOptionPane.showMessageDialog(this,
-                    "Error adding new client.",
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
-            return false;
-        }
+        saveButton.setEnabled(false);
+        store.createClient(newClient, NAME, createdClient -> {
+            saveButton.setEnabled(true);
+            if (createdClient != null) {
+                JOptionPane.showMessageDialog(this,
+                        "Client added successfully.",
+                        "Success",
+                        JOptionPane.INFORMATION_MESSAGE);
+                dialog.dispose();
+            } else {
+                JOptionPane.showMessageDialog(this,
+                        "Error adding new client.",
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+        });
     }
 
     /**
-     * Update an existing client from form data
+     * Update an existing client from form data in the background, and close the dialog once it is saved
      */
-    private boolean updateExistingClient(JPanel formPanel, Client client) {
-        JTextField firstnameField = (JTextField) findComponentByName(formPanel, "firstnameField");
-        JTextField lastnameField = (JTextField) findComponentByName(formPanel, "lastnameField");
+    private void updateExistingClient(JPanel formPanel, Client client, JButton saveButton, JDialog dialog) {
+        JTextField firstnameField = (JTextField) findComponentByName(formPanel, "fnameField");
+        JTextField lastnameField = (JTextField) findComponentByName(formPanel, "lnameField");
         JTextField emailField = (JTextField) findComponentByName(formPanel, "emailField");
         JTextField phoneField = (JTextField) findComponentByName(formPanel, "phoneField");
 
@@ -333,56 +468,152 @@ public class ClientManagementPanel extends JPanel {
 
         // Basic validation
         if (!validateFormData(firstname, lastname, email, phone)) {
-            return false;
+            return;
         }
 
-        // Update client data
-        client.setFirstname(firstname);
-        client.setLastname(lastname);
-        client.setEmail(email);
-        client.setPhoneNumber(phone);
-
-        boolean updated = clientDAO.updateClient(client);
-
-        if (updated) {
-            // Refresh table
-            refreshClientTable();
-            JOptionPane.showMessageDialog(this,
-                    "Client updated successfully.",
-                    "Success",
-                    JOptionPane.INFORMATION_MESSAGE);
-            return true;
-        } else {
-            JOptionPane.showMessageDialog(this,
-                    "Error updating client.",
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
-            return false;
-        }
+        // Edit a copy: the client is the instance shared by the cache and the store, which
+        // the store's refresh replaces with the updated row once the update is committed
+        Client edited = new Client(client.getClientId(), firstname, lastname, email, phone,
+                client.getRegistrationDate());
+
+        saveButton.setEnabled(false);
+        store.updateClient(edited, NAME, updated -> {
+            saveButton.setEnabled(true);
+            if (updated) {
+                JOptionPane.showMessageDialog(this,
+                        "Client updated successfully.",
+                        "Success",
+                        JOptionPane.INFORMATION_MESSAGE);
+                dialog.dispose();
+            } else {
+                JOptionPane.showMessageDialog(this,
+                        "Error updating client.",
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+        });
     }
 
     /**
      * Basic validation of form data
      */
     private boolean validateFormData(String firstname, String lastname, String email, String phone) {
-        if (firstname.isEmpty() || email.isEmpty() || phone.isEmpty()|| lastname.isEmpty()) {
+        String error = ClientValidator.validate(firstname, lastname, email, phone);
+        if (error != null) {
             JOptionPane.showMessageDialog(this,
-                    "All fields are required.",
+                    error,
                     "Validation Error",
                     JOptionPane.ERROR_MESSAGE);
             return false;
         }
 
-        // Simple email validation
-        if (!email.contains("@") || !email.contains(".")) {
-            JOptionPane.showMessageDialog(this,
-                    "Please enter a valid email address.",
-                    "Validation Error",
-                    JOptionPane.ERROR_MESSAGE);
-            return false;
+        return true;
+    }
+
+    /**
+     * Import clients from a CSV file chosen by the user.
+     * The file is read and inserted in the background; a progress monitor
+     * shows how much of the file was processed and allows cancelling.
+     */
+    private void importClients() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import clients (first name, last name, email, phone[, date])");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        File file = chooser.getSelectedFile();
 
-        return true;
+        ProgressMonitor monitor = new ProgressMonitor(this, "Importing " + file.getName(), "", 0, 100);
+        monitor.setMillisToDecideToPopup(200);
+        importButton.setEnabled(false);
+
+        // Written by the worker, read on the EDT, and the other way round
+        AtomicReference<String> note = new AtomicReference<>("");
+        AtomicBoolean cancelRequested = new AtomicBoolean();
+
+        SwingWorker<ClientImporter.Report, Void> worker = new SwingWorker<ClientImporter.Report, Void>() {
+
+            @Override
+            protected ClientImporter.Report doInBackground() throws Exception {
+                long size = Math.max(1, file.length());
+                try (FileInputStream in = new FileInputStream(file);
+                     CsvReader csv = new CsvReader(new BufferedReader(
+                             new InputStreamReader(in, StandardCharsets.UTF_8)), ',')) {
+                    return new ClientImporter(clientDAO).importClients(csv, (imported, rejected) -> {
+                        note.set(imported + " imported, " + rejected + " rejected");
+                        try {
+                            setProgress((int) Math.min(99, in.getChannel().position() * 100 / size));
+                        } catch (java.io.IOException e) {
+                            // progress is informative only
+                        }
+                    }, cancelRequested::get);
+                }
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                importButton.setEnabled(true);
+                try {
+                    showImportReport(get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(ClientManagementPanel.this,
+                            "Error importing clients: " + e.getCause().getMessage(),
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+                store.refresh(NAME);
+            }
+        };
+        // ProgressMonitor is polled on the EDT; the worker only sees the cancel flag
+        Timer poller = new Timer(200, e -> {
+            monitor.setProgress(worker.getProgress());
+            monitor.setNote(note.get());
+            if (monitor.isCanceled()) {
+                cancelRequested.set(true);
+            }
+        });
+        worker.addPropertyChangeListener(evt -> {
+            if (worker.isDone()) {
+                poller.stop();
+            }
+        });
+        poller.start();
+        worker.execute();
+    }
+
+    /**
+     * Show the outcome of an import with the rejected rows
+     */
+    private void showImportReport(ClientImporter.Report report) {
+        // Listing every rejected row of a huge file would only freeze the dialog
+        final int maxListedErrors = 1000;
+        List<ClientImporter.RowError> errors = report.getErrors();
+
+        String summary = report.getImportedCount() + " client(s) imported, " + errors.size() + " row(s) rejected."
+                + (report.getHeaderLine() > 0 ? "\nLine " + report.getHeaderLine() + " was skipped as a header." : "")
+                + (report.isCancelled() ? "\nThe import was cancelled." : "");
+        if (errors.isEmpty()) {
+            JOptionPane.showMessageDialog(this, summary, "Import", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        StringBuilder details = new StringBuilder();
+        for (int i = 0; i < errors.size() && i < maxListedErrors; i++) {
+            details.append(errors.get(i)).append('\n');
+        }
+        if (errors.size() > maxListedErrors) {
+            details.append("... and ").append(errors.size() - maxListedErrors).append(" more\n");
+        }
+        JTextArea detailsArea = new JTextArea(details.toString(), 15, 60);
+        detailsArea.setEditable(false);
+
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.add(new JLabel("<html>" + summary.replace("\n", "<br>") + "</html>"), BorderLayout.NORTH);
+        panel.add(new JScrollPane(detailsArea), BorderLayout.CENTER);
+        JOptionPane.showMessageDialog(this, panel, "Import", JOptionPane.WARNING_MESSAGE);
     }
 
     /**
@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A parsed client search term.
+ *
+ * The term is split into words the way the FULLTEXT parser splits the indexed
+ * columns (nom, prenom, email, telephone), and every word must match the start
+ * of a word of the client. Words long enough to be in the FULLTEXT index become
+ * required prefix terms of a boolean-mode query; shorter words are matched with
+ * LIKE 'word%' on the columns.
+ */
+public final class ClientSearch {
+
+    // innodb_ft_min_token_size: shorter words are not in the FULLTEXT index
+    static final int MIN_INDEXED_LENGTH = 3;
+
+    private final List<String> words;
+    private final String fullTextQuery;
+    private final List<String> shortWords;
+
+    private ClientSearch(List<String> words) {
+        this.words = Collections.unmodifiableList(words);
+
+        StringBuilder query = new StringBuilder();
+        List<String> shortOnes = new ArrayList<>();
+        for (String word : words) {
+            if (word.length() >= MIN_INDEXED_LENGTH) {
+                if (query.length() > 0) {
+                    query.append(' ');
+                }
+                query.append('+').append(word).append('*');
+            } else {
+                shortOnes.add(word);
+            }
+        }
+        this.fullTextQuery = query.length() > 0 ? query.toString() : null;
+        this.shortWords = Collections.unmodifiableList(shortOnes);
+    }
+
+    /**
+     * Parses a search term
+     *
+     * @param term what the user typed
+     * @return the parsed search; it has no words if the term has no letter or digit
+     */
+    public static ClientSearch parse(String term) {
+        return new ClientSearch(splitWords(term));
+    }
+
+    /**
+     * Gets the words of the term, lowercased
+     */
+    public List<String> getWords() {
+        return words;
+    }
+
+    public boolean isEmpty() {
+        return words.isEmpty();
+    }
+
+    /**
+     * Gets the boolean-mode FULLTEXT expression, for example "+alami* +0612*"
+     *
+     * @return the expression, or null if no word is long enough to be indexed
+     */
+    public String getFullTextQuery() {
+        return fullTextQuery;
+    }
+
+    /**
+     * Gets the words too short for the FULLTEXT index
+     */
+    public List<String> getShortWords() {
+        return shortWords;
+    }
+
+    /**
+     * Tells if a client matches this search the way the database query does:
+     * indexed words must start a word of the client, short words must start a column
+     *
+     * @param client the client
+     * @return true if every word matches
+     */
+    public boolean matches(Client client) {
+        String[] columns = {client.getLastname(), client.getFirstname(), client.getEmail(), client.getPhoneNumber()};
+        List<String> clientWords = new ArrayList<>();
+        List<String> normalizedColumns = new ArrayList<>(columns.length);
+        for (String column : columns) {
+            normalizedColumns.add(EnrollmentSnapshot.normalize(column));
+            clientWords.addAll(splitWords(column));
+        }
+
+        for (String word : words) {
+            boolean found = false;
+            if (word.length() >= MIN_INDEXED_LENGTH) {
+                for (String clientWord : clientWords) {
+                    if (clientWord.startsWith(word)) {
+                        found = true;
+                        break;
+                    }
+                }
+            } else {
+                for (String column : normalizedColumns) {
+                    if (column.startsWith(word)) {
+                        found = true;
+                        break;
+                    }
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tells if the results of this search are a subset of the results of another one,
+     * so they can be computed by filtering the other's results with matches.
+     * That is the case when every word of the other search is indexed and is the
+     * start of a word of this one, typically when the user keeps typing.
+     *
+     * @param previous the earlier search
+     * @return true if this search only narrows the earlier one
+     */
+    public boolean narrows(ClientSearch previous) {
+        if (!previous.shortWords.isEmpty() || previous.isEmpty()) {
+            return false; // column-prefix matches are not a superset of word-prefix matches
+        }
+        for (String previousWord : previous.words) {
+            boolean extended = false;
+            for (String word : words) {
+                if (word.startsWith(previousWord)) {
+                    extended = true;
+                    break;
+                }
+            }
+            if (!extended) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static List<String> splitWords(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        // Accents are dropped like the accent-insensitive collation of the columns does
+        String lower = EnrollmentSnapshot.normalize(text);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
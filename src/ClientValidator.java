@@ -0,0 +1,43 @@
+/**
+ * Validation rules for client data, shared by the client dialog and the CSV import
+ */
+public final class ClientValidator {
+
+    private ClientValidator() {
+    }
+
+    /**
+     * Checks the fields of a client
+     *
+     * @param firstname the first name
+     * @param lastname  the last name
+     * @param email     the email address
+     * @param phone     the phone number
+     * @return the error message, or null if the data is valid
+     */
+    public static String validate(String firstname, String lastname, String email, String phone) {
+        if (isBlank(firstname) || isBlank(lastname) || isBlank(email) || isBlank(phone)) {
+            return "All fields are required.";
+        }
+
+        if (!isValidEmail(email)) {
+            return "Please enter a valid email address.";
+        }
+
+        return null;
+    }
+
+    /**
+     * Simple email validation
+     *
+     * @param email the email address
+     * @return true if the address looks like an email
+     */
+    public static boolean isValidEmail(String email) {
+        return email != null && email.contains("@") && email.contains(".");
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,548 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of JDBC connections.
+ *
+ * Borrowed connections are proxies: calling close() hands the physical
+ * connection back to the pool instead of closing it, so existing
+ * try-with-resources code gets connection reuse for free. The statements,
+ * result sets and metadata they create are proxies too, so getConnection(),
+ * getStatement() and unwrap() never hand out the physical connection, and they
+ * stop working once the connection is closed. Statements and result sets the
+ * borrower left open are closed when the connection returns to the pool.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private final int minIdle;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final long validationBypassMillis;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledEntry> active = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown;
+
+    // Counters
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+
+    /**
+     * Creates a pool
+     *
+     * @param url                 the JDBC url
+     * @param user                the database user
+     * @param password            the database password
+     * @param minIdle             connections kept open even when unused
+     * @param maxSize             maximum number of open connections
+     * @param borrowTimeoutMillis how long getConnection waits for a free connection
+     * @param idleTimeoutMillis   idle time after which connections above minIdle are closed
+     * @param leakThresholdMillis borrow time after which a connection is reported as leaked
+     */
+    public ConnectionPool(String url, String user, String password,
+                          int minIdle, int maxSize, long borrowTimeoutMillis,
+                          long idleTimeoutMillis, long leakThresholdMillis) {
+        if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minIdle + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.validationBypassMillis = 500;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the borrow timeout for one to become free
+     *
+     * @return a pooled connection; closing it returns it to the pool
+     * @throws SQLException if no connection could be obtained
+     */
+    public Connection getConnection() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool is shut down");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a database connection (" + getStats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledEntry entry = takeValidIdle();
+            if (entry == null) {
+                entry = new PooledEntry(DriverManager.getConnection(url, user, password));
+                createdCount.increment();
+            }
+
+            long waited = System.nanoTime() - start;
+            borrowCount.increment();
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+            entry.borrowedAt = System.currentTimeMillis();
+            entry.borrower = Thread.currentThread().getName();
+            entry.leakReported = false;
+            active.add(entry);
+            return entry.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Pops idle connections until one passes validation
+     */
+    private PooledEntry takeValidIdle() {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            // Connections returned moments ago are assumed healthy, which saves a ping per statement
+            if (System.currentTimeMillis() - entry.lastReturnedAt < validationBypassMillis) {
+                return entry;
+            }
+            try {
+                if (entry.physical.isValid(2)) {
+                    return entry;
+                }
+            } catch (SQLException e) {
+                // fall through and discard
+            }
+            destroy(entry);
+        }
+        return null;
+    }
+
+    private void release(PooledEntry entry) {
+        if (!active.remove(entry)) {
+            return;
+        }
+
+        // A statement kept past close() must not run in the next borrower's transaction
+        closeOpenChildren(entry);
+
+        boolean reusable = !shutdown && !entry.broken;
+        if (reusable) {
+            try {
+                if (entry.physical.isClosed()) {
+                    reusable = false;
+                } else if (!entry.physical.getAutoCommit()) {
+                    // Never hand an open transaction to the next borrower
+                    entry.physical.rollback();
+                    entry.physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+
+        if (reusable) {
+            entry.lastReturnedAt = System.currentTimeMillis();
+            // LIFO keeps a warm core of connections and lets the rest age out
+            idle.offerFirst(entry);
+        } else {
+            destroy(entry);
+        }
+        permits.release();
+    }
+
+    private static void closeOpenChildren(PooledEntry entry) {
+        for (AutoCloseable child : entry.openChildren) {
+            try {
+                child.close();
+            } catch (Exception e) {
+                // closing the connection would discard it anyway
+            }
+        }
+        entry.openChildren.clear();
+    }
+
+    private void destroy(PooledEntry entry) {
+        destroyedCount.increment();
+        try {
+            entry.physical.close();
+        } catch (SQLException e) {
+            // already unusable
+        }
+    }
+
+    /**
+     * Evicts idle connections, reports leaks and refills the pool to minIdle
+     */
+    void housekeep() {
+        if (shutdown) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        Iterator<PooledEntry> it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() > minIdle) {
+            PooledEntry entry = it.next();
+            if (now - entry.lastReturnedAt > idleTimeoutMillis && idle.remove(entry)) {
+                destroy(entry);
+            }
+        }
+
+        for (PooledEntry entry : active) {
+            if (!entry.leakReported && now - entry.borrowedAt > leakThresholdMillis) {
+                entry.leakReported = true;
+                leakCount.increment();
+                System.err.println("Possible connection leak: connection borrowed by thread '"
+                        + entry.borrower + "' has not been returned after " + (now - entry.borrowedAt) + " ms");
+            }
+        }
+
+        while (idle.size() < minIdle && idle.size() + active.size() < maxSize && permits.tryAcquire()) {
+            try {
+                PooledEntry entry = new PooledEntry(DriverManager.getConnection(url, user, password));
+                createdCount.increment();
+                entry.lastReturnedAt = now;
+                idle.offerLast(entry);
+            } catch (SQLException e) {
+                System.err.println("Error filling connection pool: " + e.getMessage());
+                break;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Closes every idle connection and refuses further borrows.
+     * Connections still borrowed are closed when they are returned.
+     */
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry);
+        }
+    }
+
+    /**
+     * Gets a snapshot of the pool counters
+     *
+     * @return the current statistics
+     */
+    public Stats getStats() {
+        return new Stats(active.size(), idle.size(), maxSize,
+                borrowCount.sum(), totalWaitNanos.sum() / 1_000_000, maxWaitNanos.get() / 1_000_000,
+                timeoutCount.sum(), leakCount.sum(), createdCount.sum(), destroyedCount.sum());
+    }
+
+    /**
+     * A physical connection plus its pool bookkeeping
+     */
+    private final class PooledEntry {
+        final Connection physical;
+        volatile long lastReturnedAt;
+        volatile long borrowedAt;
+        volatile String borrower;
+        volatile boolean leakReported;
+        volatile boolean broken;
+        // Physical statements and result sets created through the current handle and not closed yet
+        final Set<AutoCloseable> openChildren = ConcurrentHashMap.newKeySet();
+
+        PooledEntry(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+    }
+
+    /**
+     * Invocation handler behind each borrowed connection.
+     * A handle is single use: once closed it no longer reaches the physical connection.
+     */
+    private final class Handle implements InvocationHandler {
+        private volatile PooledEntry entry;
+
+        Handle(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (entry != null) {
+                        PooledEntry returned = entry;
+                        entry = null;
+                        release(returned);
+                    }
+                    return null;
+                case "isClosed":
+                    return entry == null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + (entry == null ? "closed" : entry.physical) + "]";
+                case "unwrap":
+                    return unwrap(proxy, (Class<?>) args[0]);
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                default:
+                    break;
+            }
+
+            if (entry == null) {
+                throw new SQLException("Connection is closed");
+            }
+            return wrap(entry, invokePhysical(entry, entry.physical, method, args), method, proxy, this, proxy);
+        }
+
+        boolean isClosed() {
+            return entry == null;
+        }
+    }
+
+    /**
+     * Invocation handler behind the statements, result sets and metadata of a
+     * borrowed connection, which would otherwise lead back to the physical one.
+     * Like its handle, it no longer reaches the physical object once the handle is closed.
+     */
+    private final class Child implements InvocationHandler {
+        private final PooledEntry entry;
+        private final Object target;
+        private final Object connection;
+        private final Handle handle;
+        // The statement that created a result set, or the connection
+        private final Object parent;
+
+        Child(PooledEntry entry, Object target, Object connection, Handle handle, Object parent) {
+            this.entry = entry;
+            this.target = target;
+            this.connection = connection;
+            this.handle = handle;
+            this.parent = parent;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + target + "]";
+                default:
+                    break;
+            }
+
+            if (handle.isClosed()) {
+                switch (method.getName()) {
+                    case "close":
+                        return null; // closed with the connection
+                    case "isClosed":
+                        return true;
+                    default:
+                        throw new SQLException("Statement is closed");
+                }
+            }
+
+            switch (method.getName()) {
+                case "close":
+                    entry.openChildren.remove(target);
+                    return invokePhysical(entry, target, method, args);
+                case "getConnection":
+                    return connection;
+                case "getStatement":
+                    return parent instanceof Statement ? parent : null;
+                case "unwrap":
+                    return unwrap(proxy, (Class<?>) args[0]);
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                default:
+                    return wrap(entry, invokePhysical(entry, target, method, args), method, connection, handle, proxy);
+            }
+        }
+    }
+
+    private static Object unwrap(Object proxy, Class<?> iface) throws SQLException {
+        if (iface.isInstance(proxy)) {
+            return proxy;
+        }
+        throw new SQLException("A pooled connection cannot be unwrapped to " + iface.getName());
+    }
+
+    /**
+     * Calls a method of a physical JDBC object, marking the connection broken on a connection failure
+     */
+    private static Object invokePhysical(PooledEntry entry, Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                // SQLState class 08 is a connection failure: do not recycle this one
+                if (state != null && state.startsWith("08")) {
+                    entry.broken = true;
+                }
+            }
+            throw cause;
+        }
+    }
+
+    /**
+     * Wraps the JDBC objects a method returns so they lead back to the handle, not the physical connection
+     */
+    private Object wrap(PooledEntry entry, Object result, Method method, Object connection, Handle handle, Object parent) {
+        Class<?> type = method.getReturnType();
+        if (result == null) {
+            return null;
+        }
+        if (type == Connection.class) {
+            return connection;
+        }
+        if (type != CallableStatement.class && type != PreparedStatement.class && type != Statement.class
+                && type != ResultSet.class && type != DatabaseMetaData.class) {
+            return result;
+        }
+        if (result instanceof Statement || result instanceof ResultSet) {
+            entry.openChildren.add((AutoCloseable) result);
+        }
+        return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{type},
+                new Child(entry, result, connection, handle, parent));
+    }
+
+    /**
+     * Immutable snapshot of pool counters
+     */
+    public static class Stats {
+        private final int active;
+        private final int idle;
+        private final int maxSize;
+        private final long borrowCount;
+        private final long totalWaitMillis;
+        private final long maxWaitMillis;
+        private final long timeoutCount;
+        private final long leakCount;
+        private final long createdCount;
+        private final long destroyedCount;
+
+        public Stats(int active, int idle, int maxSize, long borrowCount, long totalWaitMillis,
+                     long maxWaitMillis, long timeoutCount, long leakCount, long createdCount, long destroyedCount) {
+            this.active = active;
+            this.idle = idle;
+            this.maxSize = maxSize;
+            this.borrowCount = borrowCount;
+            this.totalWaitMillis = totalWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+            this.timeoutCount = timeoutCount;
+            this.leakCount = leakCount;
+            this.createdCount = createdCount;
+            this.destroyedCount = destroyedCount;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public long getBorrowCount() {
+            return borrowCount;
+        }
+
+        public long getTotalWaitMillis() {
+            return totalWaitMillis;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public long getTimeoutCount() {
+            return timeoutCount;
+        }
+
+        public long getLeakCount() {
+            return leakCount;
+        }
+
+        public long getCreatedCount() {
+            return createdCount;
+        }
+
+        public long getDestroyedCount() {
+            return destroyedCount;
+        }
+
+        @Override
+        public String toString() {
+            return "active=" + active + ", idle=" + idle + ", max=" + maxSize
+                    + ", borrows=" + borrowCount + ", totalWait=" + totalWaitMillis + "ms"
+                    + ", maxWait=" + maxWaitMillis + "ms, timeouts=" + timeoutCount
+                    + ", leaks=" + leakCount + ", created=" + createdCount + ", destroyed=" + destroyedCount;
+        }
+    }
+}
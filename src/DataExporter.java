@@ -0,0 +1,266 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * Exports clients, formations and enrollment rosters to CSV or JSON Lines.
+ *
+ * Rows are streamed from a forward-only result set and written straight to a
+ * buffered file channel without building any list, so heap use stays flat
+ * whatever the size of the table. A cancelled or failed export cancels its
+ * query and deletes the partial file.
+ */
+public class DataExporter {
+
+    /**
+     * What can be exported
+     */
+    public enum Dataset {
+        CLIENTS("clients",
+                "SELECT id_client, nom, prenom, email, telephone, date_arrivee FROM client ORDER BY id_client",
+                "SELECT COUNT(*) FROM client"),
+        FORMATIONS("formations",
+                "SELECT id_formation, libele, description, date_debut, duree, tarif, capacite, nb_inscrits " +
+                        "FROM formation ORDER BY id_formation",
+                "SELECT COUNT(*) FROM formation"),
+        ENROLLMENTS("enrollments",
+                "SELECT f.id_formation, f.libele, f.date_debut, c.id_client, c.nom, c.prenom, c.email, c.telephone " +
+                        "FROM client_formation cf " +
+                        "JOIN client c ON c.id_client = cf.id_client " +
+                        "JOIN formation f ON f.id_formation = cf.id_formation " +
+                        "ORDER BY f.id_formation, c.nom, c.id_client",
+                "SELECT COUNT(*) FROM client_formation");
+
+        private final String fileName;
+        private final String query;
+        private final String countQuery;
+
+        Dataset(String fileName, String query, String countQuery) {
+            this.fileName = fileName;
+            this.query = query;
+            this.countQuery = countQuery;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+    }
+
+    /**
+     * Output formats
+     */
+    public enum Format {
+        CSV("csv"),
+        JSONL("jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Progress is reported every this many rows
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    /**
+     * Counts the rows of a dataset, to size a progress bar
+     *
+     * @param dataset the dataset
+     * @return the number of rows, or -1 if it could not be counted
+     */
+    public long countRows(Dataset dataset) {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(dataset.countQuery)) {
+            return rs.next() ? rs.getLong(1) : -1;
+        } catch (SQLException e) {
+            System.err.println("Error counting rows: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Exports a dataset to a file, replacing it if it exists
+     *
+     * @param dataset   the rows to export
+     * @param format    the file format
+     * @param target    the file to write
+     * @param progress  receives the number of rows written so far
+     * @param cancelled checked between rows; returning true stops the export
+     * @return the number of rows written
+     * @throws CancellationException if the export was cancelled
+     * @throws SQLException          if the query fails
+     * @throws IOException           if the file cannot be written
+     */
+    public long export(Dataset dataset, Format format, Path target, LongConsumer progress, BooleanSupplier cancelled)
+            throws SQLException, IOException {
+        boolean completed = false;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(dataset.query,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE),
+                     BUFFER_SIZE)) {
+
+            // Tells MySQL Connector/J to stream rows instead of buffering the whole result
+            stmt.setFetchSize(Integer.MIN_VALUE);
+
+            long rows = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columns = meta.getColumnCount();
+                String[] names = new String[columns];
+                boolean[] numeric = new boolean[columns];
+                for (int i = 0; i < columns; i++) {
+                    names[i] = meta.getColumnLabel(i + 1);
+                    numeric[i] = isNumeric(meta.getColumnType(i + 1));
+                }
+
+                if (format == Format.CSV) {
+                    writeCsvRow(out, names);
+                }
+                String[] values = new String[columns];
+                try {
+                    while (rs.next()) {
+                        if (cancelled.getAsBoolean()) {
+                            throw new CancellationException();
+                        }
+                        for (int i = 0; i < columns; i++) {
+                            values[i] = rs.getString(i + 1);
+                        }
+                        if (format == Format.CSV) {
+                            writeCsvRow(out, values);
+                        } else {
+                            writeJsonLine(out, names, values, numeric);
+                        }
+                        if (++rows % PROGRESS_INTERVAL == 0) {
+                            progress.accept(rows);
+                        }
+                    }
+                } catch (RuntimeException | IOException e) {
+                    // Stop the server before the result set is closed, or closing it streams the rest of the table
+                    DatabaseConnection.cancelQuietly(stmt);
+                    throw e;
+                }
+            }
+            progress.accept(rows);
+            completed = true;
+            return rows;
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(target);
+            }
+        }
+    }
+
+    static void writeCsvRow(Writer out, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            String value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                out.write('"');
+                out.write(value.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(value);
+            }
+        }
+        out.write("\r\n");
+    }
+
+    static void writeJsonLine(Writer out, String[] names, String[] values, boolean[] numeric) throws IOException {
+        out.write('{');
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeJsonString(out, names[i]);
+            out.write(':');
+            if (values[i] == null) {
+                out.write("null");
+            } else if (numeric[i]) {
+                out.write(values[i]);
+            } else {
+                writeJsonString(out, values[i]);
+            }
+        }
+        out.write("}\n");
+    }
+
+    private static void writeJsonString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    private static boolean isNumeric(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
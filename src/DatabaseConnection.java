@@ -0,0 +1,90 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Entry point for database access.
+ *
+ * Connections come from a shared ConnectionPool, so DAOs can keep opening and
+ * closing a connection per statement without paying a MySQL handshake each time.
+ * Settings are read from system properties (-Ddb.url=..., -Ddb.pool.maxSize=...).
+ * The default URL lets the driver send JDBC batches as multi-row INSERTs.
+ * Connections are wrapped by InstrumentedJdbc to feed the SlowQueryLog unless
+ * -Ddb.instrument=false.
+ */
+public class DatabaseConnection {
+
+    private static final String URL = System.getProperty("db.url",
+            "jdbc:mysql://localhost:3306/formation_center?rewriteBatchedStatements=true");
+    private static final String USER = System.getProperty("db.user", "root");
+    private static final String PASSWORD = System.getProperty("db.password", "");
+    private static final boolean INSTRUMENT = Boolean.parseBoolean(System.getProperty("db.instrument", "true"));
+
+    private static volatile ConnectionPool pool;
+
+    private DatabaseConnection() {
+    }
+
+    /**
+     * Borrows a connection from the pool
+     *
+     * @return a pooled connection; close it to give it back
+     * @throws SQLException if no connection is available within the borrow timeout
+     */
+    public static Connection getConnection() throws SQLException {
+        Connection connection = getPool().getConnection();
+        return INSTRUMENT ? InstrumentedJdbc.wrap(connection) : connection;
+    }
+
+    /**
+     * Gets the current pool counters (active/idle connections, wait time, leaks...)
+     *
+     * @return the pool statistics
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    /**
+     * Stops the query of a statement on the server. Closing a streaming result set
+     * reads every remaining row, so a reader that gives up early cancels first.
+     *
+     * @param stmt the statement whose query is running
+     */
+    public static void cancelQuietly(Statement stmt) {
+        try {
+            stmt.cancel();
+        } catch (SQLException e) {
+            System.err.println("Error cancelling query: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes all idle connections. Called when the application exits.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    private static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseConnection.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ConnectionPool(URL, USER, PASSWORD,
+                            Integer.getInteger("db.pool.minIdle", 2),
+                            Integer.getInteger("db.pool.maxSize", 10),
+                            Long.getLong("db.pool.borrowTimeoutMs", 5_000L),
+                            Long.getLong("db.pool.idleTimeoutMs", 300_000L),
+                            Long.getLong("db.pool.leakThresholdMs", 60_000L));
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,47 @@
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rows of a table changed since a watermark, read from the change log.
+ *
+ * Changed rows are given in their current state, whether they were inserted or
+ * updated, so applying the same delta twice is harmless. Rows deleted since the
+ * watermark are given by key only.
+ *
+ * @param <K> the key of the rows
+ * @param <T> the type of the rows
+ */
+public class Delta<K, T> {
+    private final Map<K, T> changed;
+    private final Set<K> deleted;
+    private final long watermark;
+
+    public Delta(Map<K, T> changed, Set<K> deleted, long watermark) {
+        this.changed = Collections.unmodifiableMap(changed);
+        this.deleted = Collections.unmodifiableSet(deleted);
+        this.watermark = watermark;
+    }
+
+    /**
+     * Gets the inserted or updated rows by key
+     */
+    public Map<K, T> getChanged() {
+        return changed;
+    }
+
+    public Set<K> getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * Gets the watermark to ask the next delta from
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    public boolean isEmpty() {
+        return changed.isEmpty() && deleted.isEmpty();
+    }
+}
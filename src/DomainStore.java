@@ -0,0 +1,529 @@
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide copy of the clients, formations and enrollments shown by the panels.
+ *
+ * Each list is loaded once, when a panel first asks for it, and every panel
+ * displays the same objects. The store then keeps them current from the change
+ * log: refresh reads the rows changed since the store's watermarks, with one
+ * query per list however many panels are open, and publishes the deltas to the
+ * listeners. Mutations go through the store, which writes them on a SwingWorker
+ * and refreshes once they are committed.
+ *
+ * Panels subscribe while they are displayed (addNotify/removeNotify). The paged
+ * client table does not need every client in memory; it only subscribes to the
+ * client changes, from the watermark of its own load. Loads, refreshes and
+ * writes are given the requesting panel's name, under which they are timed in
+ * the MetricsRegistry and their slow queries are logged. All methods must be
+ * called on the EDT.
+ */
+public final class DomainStore {
+
+    /**
+     * Receives the store's events. Every method is called on the EDT.
+     * A new listener is first sent the lists already loaded.
+     */
+    public interface Listener {
+        default void clientsLoaded(List<Client> clients) {
+        }
+
+        default void clientsChanged(Delta<Integer, Client> delta) {
+        }
+
+        default void formationsLoaded(List<Formation> formations) {
+        }
+
+        default void formationsChanged(Delta<Integer, Formation> delta) {
+        }
+
+        /**
+         * Called with the enrollment counts of the formations, after they changed
+         */
+        default void enrollmentCountsChanged() {
+        }
+
+        default void enrollmentsLoaded(EnrollmentSnapshot snapshot) {
+        }
+
+        /**
+         * Called with the snapshot with the delta applied, and the delta for in-place updates
+         */
+        default void enrollmentsChanged(EnrollmentSnapshot snapshot, Delta<Long, EnrollmentView> delta) {
+        }
+
+        /**
+         * Called when the store starts or stops loading or refreshing
+         */
+        default void loadingChanged(boolean loading) {
+        }
+
+        default void loadFailed(Exception e) {
+        }
+    }
+
+    private static final DomainStore INSTANCE = new DomainStore();
+
+    private final ClientDAO clientDAO = new ClientDAO();
+    private final FormationDAO formationDAO = new FormationDAO();
+    private final EnrollmentDAO enrollmentDAO = new EnrollmentDAO();
+    private final ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+
+    // Each load is named after the panel that requested it
+    private final BackgroundLoader<Client> clientLoader = new BackgroundLoader<>("DomainStore.clients");
+    private final BackgroundLoader<Formation> formationLoader = new BackgroundLoader<>("DomainStore.formations");
+    private final BackgroundLoader<EnrollmentView> enrollmentLoader = new BackgroundLoader<>("DomainStore.enrollments");
+    // Reads the deltas of every tracked list and hands back a task applying them on the EDT
+    private final BackgroundLoader<Runnable> changeLoader = new BackgroundLoader<>("DomainStore.changes");
+
+    private final List<Listener> listeners = new ArrayList<>();
+
+    // Null until loaded
+    private Map<Integer, Client> clients;
+    private Map<Integer, Formation> formations;
+    private Map<Integer, Integer> enrollmentCounts;
+    private EnrollmentSnapshot enrollments;
+
+    // Change log position each list is up to date with, -1 while it is not tracked.
+    // The enrollment changes are tracked for the counts as soon as the formations are loaded.
+    private long clientWatermark = -1;
+    private long formationWatermark = -1;
+    private long enrollmentWatermark = -1;
+
+    private DomainStore() {
+    }
+
+    public static DomainStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribes a listener and sends it the lists already loaded
+     *
+     * @param listener the listener, usually added in a panel's addNotify
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        listener.loadingChanged(isLoading());
+        if (clients != null) {
+            listener.clientsLoaded(getClients());
+        }
+        if (formations != null) {
+            listener.formationsLoaded(getFormations());
+        }
+        if (enrollments != null) {
+            listener.enrollmentsLoaded(enrollments);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean isLoading() {
+        return clientLoader.isLoading() || formationLoader.isLoading()
+                || enrollmentLoader.isLoading() || changeLoader.isLoading();
+    }
+
+    /**
+     * Gets every client, in name order; clients added since the load come last
+     *
+     * @return the clients, or null if they are not loaded yet
+     */
+    public List<Client> getClients() {
+        return clients == null ? null : Collections.unmodifiableList(new ArrayList<>(clients.values()));
+    }
+
+    /**
+     * Gets every formation, in start date order
+     *
+     * @return the formations, or null if they are not loaded yet
+     */
+    public List<Formation> getFormations() {
+        return formations == null ? null : Collections.unmodifiableList(new ArrayList<>(formations.values()));
+    }
+
+    /**
+     * Gets every enrollment row
+     *
+     * @return the snapshot, or null if it is not loaded yet
+     */
+    public EnrollmentSnapshot getEnrollments() {
+        return enrollments;
+    }
+
+    /**
+     * Gets the enrollment count of a formation, loaded with the formations
+     */
+    public int getEnrollmentCount(int formationId) {
+        return enrollmentCounts == null ? 0 : enrollmentCounts.getOrDefault(formationId, 0);
+    }
+
+    /**
+     * Checks if a formation has space left, from the loaded counts
+     */
+    public boolean isFormationAvailable(Formation formation) {
+        return formationDAO.isFormationAvailable(formation, getEnrollmentCount(formation.getFormationId()));
+    }
+
+    /**
+     * Loads every client unless they are loaded or loading; listeners receive clientsLoaded
+     *
+     * @param panel the requesting panel, as "EnrollmentManagementPanel"
+     */
+    public void loadClients(String panel) {
+        if (clients != null || clientLoader.isLoading()) {
+            return;
+        }
+        Map<Integer, Client> loaded = new LinkedHashMap<>();
+        AtomicLong loadWatermark = new AtomicLong(-1);
+        clientLoader.load(panel + ".clients", sink -> {
+            // Taken before the rows are read: changes made meanwhile or still committing come again with the next delta
+            loadWatermark.set(changeLogDAO.getWatermark());
+            clientDAO.getAllClients().forEach(sink);
+        }, new Loader<Client>() {
+            @Override
+            public void rowsLoaded(List<Client> rows) {
+                for (Client client : rows) {
+                    loaded.put(client.getClientId(), client);
+                }
+            }
+
+            @Override
+            public void loadFinished() {
+                clients = loaded;
+                clientWatermark = lower(clientWatermark, loadWatermark.get());
+                List<Client> list = getClients();
+                for (Listener listener : new ArrayList<>(listeners)) {
+                    listener.clientsLoaded(list);
+                }
+                super.loadFinished();
+            }
+        });
+    }
+
+    /**
+     * Loads every formation and their enrollment counts unless they are loaded
+     * or loading; listeners receive formationsLoaded
+     *
+     * @param panel the requesting panel, as "FormationManagementPanel"
+     */
+    public void loadFormations(String panel) {
+        if (formations != null || formationLoader.isLoading()) {
+            return;
+        }
+        Map<Integer, Formation> loaded = new LinkedHashMap<>();
+        AtomicLong loadWatermark = new AtomicLong(-1);
+        AtomicReference<Map<Integer, Integer>> counts = new AtomicReference<>();
+        formationLoader.load(panel + ".formations", sink -> {
+            loadWatermark.set(changeLogDAO.getWatermark());
+            counts.set(formationDAO.getEnrollmentCounts());
+            formationDAO.getAllFormations().forEach(sink);
+        }, new Loader<Formation>() {
+            @Override
+            public void rowsLoaded(List<Formation> rows) {
+                for (Formation formation : rows) {
+                    loaded.put(formation.getFormationId(), formation);
+                }
+            }
+
+            @Override
+            public void loadFinished() {
+                formations = loaded;
+                enrollmentCounts = counts.get();
+                formationWatermark = lower(formationWatermark, loadWatermark.get());
+                enrollmentWatermark = lower(enrollmentWatermark, loadWatermark.get());
+                List<Formation> list = getFormations();
+                for (Listener listener : new ArrayList<>(listeners)) {
+                    listener.formationsLoaded(list);
+                }
+                super.loadFinished();
+            }
+        });
+    }
+
+    /**
+     * Loads every enrollment row unless they are loaded or loading; listeners receive enrollmentsLoaded
+     *
+     * @param panel the requesting panel, as "EnrollmentManagementPanel"
+     */
+    public void loadEnrollments(String panel) {
+        if (enrollments != null || enrollmentLoader.isLoading()) {
+            return;
+        }
+        List<EnrollmentView> rows = new ArrayList<>();
+        AtomicLong loadWatermark = new AtomicLong(-1);
+        enrollmentLoader.load(panel + ".enrollments", sink -> {
+            loadWatermark.set(changeLogDAO.getWatermark());
+            enrollmentDAO.forEachEnrollmentView(sink);
+        }, new Loader<EnrollmentView>() {
+            @Override
+            public void rowsLoaded(List<EnrollmentView> views) {
+                rows.addAll(views);
+            }
+
+            @Override
+            public void loadFinished() {
+                enrollments = new EnrollmentSnapshot(rows);
+                enrollmentWatermark = lower(enrollmentWatermark, loadWatermark.get());
+                for (Listener listener : new ArrayList<>(listeners)) {
+                    listener.enrollmentsLoaded(enrollments);
+                }
+                super.loadFinished();
+            }
+        });
+    }
+
+    /**
+     * Makes the client deltas start at a watermark at the latest, for a listener
+     * that loaded clients itself
+     *
+     * @param watermark the watermark taken before the listener read its rows
+     */
+    public void requireClientChanges(long watermark) {
+        clientWatermark = lower(clientWatermark, watermark);
+    }
+
+    /**
+     * Reads the changes of every tracked list in the background and publishes them.
+     * A refresh still running is superseded.
+     *
+     * @param panel the requesting panel, as "FormationViewPanel"
+     */
+    public void refresh(String panel) {
+        long clientsFrom = clientWatermark;
+        long formationsFrom = formationWatermark;
+        long enrollmentsFrom = enrollmentWatermark;
+        if (clientsFrom < 0 && formationsFrom < 0 && enrollmentsFrom < 0) {
+            return;
+        }
+        boolean counts = enrollmentCounts != null;
+
+        changeLoader.load(panel + ".changes", sink -> {
+            Delta<Integer, Client> clientDelta = clientsFrom >= 0 ? clientDAO.getClientChanges(clientsFrom) : null;
+            Delta<Integer, Formation> formationDelta = formationsFrom >= 0
+                    ? formationDAO.getFormationChanges(formationsFrom) : null;
+            Delta<Long, EnrollmentView> enrollmentDelta = enrollmentsFrom >= 0
+                    ? enrollmentDAO.getEnrollmentViewChanges(enrollmentsFrom) : null;
+            // One GROUP BY query rather than counting from rows that may not be loaded
+            Map<Integer, Integer> newCounts = counts && enrollmentDelta != null && !enrollmentDelta.isEmpty()
+                    ? formationDAO.getEnrollmentCounts() : null;
+            sink.accept(() -> {
+                applyClientChanges(clientsFrom, clientDelta);
+                applyFormationChanges(formationsFrom, formationDelta);
+                applyEnrollmentChanges(enrollmentsFrom, enrollmentDelta, newCounts);
+            });
+        }, new Loader<Runnable>() {
+            @Override
+            public void rowsLoaded(List<Runnable> tasks) {
+                tasks.forEach(Runnable::run);
+            }
+        });
+    }
+
+    private void applyClientChanges(long from, Delta<Integer, Client> delta) {
+        if (delta == null) {
+            return;
+        }
+        clientWatermark = advance(clientWatermark, from, delta.getWatermark());
+        if (delta.isEmpty()) {
+            return;
+        }
+        if (clients != null) {
+            applyChanges(clients, delta);
+        }
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.clientsChanged(delta);
+        }
+    }
+
+    private void applyFormationChanges(long from, Delta<Integer, Formation> delta) {
+        if (delta == null) {
+            return;
+        }
+        formationWatermark = advance(formationWatermark, from, delta.getWatermark());
+        if (delta.isEmpty() || formations == null) {
+            return;
+        }
+        applyChanges(formations, delta);
+        // Few rows: sorted again so a new or moved formation takes its place by start date
+        List<Formation> sorted = new ArrayList<>(formations.values());
+        sorted.sort(Comparator.comparing(Formation::getStartDate, Comparator.nullsFirst(Comparator.naturalOrder())));
+        formations = new LinkedHashMap<>();
+        for (Formation formation : sorted) {
+            formations.put(formation.getFormationId(), formation);
+        }
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.formationsChanged(delta);
+        }
+    }
+
+    private void applyEnrollmentChanges(long from, Delta<Long, EnrollmentView> delta, Map<Integer, Integer> counts) {
+        if (delta == null) {
+            return;
+        }
+        enrollmentWatermark = advance(enrollmentWatermark, from, delta.getWatermark());
+        if (counts != null && enrollmentCounts != null) {
+            enrollmentCounts = counts;
+            for (Listener listener : new ArrayList<>(listeners)) {
+                listener.enrollmentCountsChanged();
+            }
+        }
+        if (delta.isEmpty() || enrollments == null) {
+            return;
+        }
+        enrollments = enrollments.withChanges(delta);
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.enrollmentsChanged(enrollments, delta);
+        }
+    }
+
+    /**
+     * Replaces and removes the changed entries in place and appends the new ones
+     */
+    static <K, T> void applyChanges(Map<K, T> entries, Delta<K, T> delta) {
+        for (K key : delta.getDeleted()) {
+            entries.remove(key);
+        }
+        entries.putAll(delta.getChanged());
+    }
+
+    /**
+     * Gets the watermark after a delta read from one. A load or listener that
+     * lowered it meanwhile keeps the lower value.
+     */
+    static long advance(long current, long from, long next) {
+        return current == from ? next : lower(current, next);
+    }
+
+    /**
+     * Gets the lower of two watermarks, -1 standing for none
+     */
+    static long lower(long current, long watermark) {
+        if (watermark < 0) {
+            return current;
+        }
+        return current < 0 ? watermark : Math.min(current, watermark);
+    }
+
+    // Mutations: each one is written through its DAO on a SwingWorker, then every list is refreshed.
+    // The panel argument names the requesting panel, as "ClientManagementPanel"; done receives
+    // the DAO's result on the EDT.
+
+    public void createClient(Client client, String panel, Consumer<Client> done) {
+        write(panel, "createClient", () -> clientDAO.createClient(client), null, Objects::nonNull, done);
+    }
+
+    public void updateClient(Client client, String panel, Consumer<Boolean> done) {
+        write(panel, "updateClient", () -> clientDAO.updateClient(client), false, Boolean::booleanValue, done);
+    }
+
+    public void insertFormation(Formation formation, String panel, Consumer<Boolean> done) {
+        write(panel, "insertFormation", () -> formationDAO.insertFormation(formation), false,
+                Boolean::booleanValue, done);
+    }
+
+    public void updateFormation(Formation formation, String panel, Consumer<Boolean> done) {
+        write(panel, "updateFormation", () -> formationDAO.updateFormation(formation), false,
+                Boolean::booleanValue, done);
+    }
+
+    public void deleteFormation(int formationId, String panel, Consumer<Boolean> done) {
+        write(panel, "deleteFormation", () -> formationDAO.deleteFormation(formationId), false,
+                Boolean::booleanValue, done);
+    }
+
+    public void enroll(int clientId, int formationId, String panel, Consumer<EnrollmentDAO.EnrollResult> done) {
+        write(panel, "enroll", () -> enrollmentDAO.enroll(clientId, formationId), EnrollmentDAO.EnrollResult.FAILED,
+                result -> result == EnrollmentDAO.EnrollResult.CREATED, done);
+    }
+
+    public void deleteEnrollment(int clientId, int formationId, String panel, Consumer<Boolean> done) {
+        write(panel, "deleteEnrollment", () -> enrollmentDAO.deleteEnrollment(clientId, formationId), false,
+                Boolean::booleanValue, done);
+    }
+
+    /**
+     * Runs a DAO write off the EDT, then refreshes every list if it changed something
+     *
+     * @param panel    the requesting panel
+     * @param mutation the store method, logged with the panel as origin of its slow queries
+     * @param write    the DAO call
+     * @param failed   the result reported if the DAO call throws
+     * @param changed  tells if a result changed the database
+     * @param done     receives the result on the EDT, before the refresh completes
+     */
+    private <R> void write(String panel, String mutation, Supplier<R> write, R failed, Predicate<R> changed,
+                           Consumer<R> done) {
+        new SwingWorker<R, Void>() {
+            @Override
+            protected R doInBackground() {
+                SlowQueryLog.setOrigin(panel + "." + mutation);
+                try {
+                    return write.get();
+                } finally {
+                    SlowQueryLog.setOrigin(null);
+                }
+            }
+
+            @Override
+            protected void done() {
+                R result = failed;
+                try {
+                    result = get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    System.err.println("Error saving data: " + e.getCause().getMessage());
+                }
+                if (changed.test(result)) {
+                    refresh(panel);
+                }
+                done.accept(result);
+            }
+        }.execute();
+    }
+
+    /**
+     * Reports the loading state and failures of the store's loaders to the listeners
+     */
+    private abstract class Loader<T> implements BackgroundLoader.Listener<T> {
+        @Override
+        public void loadStarted() {
+            fireLoadingChanged();
+        }
+
+        @Override
+        public void loadFinished() {
+            fireLoadingChanged();
+        }
+
+        @Override
+        public void loadFailed(Exception e) {
+            System.err.println("Error loading data: " + e.getMessage());
+            for (Listener listener : new ArrayList<>(listeners)) {
+                listener.loadFailed(e);
+            }
+            fireLoadingChanged();
+        }
+
+        private void fireLoadingChanged() {
+            boolean loading = isLoading();
+            for (Listener listener : new ArrayList<>(listeners)) {
+                listener.loadingChanged(loading);
+            }
+        }
+    }
+}
@@ -1,153 +1,475 @@
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public class EnrollmentDAO {
-    private ClientDAO clientDAO = new ClientDAO();
-    private FormationDAO formationDAO = new FormationDAO();
+    // Enrollment rows joined with their client and formation columns
+    private static final String ENROLLMENT_SELECT =
+            "SELECT c.id_client, c.nom, c.prenom, c.email, c.telephone, c.date_arrivee, " +
+                    "f.id_formation, f.libele, f.description, f.date_debut, f.duree, f.tarif, f.capacite " +
+                    "FROM client_formation cf " +
+                    "JOIN client c ON c.id_client = cf.id_client " +
+                    "JOIN formation f ON f.id_formation = cf.id_formation";
 
+    // Columns of the enrollment table rows
+    private static final String VIEW_SELECT =
+            "SELECT cf.id_client, cf.id_formation, CONCAT_WS(' ', c.prenom, c.nom) AS client_name, " +
+                    "f.libele, f.duree, f.tarif " +
+                    "FROM client_formation cf " +
+                    "JOIN client c ON c.id_client = cf.id_client " +
+                    "JOIN formation f ON f.id_formation = cf.id_formation";
+
+    // Maximum number of ids bound in one IN (...) list
+    static final int IN_LIST_CHUNK = 500;
+
+    // Attempts for a transaction chosen as a deadlock victim
+    static final int MAX_ATTEMPTS = 3;
+
+    private static final MetricsRegistry.Timer ENROLL = MetricsRegistry.daoTimer("EnrollmentDAO.enroll");
+    private static final MetricsRegistry.Timer DELETE_ENROLLMENT = MetricsRegistry.daoTimer("EnrollmentDAO.deleteEnrollment");
+    private static final MetricsRegistry.Timer GET_BY_CLIENTS = MetricsRegistry.daoTimer("EnrollmentDAO.getEnrollmentsByClients");
+    private static final MetricsRegistry.Timer GET_BY_FORMATIONS = MetricsRegistry.daoTimer("EnrollmentDAO.getEnrollmentsByFormations");
+    private static final MetricsRegistry.Timer IS_CLIENT_ENROLLED = MetricsRegistry.daoTimer("EnrollmentDAO.isClientEnrolled");
+    private static final MetricsRegistry.Timer GET_ALL_ENROLLMENTS = MetricsRegistry.daoTimer("EnrollmentDAO.getAllEnrollments");
+    private static final MetricsRegistry.Timer FOR_EACH_ENROLLMENT_VIEW = MetricsRegistry.daoTimer("EnrollmentDAO.forEachEnrollmentView");
+    private static final MetricsRegistry.Timer GET_ENROLLMENT_VIEW_CHANGES = MetricsRegistry.daoTimer("EnrollmentDAO.getEnrollmentViewChanges");
+
+    /**
+     * Outcome of an enrollment request
+     */
+    public enum EnrollResult {
+        CREATED,
+        ALREADY_ENROLLED,
+        FULL,
+        FAILED
+    }
+
+    /**
+     * Enrolls a client if the formation still has a free seat.
+     *
+     * @param enrollment the enrollment to create
+     * @return true if the client was enrolled, false if already enrolled, full or an error occurred
+     */
     public boolean createEnrollment(Enrollment enrollment) {
-        String query = "INSERT INTO client_formation (id_client, id_formation) VALUES (?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setInt(1, enrollment.getClientId());
-            stmt.setInt(2, enrollment.getFormationId());
-            return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Error creating enrollment: " + e.getMessage());
-            return false;
-        }
+        return enroll(enrollment.getClientId(), enrollment.getFormationId()) == EnrollResult.CREATED;
     }
 
-    public boolean deleteEnrollment(int clientId, int formationId) {
-        String query = "DELETE FROM client_formation WHERE id_client = ? AND id_formation = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setInt(1, clientId);
-            stmt.setInt(2, formationId);
-            return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Error deleting enrollment: " + e.getMessage());
-            return false;
+    /**
+     * Enrolls a client, idempotently.
+     *
+     * The seat is reserved with a conditional UPDATE of the formation's nb_inscrits
+     * counter, which only locks that formation's row, and the enrollment row is
+     * inserted in the same transaction. The primary key on (id_client, id_formation)
+     * rejects the insert of an existing enrollment as a duplicate key, in which case
+     * the seat is released again; any other error fails the enrollment. Two desks enrolling the same client
+     * at the same moment therefore get one CREATED and one ALREADY_ENROLLED, and
+     * concurrent enrollments cannot overbook a session.
+     *
+     * @param clientId    the client to enroll
+     * @param formationId the formation
+     * @return what happened
+     */
+    public EnrollResult enroll(int clientId, int formationId) {
+        try (MetricsRegistry.Sample sample = ENROLL.start()) {
+            EnrollResult result = enrollWithRetry(clientId, formationId);
+            if (result == EnrollResult.CREATED) {
+                sample.setRows(1);
+            } else if (result == EnrollResult.FAILED) {
+                ENROLL.recordError();
+            }
+            return result;
         }
     }
 
-    public List<Enrollment> getEnrollmentsByClient(int clientId) {
-        List<Enrollment> enrollments = new ArrayList<>();
-        String query = "SELECT * FROM client_formation WHERE id_client = ?";
+    private EnrollResult enrollWithRetry(int clientId, int formationId) {
+        String reserveSeat = "UPDATE formation SET nb_inscrits = nb_inscrits + 1 " +
+                "WHERE id_formation = ? AND nb_inscrits < capacite";
+        String insert = "INSERT INTO client_formation (id_client, id_formation) VALUES (?, ?)";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement reserveStmt = conn.prepareStatement(reserveSeat);
+                     PreparedStatement insertStmt = conn.prepareStatement(insert)) {
 
-            stmt.setInt(1, clientId);
+                    reserveStmt.setInt(1, formationId);
+                    if (reserveStmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        // Only a full formation takes this extra lookup
+                        return isClientEnrolled(clientId, formationId) ? EnrollResult.ALREADY_ENROLLED : EnrollResult.FULL;
+                    }
 
-            // First get all enrollment records
-            List<Integer> formationIds = new ArrayList<>();
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    formationIds.add(rs.getInt("id_formation"));
-                }
-            }
+                    insertStmt.setInt(1, clientId);
+                    insertStmt.setInt(2, formationId);
+                    try {
+                        insertStmt.executeUpdate();
+                    } catch (SQLException e) {
+                        if (!isDuplicateKey(e)) {
+                            throw e;
+                        }
+                        conn.rollback();
+                        return EnrollResult.ALREADY_ENROLLED;
+                    }
 
-            // Then get client and formations data
-            Client client = clientDAO.getClientById(clientId);
-            for (Integer formationId : formationIds) {
-                Formation formation = formationDAO.getFormationById(formationId);
-                if (formation != null && client != null) {
-                    Enrollment enrollment = new Enrollment(0, clientId, formationId, null, null);
-                    enrollment.setClient(client);
-                    enrollment.setFormation(formation);
-                    enrollments.add(enrollment); // THIS WAS MISSING!
+                    conn.commit();
+                    return EnrollResult.CREATED;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                if (isRetryable(e) && attempt < MAX_ATTEMPTS) {
+                    continue;
                 }
+                System.err.println("Error creating enrollment: " + e.getMessage());
+                return EnrollResult.FAILED;
             }
+        }
+    }
 
-        } catch (SQLException e) {
-            System.err.println("Error getting client enrollments: " + e.getMessage());
-            e.printStackTrace();
+    /**
+     * Removes an enrollment and frees its seat in the same transaction.
+     * Locks are taken in the same order as createEnrollment (formation row first).
+     */
+    public boolean deleteEnrollment(int clientId, int formationId) {
+        try (MetricsRegistry.Sample sample = DELETE_ENROLLMENT.start()) {
+            boolean deleted = deleteEnrollmentWithRetry(clientId, formationId);
+            sample.setRows(deleted ? 1 : 0);
+            return deleted;
         }
-        return enrollments;
     }
 
-    public List<Enrollment> getEnrollmentsByFormation(int formationId) {
-        List<Enrollment> enrollments = new ArrayList<>();
-        String query = "SELECT * FROM client_formation WHERE id_formation = ?";
+    private boolean deleteEnrollmentWithRetry(int clientId, int formationId) {
+        String releaseSeat = "UPDATE formation SET nb_inscrits = nb_inscrits - 1 " +
+                "WHERE id_formation = ? AND nb_inscrits > 0";
+        String delete = "DELETE FROM client_formation WHERE id_client = ? AND id_formation = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement releaseStmt = conn.prepareStatement(releaseSeat);
+                     PreparedStatement deleteStmt = conn.prepareStatement(delete)) {
 
-            stmt.setInt(1, formationId);
+                    releaseStmt.setInt(1, formationId);
+                    releaseStmt.executeUpdate();
 
-            // First get all enrollment records
-            List<Integer> clientIds = new ArrayList<>();
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    clientIds.add(rs.getInt("id_client"));
+                    deleteStmt.setInt(1, clientId);
+                    deleteStmt.setInt(2, formationId);
+                    if (deleteStmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        return false;
+                    }
+
+                    conn.commit();
+                    return true;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
                 }
+            } catch (SQLException e) {
+                if (isRetryable(e) && attempt < MAX_ATTEMPTS) {
+                    continue;
+                }
+                DELETE_ENROLLMENT.recordError();
+                System.err.println("Error deleting enrollment: " + e.getMessage());
+                return false;
             }
+        }
+    }
+
+    /**
+     * Tells if an insert failed because the row already exists (ER_DUP_ENTRY)
+     */
+    static boolean isDuplicateKey(SQLException e) {
+        return e.getErrorCode() == 1062;
+    }
+
+    /**
+     * Deadlocks and lock wait timeouts roll the transaction back and can simply be retried
+     */
+    static boolean isRetryable(SQLException e) {
+        return "40001".equals(e.getSQLState()) || e.getErrorCode() == 1213 || e.getErrorCode() == 1205;
+    }
+
+    public List<Enrollment> getEnrollmentsByClient(int clientId) {
+        return getEnrollmentsByClients(Collections.singletonList(clientId)).get(clientId);
+    }
+
+    public List<Enrollment> getEnrollmentsByFormation(int formationId) {
+        return getEnrollmentsByFormations(Collections.singletonList(formationId)).get(formationId);
+    }
+
+    /**
+     * Gets the enrollments of several clients in ceil(n / IN_LIST_CHUNK) queries
+     *
+     * @param clientIds the client IDs
+     * @return a map from every requested client ID to its enrollments (possibly empty)
+     */
+    public Map<Integer, List<Enrollment>> getEnrollmentsByClients(Collection<Integer> clientIds) {
+        return getEnrollmentsGroupedBy("cf.id_client", clientIds, true);
+    }
+
+    /**
+     * Gets the enrollments of several formations in ceil(n / IN_LIST_CHUNK) queries
+     *
+     * @param formationIds the formation IDs
+     * @return a map from every requested formation ID to its enrollments (possibly empty)
+     */
+    public Map<Integer, List<Enrollment>> getEnrollmentsByFormations(Collection<Integer> formationIds) {
+        return getEnrollmentsGroupedBy("cf.id_formation", formationIds, false);
+    }
 
-            // Then get formation and clients data
-            Formation formation = formationDAO.getFormationById(formationId);
-            for (Integer clientId : clientIds) {
-                Client client = clientDAO.getClientById(clientId);
-                if (client != null && formation != null) {
-                    Enrollment enrollment = new Enrollment(0, clientId, formationId, null, null);
-                    enrollment.setClient(client);
-                    enrollment.setFormation(formation);
-                    enrollments.add(enrollment); // Make sure this is added!
+    private Map<Integer, List<Enrollment>> getEnrollmentsGroupedBy(String column, Collection<Integer> ids,
+                                                                   boolean byClient) {
+        Map<Integer, List<Enrollment>> result = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            result.put(id, new ArrayList<>());
+        }
+        if (result.isEmpty()) {
+            return result;
+        }
+
+        List<Integer> distinctIds = new ArrayList<>(result.keySet());
+        Map<Integer, Client> clients = new HashMap<>();
+        Map<Integer, Formation> formations = new HashMap<>();
+        MetricsRegistry.Timer timer = byClient ? GET_BY_CLIENTS : GET_BY_FORMATIONS;
+
+        try (MetricsRegistry.Sample sample = timer.start();
+             Connection conn = DatabaseConnection.getConnection()) {
+            for (int from = 0; from < distinctIds.size(); from += IN_LIST_CHUNK) {
+                List<Integer> chunk = distinctIds.subList(from, Math.min(from + IN_LIST_CHUNK, distinctIds.size()));
+                String query = ENROLLMENT_SELECT + " WHERE " + column + " IN (" + placeholders(chunk.size()) + ")";
+
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Enrollment enrollment = mapEnrollment(rs, clients, formations);
+                            int key = byClient ? enrollment.getClientId() : enrollment.getFormationId();
+                            result.get(key).add(enrollment);
+                            sample.addRow();
+                        }
+                    }
                 }
             }
-
         } catch (SQLException e) {
-            System.err.println("Error getting formation enrollments: " + e.getMessage());
+            timer.recordError();
+            System.err.println("Error getting enrollments by " + column + ": " + e.getMessage());
             e.printStackTrace();
         }
-        return enrollments;
+        return result;
+    }
+
+    static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ",?");
+        }
+        return sb.toString();
     }
 
     public boolean isClientEnrolled(int clientId, int formationId) {
         String query = "SELECT COUNT(*) FROM client_formation WHERE id_client = ? AND id_formation = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (MetricsRegistry.Sample sample = IS_CLIENT_ENROLLED.start();
+             Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, clientId);
             stmt.setInt(2, formationId);
             try (ResultSet rs = stmt.executeQuery()) {
-                return rs.next() && rs.getInt(1) > 0;
+                if (rs.next()) {
+                    sample.addRow();
+                    return rs.getInt(1) > 0;
+                }
             }
+            return false;
         } catch (SQLException e) {
+            IS_CLIENT_ENROLLED.recordError();
             System.err.println("Error checking enrollment: " + e.getMessage());
             return false;
         }
     }
 
-    // Alternative more efficient method to get all enrollments
+    /**
+     * Gets all enrollments with their client and formation in a single query.
+     * Rows are streamed from the server, and a client or formation that appears
+     * in several enrollments is shared by all of them.
+     *
+     * @return List of Enrollment objects
+     */
     public List<Enrollment> getAllEnrollments() {
         List<Enrollment> enrollments = new ArrayList<>();
-        String query = "SELECT * FROM client_formation";
+        Map<Integer, Client> clients = new HashMap<>();
+        Map<Integer, Formation> formations = new HashMap<>();
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (MetricsRegistry.Sample sample = GET_ALL_ENROLLMENTS.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(ENROLLMENT_SELECT,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            // Tells MySQL Connector/J to stream rows instead of buffering the whole result
+            stmt.setFetchSize(Integer.MIN_VALUE);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    int clientId = rs.getInt("id_client");
-                    int formationId = rs.getInt("id_formation");
-
-                    Client client = clientDAO.getClientById(clientId);
-                    Formation formation = formationDAO.getFormationById(formationId);
-
-                    if (client != null && formation != null) {
-                        Enrollment enrollment = new Enrollment(0, clientId, formationId, null, null);
-                        enrollment.setClient(client);
-                        enrollment.setFormation(formation);
-                        enrollments.add(enrollment);
-                    }
+                    enrollments.add(mapEnrollment(rs, clients, formations));
                 }
             }
+            sample.setRows(enrollments.size());
 
         } catch (SQLException e) {
+            GET_ALL_ENROLLMENTS.recordError();
             System.err.println("Error getting all enrollments: " + e.getMessage());
             e.printStackTrace();
         }
         return enrollments;
     }
-}
\ No newline at end of file
+
+    /**
+     * Streams the rows shown in the enrollment table, ordered by client name.
+     * Only the displayed columns and the two ids are selected; no Client/Formation
+     * objects are built.
+     *
+     * @param consumer receives each row as soon as it is read; it may throw to stop
+     *                 reading, which cancels the query on the server
+     */
+    public void forEachEnrollmentView(Consumer<EnrollmentView> consumer) {
+        String query = VIEW_SELECT + " ORDER BY c.nom, c.id_client, f.libele";
+
+        try (MetricsRegistry.Sample sample = FOR_EACH_ENROLLMENT_VIEW.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            stmt.setFetchSize(Integer.MIN_VALUE);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                try {
+                    while (rs.next()) {
+                        sample.addRow();
+                        consumer.accept(mapView(rs));
+                    }
+                } catch (RuntimeException e) {
+                    // The consumer stopped reading; closing the streaming result set would read every remaining row
+                    DatabaseConnection.cancelQuietly(stmt);
+                    throw e;
+                }
+            }
+        } catch (SQLException e) {
+            FOR_EACH_ENROLLMENT_VIEW.recordError();
+            System.err.println("Error getting enrollment table rows: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets the enrollment table rows changed after a watermark of the change log:
+     * the enrollments created or removed, and every enrollment of a client or
+     * formation whose displayed columns changed
+     *
+     * @param watermark the watermark of the last full load or delta
+     * @return the changes keyed by EnrollmentView.getKey, or null if an error occurred
+     */
+    public Delta<Long, EnrollmentView> getEnrollmentViewChanges(long watermark) {
+        try (MetricsRegistry.Sample sample = GET_ENROLLMENT_VIEW_CHANGES.start();
+             Connection conn = DatabaseConnection.getConnection()) {
+
+            ChangeLogDAO.Changes changes = ChangeLogDAO.readChanges(conn, watermark,
+                    ChangeLogDAO.ENROLLMENT, ChangeLogDAO.CLIENT, ChangeLogDAO.FORMATION);
+            Map<Long, EnrollmentView> changed = new LinkedHashMap<>();
+
+            // Enrollments of the changed pairs, looked up by client then filtered
+            Set<Long> keys = changes.getEnrollmentKeys();
+            Set<Integer> pairClients = new LinkedHashSet<>();
+            for (long key : keys) {
+                pairClients.add((int) (key >>> 32));
+            }
+            Map<Long, EnrollmentView> pairViews = new HashMap<>();
+            readViews(conn, "cf.id_client", new ArrayList<>(pairClients), pairViews);
+            for (long key : keys) {
+                EnrollmentView view = pairViews.get(key);
+                if (view != null) {
+                    changed.put(key, view);
+                }
+            }
+
+            readViews(conn, "cf.id_client", new ArrayList<>(changes.getRowIds(ChangeLogDAO.CLIENT)), changed);
+            readViews(conn, "cf.id_formation", new ArrayList<>(changes.getRowIds(ChangeLogDAO.FORMATION)), changed);
+
+            Set<Long> deleted = new LinkedHashSet<>(keys);
+            deleted.removeAll(changed.keySet());
+            sample.setRows(changed.size() + deleted.size());
+            return new Delta<>(changed, deleted, changes.getWatermark());
+        } catch (SQLException e) {
+            GET_ENROLLMENT_VIEW_CHANGES.recordError();
+            System.err.println("Error getting enrollment changes: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void readViews(Connection conn, String column, List<Integer> ids, Map<Long, EnrollmentView> into)
+            throws SQLException {
+        for (int from = 0; from < ids.size(); from += IN_LIST_CHUNK) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + IN_LIST_CHUNK, ids.size()));
+            String query = VIEW_SELECT + " WHERE " + column + " IN (" + placeholders(chunk.size()) + ")";
+
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        EnrollmentView view = mapView(rs);
+                        into.put(view.getKey(), view);
+                    }
+                }
+            }
+        }
+    }
+
+    private static EnrollmentView mapView(ResultSet rs) throws SQLException {
+        return new EnrollmentView(
+                rs.getInt("id_client"),
+                rs.getInt("id_formation"),
+                rs.getString("client_name"),
+                rs.getString("libele"),
+                rs.getInt("duree"),
+                rs.getDouble("tarif")
+        );
+    }
+
+    /**
+     * Builds an Enrollment from a row of ENROLLMENT_SELECT, reusing already mapped
+     * clients and formations
+     */
+    private Enrollment mapEnrollment(ResultSet rs, Map<Integer, Client> clients,
+                                     Map<Integer, Formation> formations) throws SQLException {
+        int clientId = rs.getInt("id_client");
+        int formationId = rs.getInt("id_formation");
+
+        Client client = clients.get(clientId);
+        if (client == null) {
+            client = ClientDAO.mapClient(rs);
+            clients.put(clientId, client);
+        }
+        Formation formation = formations.get(formationId);
+        if (formation == null) {
+            formation = FormationDAO.mapFormation(rs);
+            formations.put(formationId, formation);
+        }
+
+        Enrollment enrollment = new Enrollment(0, clientId, formationId, null, null);
+        enrollment.setClient(client);
+        enrollment.setFormation(formation);
+        return enrollment;
+    }
+}
@@ -1,39 +1,109 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
 
 /**
  * Panel for managing client enrollments in formations
  */
 public class EnrollmentManagementPanel extends JPanel {
 
-    private EnrollmentDAO enrollmentDAO;
-    private ClientDAO clientDAO;
-    private FormationDAO formationDAO;
+    // Name of the panel's loads and writes in the DomainStore
+    private static final String NAME = "EnrollmentManagementPanel";
+
+    private final DomainStore store = DomainStore.getInstance();
 
     // UI Components
     private JComboBox<Client> clientComboBox;
     private JComboBox<Formation> formationComboBox;
     private JTable enrollmentTable;
-    private DefaultTableModel tableModel;
+    private EnrollmentTableModel tableModel;
     private JButton enrollButton;
     private JButton deleteButton;
     private JButton refreshButton;
+    private JButton exportButton;
     private JTextField searchField;
     private JComboBox<String> filterComboBox;
 
-    public EnrollmentManagementPanel() {
-        this.enrollmentDAO = new EnrollmentDAO();
-        this.clientDAO = new ClientDAO();
-        this.formationDAO = new FormationDAO();
+    // The store's in-memory copy of the enrollments, searched without going back to the database
+    private EnrollmentSnapshot snapshot = new EnrollmentSnapshot(new ArrayList<>());
+    private final JProgressBar progressBar = BackgroundLoader.createProgressBar();
+
+    // Clients, formations and enrollments are loaded by the store, once for every panel
+    private final DomainStore.Listener storeListener = new DomainStore.Listener() {
+        @Override
+        public void clientsLoaded(List<Client> clients) {
+            clientComboBox.setModel(new DefaultComboBoxModel<>(clients.toArray(new Client[0])));
+        }
+
+        @Override
+        public void clientsChanged(Delta<Integer, Client> delta) {
+            applyChanges(clientComboBox, delta, Client::getClientId);
+        }
+
+        @Override
+        public void formationsLoaded(List<Formation> formations) {
+            formationComboBox.setModel(new DefaultComboBoxModel<>(formations.toArray(new Formation[0])));
+        }
+
+        @Override
+        public void formationsChanged(Delta<Integer, Formation> delta) {
+            applyChanges(formationComboBox, delta, Formation::getFormationId);
+        }
+
+        @Override
+        public void enrollmentsLoaded(EnrollmentSnapshot loaded) {
+            snapshot = loaded;
+            filterEnrollments();
+        }
 
+        @Override
+        public void enrollmentsChanged(EnrollmentSnapshot changed, Delta<Long, EnrollmentView> delta) {
+            snapshot = changed;
+            String searchText = searchField.getText();
+            EnrollmentSnapshot.Field field = getFilterField();
+            tableModel.applyChanges(delta, view -> EnrollmentSnapshot.matches(view, searchText, field));
+        }
+
+        @Override
+        public void loadingChanged(boolean loading) {
+            progressBar.setVisible(loading);
+        }
+
+        @Override
+        public void loadFailed(Exception e) {
+            JOptionPane.showMessageDialog(EnrollmentManagementPanel.this,
+                    "Error loading enrollments: " + e.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    };
+
+    public EnrollmentManagementPanel() {
         initializeComponents();
         setupLayout();
         setupEventListeners();
-        loadData();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        store.addListener(storeListener);
+        store.loadClients(NAME);
+        store.loadFormations(NAME);
+        store.loadEnrollments(NAME);
+    }
+
+    @Override
+    public void removeNotify() {
+        store.removeListener(storeListener);
+        super.removeNotify();
     }
 
     private void initializeComponents() {
@@ -46,13 +116,7 @@ public class EnrollmentManagementPanel extends JPanel {
         formationComboBox.setPreferredSize(new Dimension(150, 25));
 
         // Initialize table
-        String[] columnNames = {"Client Name", "Formation Title", "Formation Duration", "Formation Price"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table read-only
-            }
-        };
+        tableModel = new EnrollmentTableModel();
         enrollmentTable = new JTable(tableModel);
         enrollmentTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
@@ -60,6 +124,7 @@ public class EnrollmentManagementPanel extends JPanel {
         enrollButton = new JButton("Enroll Client");
         deleteButton = new JButton("Remove Enrollment");
         refreshButton = new JButton("Refresh");
+        exportButton = new JButton("Export Roster");
 
         // Initialize search components
         searchField = new JTextField(15);
@@ -123,6 +188,8 @@ public class EnrollmentManagementPanel extends JPanel {
         // Bottom panel for actions
         JPanel bottomPanel = new JPanel(new FlowLayout());
         bottomPanel.add(deleteButton);
+        bottomPanel.add(exportButton);
+        bottomPanel.add(progressBar);
         add(bottomPanel, BorderLayout.SOUTH);
     }
 
@@ -143,18 +210,31 @@ public class EnrollmentManagementPanel extends JPanel {
             }
         });
 
+        // Export button action
+        exportButton.addActionListener(e -> ExportTask.start(this, DataExporter.Dataset.ENROLLMENTS));
+
         // Refresh button action
         refreshButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                loadData();
+                store.refresh(NAME);
             }
         });
 
-        // Search field action
-        searchField.addActionListener(new ActionListener() {
+        // Search field: filter as the user types
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
             @Override
-            public void actionPerformed(ActionEvent e) {
+            public void insertUpdate(DocumentEvent e) {
+                filterEnrollments();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                filterEnrollments();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
                 filterEnrollments();
             }
         });
@@ -168,65 +248,6 @@ public class EnrollmentManagementPanel extends JPanel {
         });
     }
 
-    private void loadData() {
-        loadClients();
-        loadFormations();
-        loadEnrollments();
-    }
-
-    private void loadClients() {
-        clientComboBox.removeAllItems();
-        try {
-            List<Client> clients = clientDAO.getAllClients();
-            for (Client client : clients) {
-                clientComboBox.addItem(client);
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error loading clients: " + e.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-
-    private void loadFormations() {
-        formationComboBox.removeAllItems();
-        try {
-            List<Formation> formations = formationDAO.getAllFormations();
-            for (Formation formation : formations) {
-                formationComboBox.addItem(formation);
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error loading formations: " + e.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
-        }
-    }
-
-    private void loadEnrollments() {
-        tableModel.setRowCount(0);
-        try {
-            // Get all clients and their enrollments
-            List<Client> clients = clientDAO.getAllClients();
-            for (Client client : clients) {
-                List<Enrollment> enrollments = enrollmentDAO.getEnrollmentsByClient(client.getClientId());
-                for (Enrollment enrollment : enrollments) {
-                    Object[] row = {
-                            enrollment.getClient().toString(),
-                            enrollment.getFormation().getTitle(),
-                            enrollment.getFormation().getduree() + " days",
-                            "$" + enrollment.getFormation().getPrice()
-                    };
-                    tableModel.addRow(row);
-                }
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error loading enrollments: " + e.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-
     private void enrollClient() {
         Client selectedClient = (Client) clientComboBox.getSelectedItem();
         Formation selectedFormation = (Formation) formationComboBox.getSelectedItem();
@@ -238,29 +259,31 @@ public class EnrollmentManagementPanel extends JPanel {
             return;
         }
 
-        // Check if client is already enrolled
-        if (enrollmentDAO.isClientEnrolled(selectedClient.getClientId(), selectedFormation.getFormationId())) {
-            JOptionPane.showMessageDialog(this,
-                    "Client is already enrolled in this formation.",
-                    "Already Enrolled", JOptionPane.WARNING_MESSAGE);
-            return;
-        }
-
-        // Create enrollment
-        Enrollment enrollment = new Enrollment(0, selectedClient.getClientId(), selectedFormation.getFormationId(), null, null);
-        enrollment.setClient(selectedClient);
-        enrollment.setFormation(selectedFormation);
-
-        if (enrollmentDAO.createEnrollment(enrollment)) {
-            JOptionPane.showMessageDialog(this,
-                    "Client enrolled successfully!",
-                    "Success", JOptionPane.INFORMATION_MESSAGE);
-            loadEnrollments(); // Refresh table
-        } else {
-            JOptionPane.showMessageDialog(this,
-                    "Failed to enroll client. Please try again.",
-                    "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        enrollButton.setEnabled(false);
+        store.enroll(selectedClient.getClientId(), selectedFormation.getFormationId(), NAME, result -> {
+            enrollButton.setEnabled(true);
+            switch (result) {
+                case CREATED:
+                    JOptionPane.showMessageDialog(this,
+                            "Client enrolled successfully!",
+                            "Success", JOptionPane.INFORMATION_MESSAGE);
+                    break;
+                case ALREADY_ENROLLED:
+                    JOptionPane.showMessageDialog(this,
+                            "Client is already enrolled in this formation.",
+                            "Already Enrolled", JOptionPane.WARNING_MESSAGE);
+                    break;
+                case FULL:
+                    JOptionPane.showMessageDialog(this,
+                            "This formation is full.",
+                            "Formation Full", JOptionPane.WARNING_MESSAGE);
+                    break;
+                default:
+                    JOptionPane.showMessageDialog(this,
+                            "Failed to enroll client. Please try again.",
+                            "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
     }
 
     private void deleteEnrollment() {
@@ -272,123 +295,85 @@ public class EnrollmentManagementPanel extends JPanel {
             return;
         }
 
-        String clientName = (String) tableModel.getValueAt(selectedRow, 0);
-        String formationTitle = (String) tableModel.getValueAt(selectedRow, 1);
+        EnrollmentView view = tableModel.getRow(enrollmentTable.convertRowIndexToModel(selectedRow));
 
         int confirm = JOptionPane.showConfirmDialog(this,
                 "Are you sure you want to remove the enrollment for:\n" +
-                        "Client: " + clientName + "\n" +
-                        "Formation: " + formationTitle + "?",
+                        "Client: " + view.getClientName() + "\n" +
+                        "Formation: " + view.getFormationTitle() + "?",
                 "Confirm Deletion", JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            try {
-                // Find the client and formation IDs
-                Client client = findClientByName(clientName);
-                Formation formation = findFormationByTitle(formationTitle);
-                System.out.println(client);
-                System.out.println(formation);
-                if (client != null && formation != null) {
-                    if (enrollmentDAO.deleteEnrollment(client.getClientId(), formation.getFormationId())) {
-                        JOptionPane.showMessageDialog(this,
-                                "Enrollment deleted successfully!",
-                                "Success", JOptionPane.INFORMATION_MESSAGE);
-                        loadEnrollments(); // Refresh table
-                    } else {
-                        JOptionPane.showMessageDialog(this,
-                                "Failed to delete enrollment.",
-                                "Error", JOptionPane.ERROR_MESSAGE);
-                    }
+            deleteButton.setEnabled(false);
+            store.deleteEnrollment(view.getClientId(), view.getFormationId(), NAME, deleted -> {
+                deleteButton.setEnabled(true);
+                if (deleted) {
+                    JOptionPane.showMessageDialog(this,
+                            "Enrollment deleted successfully!",
+                            "Success", JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(this,
+                            "Failed to delete enrollment.",
+                            "Error", JOptionPane.ERROR_MESSAGE);
                 }
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this,
-                        "Error deleting enrollment: " + e.getMessage(),
-                        "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            });
         }
     }
 
-    private void filterEnrollments() {
-        String searchText = searchField.getText().toLowerCase().trim();
-        String filterType = (String) filterComboBox.getSelectedItem();
-
-        if (searchText.isEmpty()) {
-            loadEnrollments();
+    /**
+     * Replaces, removes and appends the changed items of a combo box, keeping the selection
+     */
+    private static <T> void applyChanges(JComboBox<T> comboBox, Delta<Integer, T> delta, ToIntFunction<T> id) {
+        if (delta.isEmpty()) {
             return;
         }
-
-        tableModel.setRowCount(0);
-        try {
-            List<Client> clients = clientDAO.getAllClients();
-            for (Client client : clients) {
-                List<Enrollment> enrollments = enrollmentDAO.getEnrollmentsByClient(client.getClientId());
-                for (Enrollment enrollment : enrollments) {
-                    boolean shouldInclude = false;
-
-                    switch (filterType) {
-                        case "All Enrollments":
-                            shouldInclude = enrollment.getClient().toString().toLowerCase().contains(searchText) ||
-                                    enrollment.getFormation().getTitle().toLowerCase().contains(searchText);
-                            break;
-                        case "By Client":
-                            shouldInclude = enrollment.getClient().toString().toLowerCase().contains(searchText);
-                            break;
-                        case "By Formation":
-                            shouldInclude = enrollment.getFormation().getTitle().toLowerCase().contains(searchText);
-                            break;
-                    }
-
-                    if (shouldInclude) {
-                        Object[] row = {
-                                enrollment.getClient().toString(),
-                                enrollment.getFormation().getTitle(),
-                                enrollment.getFormation().getduree() + " weeks",
-                                "$" + enrollment.getFormation().getPrice()
-                        };
-                        tableModel.addRow(row);
+        Object selected = comboBox.getSelectedItem();
+        Set<Integer> placed = new HashSet<>();
+        for (int i = comboBox.getItemCount() - 1; i >= 0; i--) {
+            T item = comboBox.getItemAt(i);
+            int itemId = id.applyAsInt(item);
+            T changed = delta.getChanged().get(itemId);
+            if (changed != null || delta.getDeleted().contains(itemId)) {
+                comboBox.removeItemAt(i);
+                if (changed != null) {
+                    comboBox.insertItemAt(changed, i);
+                    placed.add(itemId);
+                    if (item == selected) {
+                        selected = changed;
                     }
                 }
             }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error filtering enrollments: " + e.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
         }
-    }
-
-    private Client findClientByName(String name) {
-        try {
-            List<Client> clients = clientDAO.getAllClients();
-            for (Client client : clients) {
-                if (client.toString().equals(name)) {
-                    return client;
-                }
+        for (T changed : delta.getChanged().values()) {
+            if (!placed.contains(id.applyAsInt(changed))) {
+                comboBox.addItem(changed);
             }
-        } catch (Exception e) {
-            System.err.println("Error finding client: " + e.getMessage());
         }
-        return null;
+        comboBox.setSelectedItem(selected);
     }
 
-    private Formation findFormationByTitle(String title) {
-        try {
-            List<Formation> formations = formationDAO.getAllFormations();
-            for (Formation formation : formations) {
-                if (formation.getTitle().equals(title)) {
-                    return formation;
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error finding formation: " + e.getMessage());
+    private EnrollmentSnapshot.Field getFilterField() {
+        switch ((String) filterComboBox.getSelectedItem()) {
+            case "By Client":
+                return EnrollmentSnapshot.Field.CLIENT;
+            case "By Formation":
+                return EnrollmentSnapshot.Field.FORMATION;
+            default:
+                return EnrollmentSnapshot.Field.ALL;
         }
-        return null;
     }
 
     /**
-     * Refresh the panel data
+     * Shows the snapshot rows matching the search field and filter, without database access
+     */
+    private void filterEnrollments() {
+        tableModel.setRows(snapshot.filter(searchField.getText(), getFilterField()));
+    }
+
+    /**
+     * Refresh the panel data with the changes since it was loaded
      */
     public void refreshData() {
-        loadData();
+        store.refresh(NAME);
     }
 }
\ No newline at end of file
@@ -0,0 +1,297 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory copy of the enrollment table with search indexes.
+ *
+ * Client names and formation titles are normalized once (lowercase, accents
+ * removed) and indexed by distinct value and by trigram, so a search only tests
+ * the few distinct names/titles sharing the term's trigrams instead of every row.
+ * When a new search term extends the previous one, only the values that matched
+ * before are tested again.
+ */
+public class EnrollmentSnapshot {
+
+    /**
+     * Which column a search applies to
+     */
+    public enum Field {
+        ALL, CLIENT, FORMATION
+    }
+
+    private final List<EnrollmentView> rows;
+    private final ValueIndex clientIndex = new ValueIndex();
+    private final ValueIndex formationIndex = new ValueIndex();
+
+    /**
+     * Builds the snapshot and its indexes
+     *
+     * @param rows the enrollment rows, in display order
+     */
+    public EnrollmentSnapshot(List<EnrollmentView> rows) {
+        this.rows = rows;
+
+        Map<String, List<Integer>> clientRows = new HashMap<>();
+        Map<String, List<Integer>> formationRows = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            EnrollmentView row = rows.get(i);
+            clientRows.computeIfAbsent(row.getClientName(), k -> new ArrayList<>()).add(i);
+            formationRows.computeIfAbsent(row.getFormationTitle(), k -> new ArrayList<>()).add(i);
+        }
+        clientIndex.build(clientRows);
+        formationIndex.build(formationRows);
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public List<EnrollmentView> getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the rows whose client name and/or formation title contains the search text
+     *
+     * @param searchText the text typed by the user; case and accents are ignored
+     * @param field      the column(s) to search
+     * @return the matching rows in display order
+     */
+    public List<EnrollmentView> filter(String searchText, Field field) {
+        String term = normalize(searchText);
+        if (term.isEmpty()) {
+            return rows;
+        }
+
+        BitSet matches = new BitSet(rows.size());
+        if (field != Field.FORMATION) {
+            clientIndex.collect(term, matches);
+        }
+        if (field != Field.CLIENT) {
+            formationIndex.collect(term, matches);
+        }
+
+        List<EnrollmentView> result = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            result.add(rows.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Builds the snapshot with a delta applied: changed rows replaced in place,
+     * deleted rows removed and new rows appended
+     *
+     * @param delta the enrollment rows changed since this snapshot
+     * @return the new snapshot; this one is unchanged
+     */
+    public EnrollmentSnapshot withChanges(Delta<Long, EnrollmentView> delta) {
+        List<EnrollmentView> updated = new ArrayList<>(rows.size() + delta.getChanged().size());
+        Set<Long> placed = new HashSet<>();
+        for (EnrollmentView row : rows) {
+            long key = row.getKey();
+            EnrollmentView changed = delta.getChanged().get(key);
+            if (changed != null) {
+                updated.add(changed);
+                placed.add(key);
+            } else if (!delta.getDeleted().contains(key)) {
+                updated.add(row);
+            }
+        }
+        for (EnrollmentView changed : delta.getChanged().values()) {
+            if (!placed.contains(changed.getKey())) {
+                updated.add(changed);
+            }
+        }
+        return new EnrollmentSnapshot(updated);
+    }
+
+    /**
+     * Tells if a row is one of the results of a search, without the indexes
+     *
+     * @param row        the row to test
+     * @param searchText the text typed by the user
+     * @param field      the column(s) to search
+     * @return true if filter would return the row
+     */
+    public static boolean matches(EnrollmentView row, String searchText, Field field) {
+        String term = normalize(searchText);
+        if (term.isEmpty()) {
+            return true;
+        }
+        return (field != Field.FORMATION && normalize(row.getClientName()).contains(term))
+                || (field != Field.CLIENT && normalize(row.getFormationTitle()).contains(term));
+    }
+
+    /**
+     * Lowercases a string, strips accents and collapses whitespace
+     *
+     * @param text the text to normalize, may be null
+     * @return the normalized text, never null
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Distinct normalized values of one column, the rows holding each of them,
+     * and a trigram index over the values
+     */
+    private static class ValueIndex {
+        private String[] values = new String[0];
+        private int[][] rowsByValue = new int[0][];
+        // Trigram -> ascending ids of the values containing it
+        private Map<Long, int[]> trigrams = new HashMap<>();
+
+        // Result of the previous search, reused when the next term extends it
+        private String lastTerm;
+        private int[] lastMatches;
+
+        void build(Map<String, List<Integer>> rowsByRawValue) {
+            Map<String, List<Integer>> merged = new HashMap<>();
+            for (Map.Entry<String, List<Integer>> entry : rowsByRawValue.entrySet()) {
+                merged.computeIfAbsent(normalize(entry.getKey()), k -> new ArrayList<>()).addAll(entry.getValue());
+            }
+
+            values = new String[merged.size()];
+            rowsByValue = new int[merged.size()][];
+            Map<Long, List<Integer>> postings = new HashMap<>();
+            int v = 0;
+            for (Map.Entry<String, List<Integer>> entry : merged.entrySet()) {
+                String value = entry.getKey();
+                values[v] = value;
+                List<Integer> list = entry.getValue();
+                int[] ids = new int[list.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = list.get(i);
+                }
+                rowsByValue[v] = ids;
+
+                for (int i = 0; i + 3 <= value.length(); i++) {
+                    List<Integer> posting = postings.computeIfAbsent(trigram(value, i), k -> new ArrayList<>());
+                    // Values are visited in id order, so a repeated trigram is always the last entry
+                    if (posting.isEmpty() || posting.get(posting.size() - 1) != v) {
+                        posting.add(v);
+                    }
+                }
+                v++;
+            }
+
+            trigrams = new HashMap<>(postings.size() * 2);
+            for (Map.Entry<Long, List<Integer>> entry : postings.entrySet()) {
+                List<Integer> list = entry.getValue();
+                int[] ids = new int[list.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = list.get(i);
+                }
+                trigrams.put(entry.getKey(), ids);
+            }
+            lastTerm = null;
+            lastMatches = null;
+        }
+
+        void collect(String term, BitSet matches) {
+            int[] candidates = null;
+            if (lastTerm != null && term.startsWith(lastTerm)) {
+                candidates = lastMatches;
+            }
+            if (term.length() >= 3) {
+                int[] indexed = candidatesFromTrigrams(term);
+                if (candidates == null || indexed.length < candidates.length) {
+                    candidates = indexed;
+                }
+            }
+
+            int count = candidates == null ? values.length : candidates.length;
+            int[] found = new int[count];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int v = candidates == null ? i : candidates[i];
+                if (values[v].contains(term)) {
+                    found[n++] = v;
+                    for (int row : rowsByValue[v]) {
+                        matches.set(row);
+                    }
+                }
+            }
+
+            lastTerm = term;
+            lastMatches = n == found.length ? found : Arrays.copyOf(found, n);
+        }
+
+        /**
+         * Intersects the postings of every trigram of the term, smallest first.
+         * The result is a superset of the values containing the term.
+         */
+        private int[] candidatesFromTrigrams(String term) {
+            List<int[]> lists = new ArrayList<>();
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                int[] posting = trigrams.get(trigram(term, i));
+                if (posting == null) {
+                    return new int[0];
+                }
+                lists.add(posting);
+            }
+            lists.sort((x, y) -> Integer.compare(x.length, y.length));
+
+            int[] result = lists.get(0);
+            for (int l = 1; l < lists.size() && result.length > 0; l++) {
+                // Merging with a much longer list costs more than checking the candidates directly
+                if (lists.get(l).length > 8 * result.length) {
+                    break;
+                }
+                result = intersect(result, lists.get(l));
+            }
+            return result;
+        }
+
+        private static int[] intersect(int[] a, int[] b) {
+            int[] out = new int[Math.min(a.length, b.length)];
+            int i = 0, j = 0, n = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    out[n++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+            return n == out.length ? out : Arrays.copyOf(out, n);
+        }
+
+        private static long trigram(String s, int start) {
+            return ((long) s.charAt(start) << 32) | ((long) s.charAt(start + 1) << 16) | s.charAt(start + 2);
+        }
+    }
+}
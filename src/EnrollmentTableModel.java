@@ -0,0 +1,133 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Table model of the enrollment table.
+ *
+ * Each row keeps the client and formation ids next to the displayed columns,
+ * so row actions never have to map names back to ids.
+ */
+public class EnrollmentTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMN_NAMES = {"Client Name", "Formation Title", "Formation Duration", "Formation Price"};
+
+    private List<EnrollmentView> rows = new ArrayList<>();
+    // False while rows is a list handed in by setRows, which must not be modified
+    private boolean ownsRows = true;
+
+    /**
+     * Replaces all rows
+     *
+     * @param rows the rows to display
+     */
+    public void setRows(List<EnrollmentView> rows) {
+        this.rows = rows;
+        this.ownsRows = false;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Appends rows at the end of the table
+     *
+     * @param added the rows to append
+     */
+    public void addRows(List<EnrollmentView> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        int first = rows.size();
+        if (!ownsRows) {
+            rows = new ArrayList<>(rows);
+            ownsRows = true;
+        }
+        rows.addAll(added);
+        fireTableRowsInserted(first, rows.size() - 1);
+    }
+
+    /**
+     * Applies a delta to the displayed rows in place: changed rows are replaced,
+     * or removed if they no longer match the filter, deleted rows are removed
+     * and new matching rows are appended
+     *
+     * @param delta   the enrollment rows changed since the rows were loaded
+     * @param visible tells if a row matches the current filter
+     */
+    public void applyChanges(Delta<Long, EnrollmentView> delta, Predicate<EnrollmentView> visible) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        if (!ownsRows) {
+            rows = new ArrayList<>(rows);
+            ownsRows = true;
+        }
+
+        Set<Long> placed = new HashSet<>();
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            long key = rows.get(i).getKey();
+            EnrollmentView changed = delta.getChanged().get(key);
+            if (changed != null && visible.test(changed)) {
+                rows.set(i, changed);
+                placed.add(key);
+                fireTableRowsUpdated(i, i);
+            } else if (changed != null || delta.getDeleted().contains(key)) {
+                rows.remove(i);
+                placed.add(key);
+                fireTableRowsDeleted(i, i);
+            }
+        }
+
+        List<EnrollmentView> added = new ArrayList<>();
+        for (EnrollmentView changed : delta.getChanged().values()) {
+            if (!placed.contains(changed.getKey()) && visible.test(changed)) {
+                added.add(changed);
+            }
+        }
+        addRows(added);
+    }
+
+    /**
+     * Gets the enrollment displayed at a row
+     *
+     * @param rowIndex the model row index
+     * @return the enrollment row
+     */
+    public EnrollmentView getRow(int rowIndex) {
+        return rows.get(rowIndex);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        EnrollmentView view = rows.get(rowIndex);
+        switch (columnIndex) {
+            case 0:
+                return view.getClientName();
+            case 1:
+                return view.getFormationTitle();
+            case 2:
+                return view.getduree() + " days";
+            case 3:
+                return "$" + view.getPrice();
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Read-only row of the enrollment table: one client enrolled in one formation
+ */
+public class EnrollmentView {
+    private final int clientId;
+    private final int formationId;
+    private final String clientName;
+    private final String formationTitle;
+    private final int duree;
+    private final double price;
+
+    public EnrollmentView(int clientId, int formationId, String clientName, String formationTitle,
+                          int duree, double price) {
+        this.clientId = clientId;
+        this.formationId = formationId;
+        this.clientName = clientName;
+        this.formationTitle = formationTitle;
+        this.duree = duree;
+        this.price = price;
+    }
+
+    /**
+     * Gets the key of an enrollment, unique per (client, formation) pair
+     */
+    public static long key(int clientId, int formationId) {
+        return ((long) clientId << 32) | (formationId & 0xFFFFFFFFL);
+    }
+
+    public long getKey() {
+        return key(clientId, formationId);
+    }
+
+    // Getters
+    public int getClientId() {
+        return clientId;
+    }
+
+    public int getFormationId() {
+        return formationId;
+    }
+
+    public String getClientName() {
+        return clientName;
+    }
+
+    public String getFormationTitle() {
+        return formationTitle;
+    }
+
+    public int getduree() {
+        return duree;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+}
@@ -0,0 +1,168 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded in-memory cache used by the DAOs in front of by-id lookups.
+ *
+ * Entries are evicted least-recently-used first once the cache is full, and
+ * expire after a fixed time to live so changes made by other workstations are
+ * eventually picked up.
+ *
+ * @param <K> the key type
+ * @param <V> the cached value type
+ */
+public class EntityCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> map;
+
+    // Incremented by every invalidation, so a load that raced with a write is not cached
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache
+     *
+     * @param maxSize   maximum number of entries
+     * @param ttlMillis time after which an entry is reloaded
+     */
+    public EntityCache(int maxSize, long ttlMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > EntityCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets a cached value
+     *
+     * @param key the key
+     * @return the value, or null if absent or expired
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            map.remove(key);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Gets a cached value, loading and caching it on a miss.
+     * The loader runs outside the cache lock; null results are not cached.
+     *
+     * @param key    the key
+     * @param loader loads the value from the database
+     * @return the value, or null if the loader returned null
+     */
+    public V getOrLoad(K key, Function<K, V> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            V cached = get(key);
+            if (cached != null) {
+                return cached;
+            }
+            loadGeneration = generation;
+        }
+
+        V loaded = loader.apply(key);
+        if (loaded != null) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    putEntry(key, loaded);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Stores a value after it was written to the database
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public synchronized void put(K key, V value) {
+        generation++;
+        putEntry(key, value);
+    }
+
+    /**
+     * Removes a value after it was changed or deleted in the database
+     *
+     * @param key the key
+     */
+    public synchronized void invalidate(K key) {
+        generation++;
+        map.remove(key);
+    }
+
+    /**
+     * Removes every value
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        map.clear();
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + "/" + maxSize + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount();
+    }
+
+    private void putEntry(K key, V value) {
+        map.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.*;
+import java.io.File;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a DataExporter export off the Event Dispatch Thread, with a file chooser,
+ * a cancellable progress monitor and a summary message.
+ */
+public class ExportTask extends SwingWorker<Long, Void> {
+
+    private final Component parent;
+    private final DataExporter.Dataset dataset;
+    private final DataExporter.Format format;
+    private final File file;
+    private final ProgressMonitor monitor;
+    private final Timer poller;
+
+    // Written by the worker, read on the EDT, and the other way round
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicBoolean cancelRequested = new AtomicBoolean();
+
+    private ExportTask(Component parent, DataExporter.Dataset dataset, DataExporter.Format format, File file, long total) {
+        this.parent = parent;
+        this.dataset = dataset;
+        this.format = format;
+        this.file = file;
+
+        // ProgressMonitor closes itself once the progress reaches the maximum, so an
+        // unknown total gets a maximum no export reaches and the progress stays below it
+        int maximum = total > 0 ? (int) Math.min(Integer.MAX_VALUE, total) : Integer.MAX_VALUE;
+        monitor = new ProgressMonitor(parent, "Exporting " + dataset.getFileName() + " to " + file.getName(),
+                "", 0, maximum);
+        monitor.setMillisToDecideToPopup(200);
+
+        // ProgressMonitor is polled on the EDT; the worker only sees the cancel flag
+        poller = new Timer(200, e -> {
+            // Rows added since the count must not close the monitor before done()
+            monitor.setProgress((int) Math.min(maximum - 1L, written.get()));
+            monitor.setNote(written.get() + (total > 0 ? " / " + total : "") + " rows");
+            if (monitor.isCanceled()) {
+                cancelRequested.set(true);
+            }
+        });
+    }
+
+    /**
+     * Asks for a target file and starts exporting a dataset. Must be called on the EDT.
+     *
+     * @param parent  the component the dialogs are attached to
+     * @param dataset the rows to export
+     */
+    public static void start(Component parent, DataExporter.Dataset dataset) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export " + dataset.getFileName());
+        FileNameExtensionFilter csvFilter = new FileNameExtensionFilter("CSV (*.csv)", DataExporter.Format.CSV.getExtension());
+        FileNameExtensionFilter jsonlFilter = new FileNameExtensionFilter("JSON Lines (*.jsonl)", DataExporter.Format.JSONL.getExtension());
+        chooser.addChoosableFileFilter(csvFilter);
+        chooser.addChoosableFileFilter(jsonlFilter);
+        chooser.setAcceptAllFileFilterUsed(false);
+        chooser.setFileFilter(csvFilter);
+        chooser.setSelectedFile(new File(dataset.getFileName() + "." + DataExporter.Format.CSV.getExtension()));
+        if (chooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        DataExporter.Format format = chooser.getFileFilter() == jsonlFilter ? DataExporter.Format.JSONL : DataExporter.Format.CSV;
+        File file = chooser.getSelectedFile();
+        if (!file.getName().contains(".")) {
+            file = new File(file.getParentFile(), file.getName() + "." + format.getExtension());
+        }
+        if (file.exists() && JOptionPane.showConfirmDialog(parent,
+                file.getName() + " already exists. Replace it?",
+                "Export", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        countThenExport(parent, dataset, format, file);
+    }
+
+    /**
+     * Counts the rows in the background first so the progress monitor can be sized
+     */
+    private static void countThenExport(Component parent, DataExporter.Dataset dataset, DataExporter.Format format, File file) {
+        new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() {
+                return new DataExporter().countRows(dataset);
+            }
+
+            @Override
+            protected void done() {
+                long count;
+                try {
+                    count = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    count = -1;
+                }
+                ExportTask task = new ExportTask(parent, dataset, format, file, count);
+                task.poller.start();
+                task.execute();
+            }
+        }.execute();
+    }
+
+    @Override
+    protected Long doInBackground() throws Exception {
+        return new DataExporter().export(dataset, format, file.toPath(), written::set, cancelRequested::get);
+    }
+
+    @Override
+    protected void done() {
+        poller.stop();
+        monitor.close();
+        try {
+            long rows = get();
+            JOptionPane.showMessageDialog(parent,
+                    rows + " row(s) exported to " + file.getAbsolutePath(),
+                    "Export", JOptionPane.INFORMATION_MESSAGE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException) {
+                return; // cancelled by the user, the partial file was deleted
+            }
+            JOptionPane.showMessageDialog(parent,
+                    "Error exporting " + dataset.getFileName() + ": " + e.getCause().getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
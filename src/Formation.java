@@ -12,6 +12,10 @@ public class Formation {
     private Date startDate;
     private int duree;
     private double price;
+    private int capacity = DEFAULT_CAPACITY;
+
+    // Seats per session when none is specified
+    public static final int DEFAULT_CAPACITY = 20;
 
     // Constructor with all fields
     public Formation(int formationId, String title, String description,
@@ -24,6 +28,13 @@ public class Formation {
         this.price = price;
     }
 
+    // Constructor with all fields including the seat capacity
+    public Formation(int formationId, String title, String description,
+                     Date startDate, int duree, double price, int capacity) {
+        this(formationId, title, description, startDate, duree, price);
+        this.capacity = capacity;
+    }
+
     public Formation() {
 
     }
@@ -80,6 +91,14 @@ public class Formation {
         this.price = price;
     }
 
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
     @Override
     public String toString() {
         return this.title;
@@ -0,0 +1,243 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Scrollable grid of formation cards.
+ *
+ * Like JList, the view owns no child component per formation: a single renderer
+ * component is configured for each card and stamped onto the view, and only the
+ * cards intersecting the visible area are painted. Memory and layout cost do not
+ * grow with the size of the catalog.
+ */
+public class FormationCardView extends JComponent implements Scrollable {
+
+    /**
+     * Supplies the component used to paint a card, usually the same instance every time
+     */
+    public interface CardRenderer {
+        Component getCardComponent(FormationCardView view, Formation formation, boolean hovered);
+    }
+
+    private static final int CARD_WIDTH = 280;
+    private static final int CARD_HEIGHT = 140;
+    private static final int GAP = 15;
+    private static final int MARGIN = 20;
+
+    private final CellRendererPane rendererPane = new CellRendererPane();
+    private List<Formation> formations = new ArrayList<>();
+    private final CardRenderer renderer;
+    private Consumer<Formation> clickListener = formation -> { };
+    private int hoveredIndex = -1;
+
+    public FormationCardView(CardRenderer renderer) {
+        this.renderer = renderer;
+        add(rendererPane);
+        setOpaque(true);
+        ToolTipManager.sharedInstance().registerComponent(this);
+
+        MouseAdapter mouseHandler = new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = indexAt(e.getPoint());
+                if (index >= 0) {
+                    clickListener.accept(formations.get(index));
+                }
+            }
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                setHoveredIndex(indexAt(e.getPoint()));
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                setHoveredIndex(-1);
+            }
+        };
+        addMouseListener(mouseHandler);
+        addMouseMotionListener(mouseHandler);
+
+        // The height depends on how many cards fit per row, so re-layout when that changes
+        addComponentListener(new ComponentAdapter() {
+            private int columns = -1;
+
+            @Override
+            public void componentResized(ComponentEvent e) {
+                if (getColumnCount() != columns) {
+                    columns = getColumnCount();
+                    revalidate();
+                }
+            }
+        });
+    }
+
+    /**
+     * Replaces the displayed formations
+     *
+     * @param formations the formations, in display order
+     */
+    public void setFormations(List<Formation> formations) {
+        this.formations = new ArrayList<>(formations);
+        hoveredIndex = -1;
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Appends formations after the ones already displayed
+     *
+     * @param added the formations to append
+     */
+    public void addFormations(List<Formation> added) {
+        formations.addAll(added);
+        revalidate();
+        repaint();
+    }
+
+    public List<Formation> getFormations() {
+        return formations;
+    }
+
+    /**
+     * Sets the action run when a card is clicked
+     *
+     * @param clickListener receives the clicked formation
+     */
+    public void setCardClickListener(Consumer<Formation> clickListener) {
+        this.clickListener = clickListener;
+    }
+
+    /**
+     * Gets the index of the card under a point
+     *
+     * @param p a point in view coordinates
+     * @return the formation index, or -1 if the point is not on a card
+     */
+    public int indexAt(Point p) {
+        int x = p.x - MARGIN;
+        int y = p.y - MARGIN;
+        if (x < 0 || y < 0) {
+            return -1;
+        }
+        int column = x / (CARD_WIDTH + GAP);
+        int row = y / (CARD_HEIGHT + GAP);
+        if (column >= getColumnCount() || x % (CARD_WIDTH + GAP) >= CARD_WIDTH
+                || y % (CARD_HEIGHT + GAP) >= CARD_HEIGHT) {
+            return -1;
+        }
+        int index = row * getColumnCount() + column;
+        return index < formations.size() ? index : -1;
+    }
+
+    private Rectangle cardBounds(int index) {
+        int columns = getColumnCount();
+        int row = index / columns;
+        int column = index % columns;
+        return new Rectangle(MARGIN + column * (CARD_WIDTH + GAP), MARGIN + row * (CARD_HEIGHT + GAP),
+                CARD_WIDTH, CARD_HEIGHT);
+    }
+
+    private int getColumnCount() {
+        int width = getWidth() > 0 ? getWidth() : getParentWidth();
+        return Math.max(1, (width - 2 * MARGIN + GAP) / (CARD_WIDTH + GAP));
+    }
+
+    private int getParentWidth() {
+        Container parent = getParent();
+        return parent != null && parent.getWidth() > 0 ? parent.getWidth() : 3 * (CARD_WIDTH + GAP) + 2 * MARGIN;
+    }
+
+    private void setHoveredIndex(int index) {
+        if (index == hoveredIndex) {
+            return;
+        }
+        if (hoveredIndex >= 0 && hoveredIndex < formations.size()) {
+            repaint(cardBounds(hoveredIndex));
+        }
+        hoveredIndex = index;
+        if (index >= 0) {
+            repaint(cardBounds(index));
+        }
+        setCursor(Cursor.getPredefinedCursor(index >= 0 ? Cursor.HAND_CURSOR : Cursor.DEFAULT_CURSOR));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        if (formations.isEmpty()) {
+            return;
+        }
+
+        // Only the rows of cards intersecting the clip are rendered
+        int columns = getColumnCount();
+        int firstRow = Math.max(0, (clip.y - MARGIN) / (CARD_HEIGHT + GAP));
+        int lastRow = Math.max(0, (clip.y + clip.height - MARGIN) / (CARD_HEIGHT + GAP));
+        int first = firstRow * columns;
+        int last = Math.min(formations.size() - 1, (lastRow + 1) * columns - 1);
+
+        for (int i = first; i <= last; i++) {
+            Rectangle bounds = cardBounds(i);
+            if (!bounds.intersects(clip)) {
+                continue;
+            }
+            Component card = renderer.getCardComponent(this, formations.get(i), i == hoveredIndex);
+            rendererPane.paintComponent(g, card, this, bounds.x, bounds.y, bounds.width, bounds.height, true);
+        }
+        rendererPane.removeAll();
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        int index = indexAt(event.getPoint());
+        return index >= 0 ? formations.get(index).getTitle() : null;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        int columns = getColumnCount();
+        int rows = (formations.size() + columns - 1) / columns;
+        int width = 2 * MARGIN + columns * CARD_WIDTH + (columns - 1) * GAP;
+        int height = 2 * MARGIN + rows * CARD_HEIGHT + Math.max(0, rows - 1) * GAP;
+        return new Dimension(width, height);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return 16;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        // The number of columns follows the viewport width, so never scroll horizontally
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        Container parent = getParent();
+        return parent instanceof JViewport && parent.getHeight() > getPreferredSize().height;
+    }
+}
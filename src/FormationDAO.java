@@ -1,12 +1,36 @@
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Data Access Object for Formation operations
+ *
+ * Seats are tracked by two columns of formation: capacite (seats offered) and
+ * nb_inscrits (seats taken), which EnrollmentDAO updates atomically with each
+ * enrollment.
  */
 public class FormationDAO {
 
+    // Shared by every FormationDAO instance so all panels benefit from the same cache
+    private static final EntityCache<Integer, Formation> CACHE = new EntityCache<>(
+            Integer.getInteger("cache.formation.maxSize", 2_000),
+            Long.getLong("cache.formation.ttlMs", 300_000L));
+
+    private static final MetricsRegistry.Timer GET_ALL_FORMATIONS = MetricsRegistry.daoTimer("FormationDAO.getAllFormations");
+    private static final MetricsRegistry.Timer LOAD_FORMATION_BY_ID = MetricsRegistry.daoTimer("FormationDAO.loadFormationById");
+    private static final MetricsRegistry.Timer GET_ENROLLMENT_COUNT = MetricsRegistry.daoTimer("FormationDAO.getEnrollmentCount");
+    private static final MetricsRegistry.Timer GET_ENROLLMENT_COUNTS = MetricsRegistry.daoTimer("FormationDAO.getEnrollmentCounts");
+    private static final MetricsRegistry.Timer IS_FORMATION_AVAILABLE = MetricsRegistry.daoTimer("FormationDAO.isFormationAvailable");
+    private static final MetricsRegistry.Timer INSERT_FORMATION = MetricsRegistry.daoTimer("FormationDAO.insertFormation");
+    private static final MetricsRegistry.Timer UPDATE_FORMATION = MetricsRegistry.daoTimer("FormationDAO.updateFormation");
+    private static final MetricsRegistry.Timer DELETE_FORMATION = MetricsRegistry.daoTimer("FormationDAO.deleteFormation");
+    private static final MetricsRegistry.Timer GET_FORMATION_CHANGES = MetricsRegistry.daoTimer("FormationDAO.getFormationChanges");
+
     /**
      * Gets all formations from the database
      *
@@ -16,21 +40,19 @@ public class FormationDAO {
         List<Formation> formations = new ArrayList<>();
         String query = "SELECT * FROM formation ORDER BY date_debut";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (MetricsRegistry.Sample sample = GET_ALL_FORMATIONS.start();
+             Connection conn = DatabaseConnection.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
 
             while (rs.next()) {
-                formations.add(new Formation(
-                        rs.getInt("id_formation"),
-                        rs.getString("libele"),
-                        rs.getString("description"),
-                        rs.getDate("date_debut"),
-                        rs.getInt("duree"),
-                        rs.getDouble("tarif")
-                ));
+                Formation formation = mapFormation(rs);
+                CACHE.put(formation.getFormationId(), formation);
+                formations.add(formation);
             }
+            sample.setRows(formations.size());
         } catch (SQLException e) {
+            GET_ALL_FORMATIONS.recordError();
             System.err.println("Error getting formations: " + e.getMessage());
         }
 
@@ -38,38 +60,94 @@ public class FormationDAO {
     }
 
     /**
-     * Gets a formation by ID
+     * Gets a formation by ID, from the cache when possible
      *
      * @param formationId the formation ID
      * @return Formation object if found, null otherwise
      */
     public Formation getFormationById(int formationId) {
+        return CACHE.getOrLoad(formationId, this::loadFormationById);
+    }
+
+    /**
+     * Gets the hit/miss/eviction counters of the formation cache
+     *
+     * @return the shared formation cache
+     */
+    public static EntityCache<Integer, Formation> getCache() {
+        return CACHE;
+    }
+
+    private Formation loadFormationById(int formationId) {
         String query = "SELECT * FROM formation WHERE id_formation = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        // Timed here rather than around the cache, which counts its own hits and misses
+        try (MetricsRegistry.Sample sample = LOAD_FORMATION_BY_ID.start();
+             Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setInt(1, formationId);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return new Formation(
-                            rs.getInt("id_formation"),
-                            rs.getString("libele"),
-                            rs.getString("description"),
-                            rs.getDate("date_debut"),
-                            rs.getInt("duree"),
-                            rs.getDouble("tarif")
-                    );
+                    sample.addRow();
+                    return mapFormation(rs);
                 }
             }
         } catch (SQLException e) {
+            LOAD_FORMATION_BY_ID.recordError();
             System.err.println("Error getting formation: " + e.getMessage());
         }
 
         return null;
     }
 
+    /**
+     * Gets the formations inserted, updated or deleted after a watermark of the change log.
+     * The formation cache is updated with them too.
+     *
+     * @param watermark the watermark of the last full load or delta
+     * @return the changes, or null if an error occurred
+     */
+    public Delta<Integer, Formation> getFormationChanges(long watermark) {
+        try (MetricsRegistry.Sample sample = GET_FORMATION_CHANGES.start();
+             Connection conn = DatabaseConnection.getConnection()) {
+
+            ChangeLogDAO.Changes changes = ChangeLogDAO.readChanges(conn, watermark, ChangeLogDAO.FORMATION);
+            List<Integer> ids = new ArrayList<>(changes.getRowIds(ChangeLogDAO.FORMATION));
+            Map<Integer, Formation> changed = new LinkedHashMap<>();
+            for (int from = 0; from < ids.size(); from += EnrollmentDAO.IN_LIST_CHUNK) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + EnrollmentDAO.IN_LIST_CHUNK, ids.size()));
+                String query = "SELECT * FROM formation WHERE id_formation IN (" + EnrollmentDAO.placeholders(chunk.size()) + ")";
+
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Formation formation = mapFormation(rs);
+                            changed.put(formation.getFormationId(), formation);
+                            CACHE.put(formation.getFormationId(), formation);
+                        }
+                    }
+                }
+            }
+
+            Set<Integer> deleted = new LinkedHashSet<>(ids);
+            deleted.removeAll(changed.keySet());
+            for (Integer id : deleted) {
+                CACHE.invalidate(id);
+            }
+            sample.setRows(ids.size());
+            return new Delta<>(changed, deleted, changes.getWatermark());
+        } catch (SQLException e) {
+            GET_FORMATION_CHANGES.recordError();
+            System.err.println("Error getting formation changes: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Gets the current enrollment count for a formation
      *
@@ -77,25 +155,54 @@ public class FormationDAO {
      * @return the enrollment count
      */
     public int getEnrollmentCount(int formationId) {
-        String query = "SELECT COUNT(*) FROM formation WHERE id_formation = ?";
+        String query = "SELECT COUNT(*) FROM client_formation WHERE id_formation = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (MetricsRegistry.Sample sample = GET_ENROLLMENT_COUNT.start();
+             Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setInt(1, formationId);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
+                    sample.addRow();
                     return rs.getInt(1);
                 }
             }
         } catch (SQLException e) {
+            GET_ENROLLMENT_COUNT.recordError();
             System.err.println("Error getting enrollment count: " + e.getMessage());
         }
 
         return 0;
     }
 
+    /**
+     * Gets the enrollment count of every formation with a single GROUP BY query
+     *
+     * @return a map from formation ID to enrollment count; formations without enrollments are absent
+     */
+    public Map<Integer, Integer> getEnrollmentCounts() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        String query = "SELECT id_formation, COUNT(*) FROM client_formation GROUP BY id_formation";
+
+        try (MetricsRegistry.Sample sample = GET_ENROLLMENT_COUNTS.start();
+             Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+
+            while (rs.next()) {
+                counts.put(rs.getInt(1), rs.getInt(2));
+            }
+            sample.setRows(counts.size());
+        } catch (SQLException e) {
+            GET_ENROLLMENT_COUNTS.recordError();
+            System.err.println("Error getting enrollment counts: " + e.getMessage());
+        }
+
+        return counts;
+    }
+
     /**
      * Checks if a formation is available for enrollment (has space)
      *
@@ -103,14 +210,46 @@ public class FormationDAO {
      * @return true if available, false otherwise
      */
     public boolean isFormationAvailable(int formationId) {
-        return true;
+        String query = "SELECT nb_inscrits < capacite FROM formation WHERE id_formation = ?";
+
+        try (MetricsRegistry.Sample sample = IS_FORMATION_AVAILABLE.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setInt(1, formationId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    sample.addRow();
+                    return rs.getBoolean(1);
+                }
+            }
+        } catch (SQLException e) {
+            IS_FORMATION_AVAILABLE.recordError();
+            System.err.println("Error checking formation availability: " + e.getMessage());
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks if a formation is available for enrollment given an already known
+     * enrollment count, without querying the database
+     *
+     * @param formation       the formation
+     * @param enrollmentCount its current enrollment count
+     * @return true if available, false otherwise
+     */
+    public boolean isFormationAvailable(Formation formation, int enrollmentCount) {
+        return enrollmentCount < formation.getCapacity();
     }
 
 
     // ------------------------------------CRUD------------------------------------------------
     public boolean insertFormation(Formation formation) {
-        String query = "INSERT INTO formation (libele, description, date_debut, duree, tarif) VALUES (?, ?, ?, ?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
+        String query = "INSERT INTO formation (libele, description, date_debut, duree, tarif, capacite) VALUES (?, ?, ?, ?, ?, ?)";
+        try (MetricsRegistry.Sample sample = INSERT_FORMATION.start();
+             Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
 
             stmt.setString(1, formation.getTitle());
@@ -118,25 +257,37 @@ public class FormationDAO {
             stmt.setDate(3, (Date) formation.getStartDate());
             stmt.setInt(4, formation.getduree());
             stmt.setDouble(5, formation.getPrice());
+            stmt.setInt(6, formation.getCapacity());
 
             int affectedRows = stmt.executeUpdate();
+            sample.setRows(affectedRows);
             if (affectedRows > 0) {
                 try (ResultSet rs = stmt.getGeneratedKeys()) {
                     if (rs.next()) {
                         formation.setFormationId(rs.getInt(1));
+                        CACHE.put(formation.getFormationId(), formation);
                     }
                 }
                 return true;
             }
         } catch (SQLException e) {
+            INSERT_FORMATION.recordError();
             System.err.println("Error inserting formation: " + e.getMessage()+e.getStackTrace());
         }
         return false;
     }
 
+    /**
+     * Updates a formation; the capacity may not drop below the seats already taken,
+     * checked in the UPDATE itself so a concurrent enrollment cannot slip past it
+     *
+     * @return false if the formation is missing or has more enrollments than the new capacity
+     */
     public boolean updateFormation(Formation formation) {
-        String query = "UPDATE formation SET libele = ?, description = ?, date_debut = ?, duree = ?, tarif = ? WHERE id_formation = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        String query = "UPDATE formation SET libele = ?, description = ?, date_debut = ?, duree = ?, tarif = ?, capacite = ? " +
+                "WHERE id_formation = ? AND nb_inscrits <= ?";
+        try (MetricsRegistry.Sample sample = UPDATE_FORMATION.start();
+             Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, formation.getTitle());
@@ -144,25 +295,99 @@ public class FormationDAO {
             stmt.setDate(3, (Date) formation.getStartDate());
             stmt.setInt(4, formation.getduree());
             stmt.setDouble(5, formation.getPrice());
-            stmt.setInt(6, formation.getFormationId());
+            stmt.setInt(6, formation.getCapacity());
+            stmt.setInt(7, formation.getFormationId());
+            stmt.setInt(8, formation.getCapacity());
 
-            return stmt.executeUpdate() > 0;
+            int affectedRows = stmt.executeUpdate();
+            sample.setRows(affectedRows);
+            if (affectedRows > 0) {
+                CACHE.put(formation.getFormationId(), formation);
+                return true;
+            }
         } catch (SQLException e) {
+            UPDATE_FORMATION.recordError();
             System.err.println("Error updating formation: " + e.getMessage());
         }
+        CACHE.invalidate(formation.getFormationId());
         return false;
     }
 
+    /**
+     * Deletes a formation and its enrollments in one transaction.
+     * Locks are taken in the same order as EnrollmentDAO.enroll (formation row
+     * first), and a deadlock victim is retried like the enrollment methods.
+     *
+     * @param id the formation ID
+     * @return true if the formation was deleted
+     */
     public boolean deleteFormation(int id) {
+        try (MetricsRegistry.Sample sample = DELETE_FORMATION.start()) {
+            boolean deleted = deleteFormationWithRetry(id);
+            sample.setRows(deleted ? 1 : 0);
+            return deleted;
+        } finally {
+            CACHE.invalidate(id);
+        }
+    }
+
+    private boolean deleteFormationWithRetry(int id) {
+        String lockFormation = "SELECT id_formation FROM formation WHERE id_formation = ? FOR UPDATE";
+        String deleteEnrollments = "DELETE FROM client_formation WHERE id_formation = ?";
         String query = "DELETE FROM formation WHERE id_formation = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
 
-            stmt.setInt(1, id);
-            return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Error deleting formation: " + e.getMessage());
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement lockStmt = conn.prepareStatement(lockFormation);
+                     PreparedStatement enrollmentStmt = conn.prepareStatement(deleteEnrollments);
+                     PreparedStatement stmt = conn.prepareStatement(query)) {
+
+                    lockStmt.setInt(1, id);
+                    try (ResultSet rs = lockStmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return false;
+                        }
+                    }
+
+                    enrollmentStmt.setInt(1, id);
+                    enrollmentStmt.executeUpdate();
+                    stmt.setInt(1, id);
+                    int affectedRows = stmt.executeUpdate();
+                    conn.commit();
+                    return affectedRows > 0;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                if (EnrollmentDAO.isRetryable(e) && attempt < EnrollmentDAO.MAX_ATTEMPTS) {
+                    continue;
+                }
+                DELETE_FORMATION.recordError();
+                System.err.println("Error deleting formation: " + e.getMessage());
+                return false;
+            }
         }
-        return false;
+    }
+
+    /**
+     * Builds a Formation from the current row of a result set
+     *
+     * @param rs a result set positioned on a row containing the formation columns
+     * @return the mapped Formation
+     * @throws SQLException if a column is missing
+     */
+    static Formation mapFormation(ResultSet rs) throws SQLException {
+        return new Formation(
+                rs.getInt("id_formation"),
+                rs.getString("libele"),
+                rs.getString("description"),
+                rs.getDate("date_debut"),
+                rs.getInt("duree"),
+                rs.getDouble("tarif"),
+                rs.getInt("capacite")
+        );
     }
 }
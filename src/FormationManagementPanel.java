@@ -2,27 +2,72 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.sql.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 public class FormationManagementPanel extends JPanel {
-    private FormationDAO formationDAO;
+    // Name of the panel's loads and writes in the DomainStore
+    private static final String NAME = "FormationManagementPanel";
     private JTable formationTable;
     private DefaultTableModel tableModel;
-    private JTextField libeleField, descriptionField, dureeField, tarifField;
+    private JTextField libeleField, descriptionField, dureeField, tarifField, capaciteField;
     private JFormattedTextField dateField;
-    private JButton addButton, editButton, deleteButton, clearButton;
+    private JButton addButton, editButton, deleteButton, clearButton, exportButton, refreshButton;
+    private final DomainStore store = DomainStore.getInstance();
+    private final JProgressBar progressBar = BackgroundLoader.createProgressBar();
+
+    // The formations are loaded by the store, once for every panel, and kept current by its deltas
+    private final DomainStore.Listener storeListener = new DomainStore.Listener() {
+        @Override
+        public void formationsLoaded(List<Formation> formations) {
+            tableModel.setRowCount(0); // Clear existing data
+            for (Formation formation : formations) {
+                tableModel.addRow(toRow(formation));
+            }
+        }
+
+        @Override
+        public void formationsChanged(Delta<Integer, Formation> delta) {
+            applyChanges(delta);
+        }
+
+        @Override
+        public void loadingChanged(boolean loading) {
+            progressBar.setVisible(loading);
+        }
+
+        @Override
+        public void loadFailed(Exception e) {
+            JOptionPane.showMessageDialog(FormationManagementPanel.this, "Erreur: " + e.getMessage(),
+                    "Erreur", JOptionPane.ERROR_MESSAGE);
+        }
+    };
 
     public FormationManagementPanel() {
-        this.formationDAO = new FormationDAO();
         initializeComponents();
         setupLayout();
         setupEventListeners();
-        loadFormations();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        store.addListener(storeListener);
+        store.loadFormations(NAME);
+    }
+
+    @Override
+    public void removeNotify() {
+        store.removeListener(storeListener);
+        super.removeNotify();
     }
 
     private void initializeComponents() {
         // Table setup
-        String[] columnNames = {"ID", "Libellé", "Description", "Date Début", "Durée", "Tarif"};
+        String[] columnNames = {"ID", "Libellé", "Description", "Date Début", "Durée", "Tarif", "Capacité"};
         tableModel = new DefaultTableModel(columnNames, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
@@ -37,6 +82,7 @@ public class FormationManagementPanel extends JPanel {
         descriptionField = new JTextField(20);
         dureeField = new JTextField(5);
         tarifField = new JTextField(8);
+        capaciteField = new JTextField(5);
         dateField = new JFormattedTextField(new java.text.SimpleDateFormat("yyyy-MM-dd"));
         dateField.setColumns(10);
 
@@ -45,6 +91,8 @@ public class FormationManagementPanel extends JPanel {
         editButton = new JButton("Modifier");
         deleteButton = new JButton("Supprimer");
         clearButton = new JButton("Vider");
+        exportButton = new JButton("Exporter");
+        refreshButton = new JButton("Actualiser");
 
         // Style buttons
         addButton.setBackground(new Color(46, 125, 50));
@@ -71,6 +119,7 @@ public class FormationManagementPanel extends JPanel {
         addFormField(formPanel, gbc, "Date Début:", dateField, 2);
         addFormField(formPanel, gbc, "Durée (semaines):", dureeField, 3);
         addFormField(formPanel, gbc, "Tarif:", tarifField, 4);
+        addFormField(formPanel, gbc, "Capacité:", capaciteField, 5);
 
         // Button panel
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
@@ -78,9 +127,11 @@ public class FormationManagementPanel extends JPanel {
         buttonPanel.add(editButton);
         buttonPanel.add(deleteButton);
         buttonPanel.add(clearButton);
+        buttonPanel.add(exportButton);
+        buttonPanel.add(refreshButton);
 
         gbc.gridx = 0;
-        gbc.gridy = 5;
+        gbc.gridy = 6;
         gbc.gridwidth = 2;
         gbc.fill = GridBagConstraints.CENTER;
         formPanel.add(buttonPanel, gbc);
@@ -92,6 +143,7 @@ public class FormationManagementPanel extends JPanel {
         // Add components to main panel
         add(formPanel, BorderLayout.NORTH);
         add(tableScrollPane, BorderLayout.CENTER);
+        add(progressBar, BorderLayout.SOUTH);
     }
 
     private void addFormField(JPanel panel, GridBagConstraints gbc, String label, JComponent field, int row) {
@@ -117,6 +169,12 @@ public class FormationManagementPanel extends JPanel {
         // Clear button
         clearButton.addActionListener(e -> clearForm());
 
+        // Export button
+        exportButton.addActionListener(e -> ExportTask.start(this, DataExporter.Dataset.FORMATIONS));
+
+        // Refresh button
+        refreshButton.addActionListener(e -> store.refresh(NAME));
+
         // Table selection listener
         formationTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
@@ -125,22 +183,70 @@ public class FormationManagementPanel extends JPanel {
         });
     }
 
-    private void loadFormations() {
-        tableModel.setRowCount(0); // Clear existing data
-        List<Formation> formations = formationDAO.getAllFormations();
-        for (Formation formation : formations) {
-            Object[] row = {
-                    formation.getFormationId(),
-                    formation.getTitle(),
-                    formation.getDescription(),
-                    formation.getStartDate(),
-                    formation.getduree(),
-                    formation.getPrice()
-            };
-            tableModel.addRow(row);
+    /**
+     * Updates, removes and inserts the changed rows; the table stays ordered by start date
+     */
+    private void applyChanges(Delta<Integer, Formation> delta) {
+        Map<Integer, Formation> changed = delta.getChanged();
+        Set<Integer> placed = new HashSet<>();
+        for (int row = tableModel.getRowCount() - 1; row >= 0; row--) {
+            int id = (int) tableModel.getValueAt(row, 0);
+            Formation formation = changed.get(id);
+            if (delta.getDeleted().contains(id)) {
+                tableModel.removeRow(row);
+            } else if (formation != null) {
+                if (Objects.equals(tableModel.getValueAt(row, 3), formation.getStartDate())) {
+                    Object[] values = toRow(formation);
+                    for (int column = 1; column < values.length; column++) {
+                        if (!Objects.equals(tableModel.getValueAt(row, column), values[column])) {
+                            tableModel.setValueAt(values[column], row, column);
+                        }
+                    }
+                    placed.add(id);
+                } else {
+                    tableModel.removeRow(row); // moved: inserted again at its new date below
+                }
+            }
+        }
+
+        for (Formation formation : changed.values()) {
+            if (!placed.contains(formation.getFormationId())) {
+                tableModel.insertRow(insertionRow(formation), toRow(formation));
+            }
         }
     }
 
+    /**
+     * Finds the row to insert a formation at, after the formations starting on or before it
+     */
+    private int insertionRow(Formation formation) {
+        java.util.Date start = formation.getStartDate();
+        if (start == null) {
+            return 0; // MySQL sorts NULL first
+        }
+        int row = tableModel.getRowCount();
+        while (row > 0) {
+            Object previous = tableModel.getValueAt(row - 1, 3);
+            if (previous == null || !((java.util.Date) previous).after(start)) {
+                break;
+            }
+            row--;
+        }
+        return row;
+    }
+
+    private static Object[] toRow(Formation formation) {
+        return new Object[]{
+                formation.getFormationId(),
+                formation.getTitle(),
+                formation.getDescription(),
+                formation.getStartDate(),
+                formation.getduree(),
+                formation.getPrice(),
+                formation.getCapacity()
+        };
+    }
+
     private void addFormation() {
         try {
             Formation formation = createFormationFromInput();
@@ -156,10 +262,17 @@ public class FormationManagementPanel extends JPanel {
                         formation.getPrice()
                 };
                 tableModel.addRow(row);*/
-                formationDAO.insertFormation(formation);
-                loadFormations();
-                clearForm();
-                JOptionPane.showMessageDialog(this, "Formation ajoutée avec succès!");
+                addButton.setEnabled(false);
+                store.insertFormation(formation, NAME, inserted -> {
+                    addButton.setEnabled(true);
+                    if (inserted) {
+                        clearForm();
+                        JOptionPane.showMessageDialog(this, "Formation ajoutée avec succès!");
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Erreur: La formation n'a pas pu être ajoutée",
+                                "Erreur", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
             }
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Erreur: " + e.getMessage(), "Erreur", JOptionPane.ERROR_MESSAGE);
@@ -178,6 +291,10 @@ public class FormationManagementPanel extends JPanel {
             if (formation != null) {
                 // Set the ID from the selected row
                 formation.setFormationId((int) tableModel.getValueAt(selectedRow, 0));
+                int enrolled = store.getEnrollmentCount(formation.getFormationId());
+                if (formation.getCapacity() < enrolled) {
+                    throw new Exception("La capacité ne peut pas être inférieure au nombre d'inscrits (" + enrolled + ")");
+                }
 
                 // In a real application, you would call formationDAO.update(formation)
                 // For now, just update the table
@@ -186,10 +303,18 @@ public class FormationManagementPanel extends JPanel {
                 tableModel.setValueAt(formation.getStartDate(), selectedRow, 3);
                 tableModel.setValueAt(formation.getduree(), selectedRow, 4);
                 tableModel.setValueAt(formation.getPrice(), selectedRow, 5);*/
-                formationDAO.updateFormation(formation);
-                loadFormations();
-                clearForm();
-                JOptionPane.showMessageDialog(this, "Formation modifiée avec succès!");
+                editButton.setEnabled(false);
+                store.updateFormation(formation, NAME, updated -> {
+                    editButton.setEnabled(true);
+                    if (updated) {
+                        clearForm();
+                        JOptionPane.showMessageDialog(this, "Formation modifiée avec succès!");
+                    } else {
+                        JOptionPane.showMessageDialog(this,
+                                "Erreur: La formation n'a pas pu être modifiée (capacité inférieure aux inscriptions ?)",
+                                "Erreur", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
             }
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Erreur: " + e.getMessage(), "Erreur", JOptionPane.ERROR_MESSAGE);
@@ -211,9 +336,16 @@ public class FormationManagementPanel extends JPanel {
             int id = (int) tableModel.getValueAt(selectedRow, 0);
             // In a real application, you would call formationDAO.delete(id)
             //tableModel.removeRow(selectedRow);
-            formationDAO.deleteFormation(id);
-            loadFormations();
-            JOptionPane.showMessageDialog(this, "Formation supprimée avec succès!");
+            deleteButton.setEnabled(false);
+            store.deleteFormation(id, NAME, deleted -> {
+                deleteButton.setEnabled(true);
+                if (deleted) {
+                    JOptionPane.showMessageDialog(this, "Formation supprimée avec succès!");
+                } else {
+                    JOptionPane.showMessageDialog(this, "Erreur: La formation n'a pas pu être supprimée",
+                            "Erreur", JOptionPane.ERROR_MESSAGE);
+                }
+            });
         }
     }
 
@@ -223,9 +355,11 @@ public class FormationManagementPanel extends JPanel {
         String dateStr = dateField.getText().trim();
         String dureeStr = dureeField.getText().trim();
         String tarifStr = tarifField.getText().trim();
+        String capaciteStr = capaciteField.getText().trim();
 
         // Validation
-        if (libele.isEmpty() || description.isEmpty() || dateStr.isEmpty() || dureeStr.isEmpty() || tarifStr.isEmpty()) {
+        if (libele.isEmpty() || description.isEmpty() || dateStr.isEmpty() || dureeStr.isEmpty() || tarifStr.isEmpty()
+                || capaciteStr.isEmpty()) {
             throw new Exception("Tous les champs sont obligatoires");
         }
 
@@ -233,8 +367,12 @@ public class FormationManagementPanel extends JPanel {
             Date dateDebut = Date.valueOf(dateStr);
             int duree = Integer.parseInt(dureeStr);
             double tarif = Double.parseDouble(tarifStr);
+            int capacite = Integer.parseInt(capaciteStr);
+            if (capacite <= 0) {
+                throw new Exception("La capacité doit être supérieure à zéro");
+            }
 
-            return new Formation(0, libele, description, dateDebut, duree, tarif);
+            return new Formation(0, libele, description, dateDebut, duree, tarif, capacite);
         } catch (IllegalArgumentException e) {
             throw new Exception("Format invalide: " + e.getMessage());
         }
@@ -248,6 +386,7 @@ public class FormationManagementPanel extends JPanel {
             dateField.setValue(tableModel.getValueAt(selectedRow, 3));
             dureeField.setText(tableModel.getValueAt(selectedRow, 4).toString());
             tarifField.setText(tableModel.getValueAt(selectedRow, 5).toString());
+            capaciteField.setText(tableModel.getValueAt(selectedRow, 6).toString());
         }
     }
 
@@ -257,6 +396,7 @@ public class FormationManagementPanel extends JPanel {
         dateField.setValue(null);
         dureeField.setText("");
         tarifField.setText("");
+        capaciteField.setText("");
         formationTable.clearSelection();
     }
 
@@ -0,0 +1,53 @@
+/**
+ * Read-only row of the admin dashboard: the seats taken and revenue of one formation
+ */
+public class FormationStats {
+    private final int formationId;
+    private final String title;
+    private final double price;
+    private final int capacity;
+    private final int enrolled;
+
+    public FormationStats(int formationId, String title, double price, int capacity, int enrolled) {
+        this.formationId = formationId;
+        this.title = title;
+        this.price = price;
+        this.capacity = capacity;
+        this.enrolled = enrolled;
+    }
+
+    // Getters
+    public int getFormationId() {
+        return formationId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getEnrolled() {
+        return enrolled;
+    }
+
+    /**
+     * Gets the revenue of the formation: its price for every enrolled client
+     */
+    public double getRevenue() {
+        return price * enrolled;
+    }
+
+    /**
+     * Gets the share of seats taken, between 0 and 1 (0 for a formation without seats)
+     */
+    public double getFillRate() {
+        return capacity > 0 ? (double) enrolled / capacity : 0;
+    }
+}
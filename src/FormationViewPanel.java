@@ -10,11 +10,38 @@ import java.util.List;
  */
 public class FormationViewPanel extends JPanel {
 
-    private final FormationDAO formationDAO;
-    private JPanel cardsPanel;
+    // Name of the panel's loads in the DomainStore
+    private static final String NAME = "FormationViewPanel";
+
+    private final DomainStore store = DomainStore.getInstance();
+    private FormationCardView cardView;
     private JScrollPane scrollPane;
     private JPanel detailPanel;
     private JDialog detailDialog;
+    private final JProgressBar progressBar = BackgroundLoader.createProgressBar();
+
+    // Formations and enrollment counts come from the store, shared with the other panels
+    private final DomainStore.Listener storeListener = new DomainStore.Listener() {
+        @Override
+        public void formationsLoaded(List<Formation> formations) {
+            cardView.setFormations(formations);
+        }
+
+        @Override
+        public void formationsChanged(Delta<Integer, Formation> delta) {
+            cardView.setFormations(store.getFormations());
+        }
+
+        @Override
+        public void enrollmentCountsChanged() {
+            cardView.repaint();
+        }
+
+        @Override
+        public void loadingChanged(boolean loading) {
+            progressBar.setVisible(loading);
+        }
+    };
 
     // Modern color scheme
     private final Color CARD_BACKGROUND = Color.WHITE;
@@ -37,9 +64,20 @@ public class FormationViewPanel extends JPanel {
      * Constructor
      */
     public FormationViewPanel() {
-        this.formationDAO = new FormationDAO();
         initComponents();
-        loadFormations();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        store.addListener(storeListener);
+        store.loadFormations(NAME);
+    }
+
+    @Override
+    public void removeNotify() {
+        store.removeListener(storeListener);
+        super.removeNotify();
     }
 
     /**
@@ -53,14 +91,13 @@ public class FormationViewPanel extends JPanel {
         JPanel headerPanel = createHeaderPanel();
         add(headerPanel, BorderLayout.NORTH);
 
-        // Cards container with proper scrolling
-        cardsPanel = new JPanel();
-        cardsPanel.setLayout(new WrapLayout(FlowLayout.LEFT, 15, 15));
-        cardsPanel.setBackground(BACKGROUND_COLOR);
-        cardsPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        // Cards view: only the visible cards are rendered, with one reusable card component
+        cardView = new FormationCardView(new FormationCardRenderer());
+        cardView.setBackground(BACKGROUND_COLOR);
+        cardView.setCardClickListener(this::showFormationDetails);
 
         // Scroll pane with modern styling
-        scrollPane = new JScrollPane(cardsPanel);
+        scrollPane = new JScrollPane(cardView);
         scrollPane.setBorder(BorderFactory.createEmptyBorder());
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
         scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
@@ -68,6 +105,7 @@ public class FormationViewPanel extends JPanel {
         scrollPane.getViewport().setBackground(BACKGROUND_COLOR);
 
         add(scrollPane, BorderLayout.CENTER);
+        add(progressBar, BorderLayout.SOUTH);
 
         // Detail dialog setup
         setupDetailDialog();
@@ -98,7 +136,7 @@ public class FormationViewPanel extends JPanel {
         buttonSection.setBackground(Color.WHITE);
 
         JButton refreshButton = createModernButton("Refresh", PRIMARY_COLOR);
-        refreshButton.addActionListener(e -> loadFormations());
+        refreshButton.addActionListener(e -> store.refresh(NAME));
         buttonSection.add(refreshButton);
 
         headerPanel.add(titleSection, BorderLayout.WEST);
@@ -152,93 +190,87 @@ public class FormationViewPanel extends JPanel {
     }
 
     /**
-     * Load formations from the database and display them as cards
+     * Gets the enrollment count of a formation, as last loaded by the store
      */
-    public void loadFormations() {
-        cardsPanel.removeAll();
-        List<Formation> formations = formationDAO.getAllFormations();
-
-        for (Formation formation : formations) {
-            JPanel card = createModernFormationCard(formation);
-            cardsPanel.add(card);
-        }
-
-        cardsPanel.revalidate();
-        cardsPanel.repaint();
+    private int getEnrollmentCount(Formation formation) {
+        return store.getEnrollmentCount(formation.getFormationId());
     }
 
     /**
-     * Create a modern, compact formation card
+     * Checks availability from the store's counts, without a query
      */
-    private JPanel createModernFormationCard(Formation formation) {
-        JPanel card = new JPanel();
-        card.setLayout(new BorderLayout(8, 8));
-        card.setBackground(CARD_BACKGROUND);
-        card.setPreferredSize(new Dimension(280, 140));
-        card.setBorder(createCardBorder());
-
-        // Header with title and price
-        JPanel headerPanel = new JPanel(new BorderLayout());
-        headerPanel.setBackground(CARD_BACKGROUND);
-
-        JLabel titleLabel = new JLabel(truncateText(formation.getTitle(), 25));
-        titleLabel.setFont(TITLE_FONT);
-        titleLabel.setForeground(new Color(31, 41, 55));
-        titleLabel.setToolTipText(formation.getTitle());
-
-        JLabel priceLabel = new JLabel(String.format("%.0f€", formation.getPrice()));
-        priceLabel.setFont(new Font("Segoe UI", Font.BOLD, 12));
-        priceLabel.setForeground(PRIMARY_COLOR);
-
-        headerPanel.add(titleLabel, BorderLayout.WEST);
-        headerPanel.add(priceLabel, BorderLayout.EAST);
-
-        card.add(headerPanel, BorderLayout.NORTH);
-
-        // Content panel with key info
-        JPanel contentPanel = new JPanel();
-        contentPanel.setLayout(new BoxLayout(contentPanel, BoxLayout.Y_AXIS));
-        contentPanel.setBackground(CARD_BACKGROUND);
-
-        // Date and duration row
-        SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy");
-        String startDate = dateFormat.format(formation.getStartDate());
-
-        contentPanel.add(createCompactInfoRow("📅", startDate));
-        contentPanel.add(Box.createVerticalStrut(4));
-        contentPanel.add(createCompactInfoRow("⏱️", formation.getduree() + " days"));
-        contentPanel.add(Box.createVerticalStrut(4));
-
-        // Availability status
-        boolean isAvailable = formationDAO.isFormationAvailable(formation.getFormationId());
-        JPanel statusPanel = createStatusPanel(isAvailable);
-        contentPanel.add(statusPanel);
-
-        card.add(contentPanel, BorderLayout.CENTER);
-
-        // Footer with view button
-        JPanel footerPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
-        footerPanel.setBackground(CARD_BACKGROUND);
-
-        JButton viewButton = new JButton("View Details");
-        viewButton.setFont(SMALL_FONT);
-        viewButton.setForeground(PRIMARY_COLOR);
-        viewButton.setBackground(Color.WHITE);
-        viewButton.setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createLineBorder(PRIMARY_COLOR, 1),
-                BorderFactory.createEmptyBorder(4, 12, 4, 12)
-        ));
-        viewButton.setFocusPainted(false);
-        viewButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        viewButton.addActionListener(e -> showFormationDetails(formation));
-
-        footerPanel.add(viewButton);
-        card.add(footerPanel, BorderLayout.SOUTH);
+    private boolean isAvailable(Formation formation) {
+        return store.isFormationAvailable(formation);
+    }
 
-        // Add hover effects and click handler
-        addCardInteractivity(card, formation);
+    /**
+     * Modern, compact formation card. A single instance is reconfigured to paint every card.
+     */
+    private class FormationCardRenderer extends JPanel implements FormationCardView.CardRenderer {
+        private final JLabel titleLabel = new JLabel();
+        private final JLabel priceLabel = new JLabel();
+        private final JLabel dateLabel = new JLabel();
+        private final JLabel durationLabel = new JLabel();
+        private final JLabel statusLabel = new JLabel();
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy");
+
+        FormationCardRenderer() {
+            setLayout(new BorderLayout(8, 8));
+
+            // Header with title and price
+            JPanel headerPanel = new JPanel(new BorderLayout());
+            titleLabel.setFont(TITLE_FONT);
+            titleLabel.setForeground(new Color(31, 41, 55));
+            priceLabel.setFont(new Font("Segoe UI", Font.BOLD, 12));
+            priceLabel.setForeground(PRIMARY_COLOR);
+            headerPanel.add(titleLabel, BorderLayout.WEST);
+            headerPanel.add(priceLabel, BorderLayout.EAST);
+            add(headerPanel, BorderLayout.NORTH);
+
+            // Content panel with key info
+            JPanel contentPanel = new JPanel();
+            contentPanel.setLayout(new BoxLayout(contentPanel, BoxLayout.Y_AXIS));
+            contentPanel.add(createCompactInfoRow("📅", dateLabel));
+            contentPanel.add(Box.createVerticalStrut(4));
+            contentPanel.add(createCompactInfoRow("⏱️", durationLabel));
+            contentPanel.add(Box.createVerticalStrut(4));
+            contentPanel.add(createStatusPanel(statusLabel));
+            add(contentPanel, BorderLayout.CENTER);
+
+            // Footer with view button (painted only: clicking anywhere on the card opens the details)
+            JPanel footerPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+            JButton viewButton = new JButton("View Details");
+            viewButton.setFont(SMALL_FONT);
+            viewButton.setForeground(PRIMARY_COLOR);
+            viewButton.setBackground(Color.WHITE);
+            viewButton.setBorder(BorderFactory.createCompoundBorder(
+                    BorderFactory.createLineBorder(PRIMARY_COLOR, 1),
+                    BorderFactory.createEmptyBorder(4, 12, 4, 12)
+            ));
+            viewButton.setFocusPainted(false);
+            footerPanel.add(viewButton);
+            add(footerPanel, BorderLayout.SOUTH);
+        }
 
-        return card;
+        @Override
+        public Component getCardComponent(FormationCardView view, Formation formation, boolean hovered) {
+            titleLabel.setText(truncateText(formation.getTitle(), 25));
+            priceLabel.setText(String.format("%.0f€", formation.getPrice()));
+            dateLabel.setText(dateFormat.format(formation.getStartDate()));
+            durationLabel.setText(formation.getduree() + " days");
+            applyStatus(statusLabel, isAvailable(formation));
+
+            // Hover effect
+            Color background = hovered ? CARD_HOVER : CARD_BACKGROUND;
+            setBackground(background);
+            updateChildrenBackground(this, background);
+            setBorder(hovered
+                    ? BorderFactory.createCompoundBorder(
+                            BorderFactory.createLineBorder(PRIMARY_COLOR, 1),
+                            BorderFactory.createEmptyBorder(12, 14, 12, 14))
+                    : createCardBorder());
+            return this;
+        }
     }
 
     /**
@@ -251,40 +283,6 @@ public class FormationViewPanel extends JPanel {
         );
     }
 
-    /**
-     * Add hover effects and click functionality to card
-     */
-    private void addCardInteractivity(JPanel card, Formation formation) {
-        MouseAdapter mouseHandler = new MouseAdapter() {
-            @Override
-            public void mouseClicked(MouseEvent e) {
-                showFormationDetails(formation);
-            }
-
-            @Override
-            public void mouseEntered(MouseEvent e) {
-                card.setCursor(new Cursor(Cursor.HAND_CURSOR));
-                card.setBackground(CARD_HOVER);
-                updateChildrenBackground(card, CARD_HOVER);
-                card.setBorder(BorderFactory.createCompoundBorder(
-                        BorderFactory.createLineBorder(PRIMARY_COLOR, 1),
-                        BorderFactory.createEmptyBorder(12, 14, 12, 14)
-                ));
-            }
-
-            @Override
-            public void mouseExited(MouseEvent e) {
-                card.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
-                card.setBackground(CARD_BACKGROUND);
-                updateChildrenBackground(card, CARD_BACKGROUND);
-                card.setBorder(createCardBorder());
-            }
-        };
-
-        card.addMouseListener(mouseHandler);
-        addMouseListenerToChildren(card, mouseHandler);
-    }
-
     /**
      * Update background color of child components
      */
@@ -299,29 +297,16 @@ public class FormationViewPanel extends JPanel {
         }
     }
 
-    /**
-     * Add mouse listener to child components for consistent hover behavior
-     */
-    private void addMouseListenerToChildren(Container container, MouseListener listener) {
-        for (Component component : container.getComponents()) {
-            component.addMouseListener(listener);
-            if (component instanceof Container) {
-                addMouseListenerToChildren((Container) component, listener);
-            }
-        }
-    }
-
     /**
      * Create compact info row with icon
      */
-    private JPanel createCompactInfoRow(String icon, String text) {
+    private JPanel createCompactInfoRow(String icon, JLabel textLabel) {
         JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
         panel.setBackground(CARD_BACKGROUND);
 
         JLabel iconLabel = new JLabel(icon);
         iconLabel.setFont(SMALL_FONT);
 
-        JLabel textLabel = new JLabel(text);
         textLabel.setFont(SMALL_FONT);
         textLabel.setForeground(SECONDARY_COLOR);
 
@@ -335,14 +320,22 @@ public class FormationViewPanel extends JPanel {
     /**
      * Create status panel showing availability
      */
-    private JPanel createStatusPanel(boolean isAvailable) {
+    private JPanel createStatusPanel(JLabel statusLabel) {
         JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
         panel.setBackground(CARD_BACKGROUND);
 
-        JLabel statusLabel = new JLabel();
         statusLabel.setFont(new Font("Segoe UI", Font.BOLD, 10));
         statusLabel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        statusLabel.setOpaque(true);
 
+        panel.add(statusLabel);
+        return panel;
+    }
+
+    /**
+     * Show availability on a status label
+     */
+    private void applyStatus(JLabel statusLabel, boolean isAvailable) {
         if (isAvailable) {
             statusLabel.setText("AVAILABLE");
             statusLabel.setForeground(SUCCESS_COLOR);
@@ -352,10 +345,6 @@ public class FormationViewPanel extends JPanel {
             statusLabel.setForeground(DANGER_COLOR);
             statusLabel.setBackground(new Color(239, 68, 68, 20));
         }
-        statusLabel.setOpaque(true);
-
-        panel.add(statusLabel);
-        return panel;
     }
 
     /**
@@ -429,8 +418,8 @@ public class FormationViewPanel extends JPanel {
         infoPanel.add(Box.createVerticalStrut(15));
 
         // Enrollment information
-        int enrollmentCount = formationDAO.getEnrollmentCount(formation.getFormationId());
-        boolean isAvailable = formationDAO.isFormationAvailable(formation.getFormationId());
+        int enrollmentCount = getEnrollmentCount(formation);
+        boolean isAvailable = isAvailable(formation);
 
         infoPanel.add(createDetailRow("Current Enrollment", String.valueOf(enrollmentCount)));
         infoPanel.add(Box.createVerticalStrut(15));
@@ -490,94 +479,6 @@ public class FormationViewPanel extends JPanel {
         return panel;
     }
 
-    /**
-     * Custom layout manager for wrapping cards
-     */
-    private static class WrapLayout extends FlowLayout {
-        public WrapLayout(int align, int hgap, int vgap) {
-            super(align, hgap, vgap);
-        }
-
-        @Override
-        public Dimension preferredLayoutSize(Container target) {
-            return layoutSize(target, true);
-        }
-
-        @Override
-        public Dimension minimumLayoutSize(Container target) {
-            Dimension minimum = layoutSize(target, false);
-            minimum.width -= (getHgap() + 1);
-            return minimum;
-        }
-
-        private Dimension layoutSize(Container target, boolean preferred) {
-            synchronized (target.getTreeLock()) {
-                int targetWidth = target.getSize().width;
-                Container container = target;
-
-                while (container.getSize().width == 0 && container.getParent() != null) {
-                    container = container.getParent();
-                }
-                targetWidth = container.getSize().width;
-
-                if (targetWidth == 0) {
-                    targetWidth = Integer.MAX_VALUE;
-                }
-
-                int hgap = getHgap();
-                int vgap = getVgap();
-                Insets insets = target.getInsets();
-                int horizontalInsetsAndGap = insets.left + insets.right + (hgap * 2);
-                int maxWidth = targetWidth - horizontalInsetsAndGap;
-
-                Dimension dim = new Dimension(0, 0);
-                int rowWidth = 0;
-                int rowHeight = 0;
-
-                int nmembers = target.getComponentCount();
-
-                for (int i = 0; i < nmembers; i++) {
-                    Component m = target.getComponent(i);
-
-                    if (m.isVisible()) {
-                        Dimension d = preferred ? m.getPreferredSize() : m.getMinimumSize();
-
-                        if (rowWidth + d.width > maxWidth) {
-                            addRow(dim, rowWidth, rowHeight);
-                            rowWidth = d.width;
-                            rowHeight = d.height;
-                        } else {
-                            rowWidth += hgap + d.width;
-                            rowHeight = Math.max(rowHeight, d.height);
-                        }
-                    }
-                }
-
-                addRow(dim, rowWidth, rowHeight);
-
-                dim.width = Math.max(dim.width, rowWidth);
-                dim.height += insets.top + insets.bottom + vgap * 2;
-
-                Container scrollPane = SwingUtilities.getAncestorOfClass(JScrollPane.class, target);
-                if (scrollPane != null && target.isValid()) {
-                    dim.width -= (hgap + 1);
-                }
-
-                return dim;
-            }
-        }
-
-        private void addRow(Dimension dim, int rowWidth, int rowHeight) {
-            dim.width = Math.max(dim.width, rowWidth);
-
-            if (dim.height > 0) {
-                dim.height += getVgap();
-            }
-
-            dim.height += rowHeight;
-        }
-    }
-
     /**
      * Test method to demonstrate the panel
      */
@@ -0,0 +1,391 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * JDBC wrapper timing every statement for the SlowQueryLog.
+ *
+ * Connections handed out by DatabaseConnection are wrapped in a proxy whose
+ * statements and result sets are proxies too, like the pooled connection
+ * handles of ConnectionPool. For each execution the wrapper records the SQL,
+ * the bound parameters, the time spent in execute and the time spent in
+ * ResultSet.next, and the number of rows returned or changed. Once the result
+ * set or the statement is closed, executions slower than the threshold are
+ * logged. A statement that fails is logged as soon as it throws, with its error
+ * code: lock wait timeouts, deadlocks and cancelled queries are among the
+ * slowest statements. Parameters are only copied by reference while the
+ * statement runs and formatted when it turns out to be slow; values bound to
+ * password columns are never logged.
+ */
+final class InstrumentedJdbc {
+
+    private static final Pattern PASSWORD_COLUMN = Pattern.compile("(?i).*(password|passwd|pwd|mot_de_passe)");
+    // The column compared to the next placeholder: "password = ?", "u.password LIKE ?"
+    private static final Pattern COMPARED_COLUMN = Pattern.compile("([\\w.`]+)\\s*(=|<>|!=|<=|>=|<|>|\\bLIKE)\\s*$",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern INSERT_COLUMNS = Pattern.compile(
+            "(?is)^\\s*(INSERT|REPLACE)\\s+(IGNORE\\s+)?INTO\\s+[\\w.`]+\\s*\\(([^)]*)\\)\\s*VALUES\\s*\\((.*)\\)");
+    private static final int MAX_PARAMETER_LENGTH = 100;
+
+    private InstrumentedJdbc() {
+    }
+
+    /**
+     * Wraps a connection so its statements are timed
+     *
+     * @param connection the connection to wrap
+     * @return the wrapped connection; closing it closes the original
+     */
+    static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(InstrumentedJdbc.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    /**
+     * Finds the parameters bound to a password column
+     *
+     * @param sql the statement text
+     * @return one flag per placeholder, true for a password value
+     */
+    static boolean[] sensitiveParameters(String sql) {
+        int count = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                count++;
+            }
+        }
+        boolean[] sensitive = new boolean[count];
+
+        // INSERT INTO t (a, password) VALUES (?, ?): placeholders follow the column list
+        Matcher insert = INSERT_COLUMNS.matcher(sql);
+        if (insert.find()) {
+            String[] columns = insert.group(3).split(",");
+            String[] values = insert.group(4).split(",");
+            int placeholder = 0;
+            for (int i = 0; i < values.length && placeholder < count; i++) {
+                if (values[i].trim().equals("?")) {
+                    sensitive[placeholder++] = i < columns.length && isPasswordColumn(columns[i]);
+                }
+            }
+        }
+
+        // WHERE / SET: the column on the left of the placeholder
+        int placeholder = 0;
+        int segmentStart = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                Matcher compared = COMPARED_COLUMN.matcher(sql.substring(segmentStart, i));
+                if (compared.find() && isPasswordColumn(compared.group(1))) {
+                    sensitive[placeholder] = true;
+                }
+                placeholder++;
+                segmentStart = i + 1;
+            }
+        }
+        return sensitive;
+    }
+
+    private static boolean isPasswordColumn(String column) {
+        String name = column.trim().replace("`", "");
+        int dot = name.lastIndexOf('.');
+        return PASSWORD_COLUMN.matcher(dot >= 0 ? name.substring(dot + 1) : name).matches();
+    }
+
+    static String formatParameter(Object value, boolean sensitive) {
+        if (sensitive) {
+            return "***";
+        }
+        if (value == null) {
+            return "NULL";
+        }
+        String text = value.toString();
+        if (text.length() > MAX_PARAMETER_LENGTH) {
+            text = text.substring(0, MAX_PARAMETER_LENGTH) + "...";
+        }
+        return value instanceof String ? "'" + text + "'" : text;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Handles the methods every proxy answers itself
+     *
+     * @return the result, or null if the method must be forwarded
+     */
+    private static Object identity(Object proxy, Method method, Object[] args, Object target) {
+        switch (method.getName()) {
+            case "equals":
+                return args != null && args.length == 1 ? proxy == args[0] : null;
+            case "hashCode":
+                return method.getParameterCount() == 0 ? System.identityHashCode(proxy) : null;
+            case "toString":
+                return method.getParameterCount() == 0 ? "Instrumented[" + target + "]" : null;
+            default:
+                return null;
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object own = identity(proxy, method, args, connection);
+            if (own != null) {
+                return own;
+            }
+            Object result = InstrumentedJdbc.invoke(connection, method, args);
+            String name = method.getName();
+            if (result instanceof Statement && (name.equals("createStatement") || name.equals("prepareStatement")
+                    || name.equals("prepareCall"))) {
+                String sql = name.equals("createStatement") ? null : (String) args[0];
+                Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                        : result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+                return Proxy.newProxyInstance(InstrumentedJdbc.class.getClassLoader(), new Class<?>[]{type},
+                        new StatementHandler((Statement) result, sql));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * One execution of a statement, finished when its rows have been read
+     */
+    private static final class Execution {
+        private final String sql;
+        private final Object[] parameters;
+        private final boolean[] sensitive;
+        private long executionNanos;
+        private long fetchNanos;
+        private long rows;
+        private String error;
+        private boolean finished;
+
+        Execution(String sql, Object[] parameters, boolean[] sensitive) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.sensitive = sensitive;
+        }
+
+        void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            long executionMicros = executionNanos / 1_000;
+            long fetchMicros = fetchNanos / 1_000;
+            if (SlowQueryLog.isSlow(executionMicros + fetchMicros)) {
+                List<String> formatted = new ArrayList<>(parameters.length);
+                for (int i = 0; i < parameters.length; i++) {
+                    formatted.add(formatParameter(parameters[i], i < sensitive.length && sensitive[i]));
+                }
+                SlowQueryLog.log(sql, Collections.unmodifiableList(formatted), executionMicros, fetchMicros, rows,
+                        error);
+            }
+        }
+
+        /**
+         * Records the error that ended the execution
+         */
+        void fail(Throwable e) {
+            error = describeError(e);
+        }
+    }
+
+    /**
+     * Describes a failure for the slow query log, as "1205 (HY000): Lock wait timeout exceeded..."
+     */
+    static String describeError(Throwable e) {
+        if (e instanceof SQLException) {
+            SQLException sqlException = (SQLException) e;
+            return sqlException.getErrorCode() + " (" + sqlException.getSQLState() + "): " + e.getMessage();
+        }
+        return e.getClass().getName() + ": " + e.getMessage();
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private static final Object[] NO_PARAMETERS = new Object[0];
+
+        private final Statement statement;
+        private final String preparedSql;
+        private final boolean[] sensitive;
+        private Object[] parameters = NO_PARAMETERS;
+        private int batchSize;
+        private Execution pending;
+
+        StatementHandler(Statement statement, String preparedSql) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+            this.sensitive = preparedSql != null ? sensitiveParameters(preparedSql) : new boolean[0];
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object own = identity(proxy, method, args, statement);
+            if (own != null) {
+                return own;
+            }
+            String name = method.getName();
+
+            if (name.startsWith("set") && preparedSql != null && args != null && args.length >= 2
+                    && args[0] instanceof Integer) {
+                bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters = NO_PARAMETERS;
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+            } else if (name.startsWith("execute")) {
+                return execute(proxy, method, args, name);
+            } else if (name.equals("getResultSet")) {
+                Object result = InstrumentedJdbc.invoke(statement, method, args);
+                return result != null && pending != null && !pending.finished
+                        ? wrapResultSet((ResultSet) result, (Statement) proxy) : result;
+            } else if (name.equals("close")) {
+                finishPending();
+            }
+            return InstrumentedJdbc.invoke(statement, method, args);
+        }
+
+        private void bind(int index, Object value) {
+            if (index < 1) {
+                return;
+            }
+            if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index, sensitive.length));
+            }
+            parameters[index - 1] = value;
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args, String name) throws Throwable {
+            finishPending();
+            // Statement.executeQuery(sql) and the like carry their own SQL and have no bound parameters
+            boolean direct = args != null && args.length > 0 && args[0] instanceof String;
+            String sql = direct ? (String) args[0] : preparedSql;
+            if (name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+                sql = "/* batch of " + batchSize + " */ " + sql;
+                batchSize = 0;
+            }
+            Execution execution = direct
+                    ? new Execution(sql, NO_PARAMETERS, sensitive)
+                    : new Execution(sql, parameters.clone(), sensitive);
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = InstrumentedJdbc.invoke(statement, method, args);
+            } catch (Throwable e) {
+                execution.executionNanos = System.nanoTime() - start;
+                execution.fail(e);
+                execution.finish();
+                throw e;
+            }
+            execution.executionNanos = System.nanoTime() - start;
+
+            pending = execution;
+            if (result instanceof ResultSet) {
+                return wrapResultSet((ResultSet) result, (Statement) proxy);
+            }
+            if (result instanceof Integer || result instanceof Long) {
+                execution.rows = ((Number) result).longValue();
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    execution.rows += Math.max(count, 0);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    execution.rows += Math.max(count, 0);
+                }
+            }
+            if (!Boolean.TRUE.equals(result)) {
+                // No rows to read: execute(sql) returning true waits for getResultSet instead
+                finishPending();
+            }
+            return result;
+        }
+
+        private ResultSet wrapResultSet(ResultSet resultSet, Statement owner) {
+            return (ResultSet) Proxy.newProxyInstance(InstrumentedJdbc.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, new ResultSetHandler(resultSet, owner, pending));
+        }
+
+        private void finishPending() {
+            if (pending != null) {
+                pending.finish();
+                pending = null;
+            }
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final Statement owner;
+        private final Execution execution;
+
+        ResultSetHandler(ResultSet resultSet, Statement owner, Execution execution) {
+            this.resultSet = resultSet;
+            this.owner = owner;
+            this.execution = execution;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object own = identity(proxy, method, args, resultSet);
+            if (own != null) {
+                return own;
+            }
+            switch (method.getName()) {
+                case "next": {
+                    long start = System.nanoTime();
+                    Object hasRow;
+                    try {
+                        hasRow = InstrumentedJdbc.invoke(resultSet, method, args);
+                    } catch (Throwable e) {
+                        // Logged when the result set is closed, with the time spent reading until the error
+                        execution.fetchNanos += System.nanoTime() - start;
+                        execution.fail(e);
+                        throw e;
+                    }
+                    execution.fetchNanos += System.nanoTime() - start;
+                    if (Boolean.TRUE.equals(hasRow)) {
+                        execution.rows++;
+                    }
+                    return hasRow;
+                }
+                case "close": {
+                    Object result = InstrumentedJdbc.invoke(resultSet, method, args);
+                    execution.finish();
+                    return result;
+                }
+                case "getStatement":
+                    return owner;
+                default:
+                    return InstrumentedJdbc.invoke(resultSet, method, args);
+            }
+        }
+    }
+}
@@ -0,0 +1,397 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Table model of the client table that loads clients page by page as rows are displayed.
+ *
+ * In paged mode only the row count is known up front. A page is fetched in the
+ * background the first time one of its rows is painted, and the following page
+ * is prefetched so scrolling down rarely shows placeholders. Pages are read with
+ * a keyset seek from the last client of the previous page when it is known, and
+ * by position otherwise (jumping with the scroll bar). Loaded pages are kept in a
+ * bounded cache.
+ *
+ * The model can also show a fixed list of clients, used for search results.
+ *
+ * Changes made after a load come from the DomainStore's client deltas, which
+ * the model asks to start at the watermark of its load. Updated clients are
+ * replaced in place, and when clients are inserted, deleted or renamed only the
+ * cached pages from the first affected one are dropped, to be fetched again
+ * when displayed. All methods must be called on the EDT.
+ */
+public class LazyClientTableModel extends AbstractTableModel {
+
+    static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 50;
+    private static final long PAGE_TTL_MILLIS = 60_000L;
+
+    private static final String[] COLUMN_NAMES = {"ID", "first Name", "last name", "Email", "Phone Number", "Registration Date"};
+    private static final String LOADING = "...";
+
+    // From the first paint of a missing page to its rows being displayed
+    private static final MetricsRegistry.Timer PAGE_REFRESH = MetricsRegistry.panelTimer("ClientManagementPanel.page");
+
+    // Shared by all client panels; one thread fetches pages in request order
+    private static final ExecutorService PAGE_LOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "client-page-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Order of getClientsPage, nom then id_client; the collator approximates MySQL's accent and case insensitive one
+    private static final Comparator<Client> SORT_ORDER = createSortOrder();
+
+    private final ClientDAO clientDAO;
+    private final ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+
+    private EntityCache<Integer, List<Client>> pages = newPageCache();
+    // Last (nom, id_client) of each page seen so far; kept when the page itself is evicted
+    private final Map<Integer, Client> pageEnds = new HashMap<>();
+    private final Set<Integer> pendingPages = new HashSet<>();
+    private int rowCount;
+    // Incremented on every reload so pages of a previous generation are dropped
+    private volatile int generation;
+    // Incremented when the mode changes, so a delta of the previous rows is dropped
+    private int reloads;
+
+    // Fixed-list mode, null in paged mode
+    private List<Client> fixedRows;
+    // Change log position the rows are up to date with, -1 while unknown
+    private long watermark = -1;
+
+    public LazyClientTableModel(ClientDAO clientDAO) {
+        this.clientDAO = clientDAO;
+    }
+
+    /**
+     * Switches to paged mode over all clients and reloads the row count
+     */
+    public void showAllClients() {
+        int loadGeneration = ++generation;
+        reloads++;
+        fixedRows = null;
+        pages = newPageCache();
+        pageEnds.clear();
+        pendingPages.clear();
+        rowCount = 0;
+        watermark = -1;
+        fireTableDataChanged();
+
+        PAGE_LOADER.execute(() -> {
+            // Taken first: changes made while the pages are read or still committing come again with the next delta
+            long loadWatermark = changeLogDAO.getWatermark();
+            int count = clientDAO.countClients();
+            SwingUtilities.invokeLater(() -> {
+                if (loadGeneration == generation) {
+                    rowCount = count;
+                    setWatermark(loadWatermark);
+                    fireTableDataChanged();
+                }
+            });
+        });
+    }
+
+    /**
+     * Switches to fixed-list mode with no rows. Rows are then added with addClients,
+     * and setWatermark tells which changes they include.
+     */
+    public void showClients() {
+        generation++;
+        reloads++;
+        fixedRows = new ArrayList<>();
+        pendingPages.clear();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Appends clients in fixed-list mode
+     *
+     * @param clients the clients to append
+     */
+    public void addClients(List<Client> clients) {
+        if (fixedRows == null || clients.isEmpty()) {
+            return;
+        }
+        int first = fixedRows.size();
+        fixedRows.addAll(clients);
+        fireTableRowsInserted(first, fixedRows.size() - 1);
+    }
+
+    /**
+     * Sets the change log position the fixed rows were loaded at. The store's
+     * client deltas then start from it at the latest.
+     *
+     * @param watermark the watermark taken before the rows were read, -1 while loading
+     */
+    public void setWatermark(long watermark) {
+        this.watermark = watermark;
+        DomainStore.getInstance().requireClientChanges(watermark);
+    }
+
+    /**
+     * Applies clients changed since the rows were loaded. Deltas arriving while
+     * the rows load are skipped: the load's watermark makes them come again.
+     *
+     * @param delta   the client delta published by the store
+     * @param matches tells if a client belongs in the fixed list; unused in paged mode
+     */
+    public void applyChanges(Delta<Integer, Client> delta, Predicate<Client> matches) {
+        if (watermark < 0 || delta.isEmpty()) {
+            return;
+        }
+        if (fixedRows != null) {
+            applyToFixedRows(delta, matches);
+            return;
+        }
+        int loadReloads = reloads;
+        PAGE_LOADER.execute(() -> {
+            // Inserted and deleted clients shift the rows after them
+            int count = clientDAO.countClients();
+            SwingUtilities.invokeLater(() -> {
+                if (loadReloads == reloads) {
+                    applyToPages(delta, count);
+                }
+            });
+        });
+    }
+
+    private void applyToFixedRows(Delta<Integer, Client> delta, Predicate<Client> matches) {
+        Set<Integer> placed = new HashSet<>();
+        for (int i = fixedRows.size() - 1; i >= 0; i--) {
+            int id = fixedRows.get(i).getClientId();
+            Client changed = delta.getChanged().get(id);
+            if (changed != null && matches.test(changed)) {
+                fixedRows.set(i, changed);
+                placed.add(id);
+                fireTableRowsUpdated(i, i);
+            } else if (changed != null || delta.getDeleted().contains(id)) {
+                fixedRows.remove(i);
+                placed.add(id);
+                fireTableRowsDeleted(i, i);
+            }
+        }
+
+        List<Client> added = new ArrayList<>();
+        for (Client changed : delta.getChanged().values()) {
+            if (!placed.contains(changed.getClientId()) && matches.test(changed)) {
+                added.add(changed);
+            }
+        }
+        addClients(added);
+    }
+
+    private void applyToPages(Delta<Integer, Client> delta, int count) {
+        // First sort key whose position changed; rows before it keep their place
+        Client firstMoved = null;
+        boolean unknownPosition = false;
+        Set<Integer> found = new HashSet<>();
+
+        for (int page : pageEnds.keySet()) {
+            List<Client> clients = pages.get(page);
+            if (clients == null) {
+                continue;
+            }
+            for (int i = 0; i < clients.size(); i++) {
+                Client client = clients.get(i);
+                int id = client.getClientId();
+                Client changed = delta.getChanged().get(id);
+                if (delta.getDeleted().contains(id)) {
+                    firstMoved = min(firstMoved, client);
+                    found.add(id);
+                } else if (changed != null) {
+                    if (SORT_ORDER.compare(client, changed) == 0) {
+                        clients.set(i, changed);
+                        fireTableRowsUpdated(page * PAGE_SIZE + i, page * PAGE_SIZE + i);
+                    } else {
+                        firstMoved = min(min(firstMoved, client), changed);
+                    }
+                    found.add(id);
+                }
+            }
+        }
+        for (Client changed : delta.getChanged().values()) {
+            if (!found.contains(changed.getClientId())) {
+                // Inserted, or updated outside the cached pages
+                firstMoved = min(firstMoved, changed);
+            }
+        }
+        for (Integer id : delta.getDeleted()) {
+            if (!found.contains(id)) {
+                unknownPosition = true;
+            }
+        }
+        if (firstMoved == null && !unknownPosition) {
+            return;
+        }
+
+        int firstPage = unknownPosition ? 0 : pageOf(firstMoved);
+        generation++; // pages being fetched may predate the change
+        pendingPages.clear();
+        for (Iterator<Integer> it = pageEnds.keySet().iterator(); it.hasNext(); ) {
+            int page = it.next();
+            if (page >= firstPage) {
+                pages.invalidate(page);
+                it.remove();
+            }
+        }
+        if (count != rowCount) {
+            rowCount = count;
+            fireTableDataChanged();
+        } else if (firstPage * PAGE_SIZE < rowCount) {
+            fireTableRowsUpdated(firstPage * PAGE_SIZE, rowCount - 1);
+        }
+    }
+
+    /**
+     * Finds the first page whose rows may have moved for a client at this sort key
+     */
+    private int pageOf(Client key) {
+        int first = -1;
+        int last = -1;
+        for (Map.Entry<Integer, Client> end : pageEnds.entrySet()) {
+            int page = end.getKey();
+            last = Math.max(last, page);
+            if (SORT_ORDER.compare(end.getValue(), key) >= 0 && (first < 0 || page < first)) {
+                first = page;
+            }
+        }
+        int page = first >= 0 ? first : last + 1;
+        // One page earlier in case the collator and MySQL disagree near a page boundary
+        return Math.max(0, page - 1);
+    }
+
+    private static Client min(Client a, Client b) {
+        return a == null || SORT_ORDER.compare(b, a) < 0 ? b : a;
+    }
+
+    private static Comparator<Client> createSortOrder() {
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        return Comparator.comparing((Client client) -> client.getLastname() != null ? client.getLastname() : "", collator)
+                .thenComparingInt(Client::getClientId);
+    }
+
+    /**
+     * Gets the client displayed at a row
+     *
+     * @param rowIndex the model row index
+     * @return the client, or null if its page is not loaded yet
+     */
+    public Client getClient(int rowIndex) {
+        if (fixedRows != null) {
+            return fixedRows.get(rowIndex);
+        }
+        int page = rowIndex / PAGE_SIZE;
+        List<Client> clients = pages.get(page);
+        if (clients == null) {
+            requestPage(page, false);
+            return null;
+        }
+        int offset = rowIndex % PAGE_SIZE;
+        return offset < clients.size() ? clients.get(offset) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return fixedRows != null ? fixedRows.size() : rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Client client = getClient(rowIndex);
+        if (client == null) {
+            return columnIndex == 1 ? LOADING : null;
+        }
+        if (fixedRows == null && rowIndex % PAGE_SIZE == 0) {
+            // First row of a page displayed: get the next one ready
+            requestPage(rowIndex / PAGE_SIZE + 1, true);
+        }
+        switch (columnIndex) {
+            case 0:
+                return client.getClientId();
+            case 1:
+                return client.getFirstname();
+            case 2:
+                return client.getLastname();
+            case 3:
+                return client.getEmail();
+            case 4:
+                return client.getPhoneNumber();
+            case 5:
+                return client.getRegistrationDate();
+            default:
+                return null;
+        }
+    }
+
+    private void requestPage(int page, boolean prefetch) {
+        if (page * PAGE_SIZE >= rowCount || pendingPages.contains(page) || pages.get(page) != null) {
+            return;
+        }
+        pendingPages.add(page);
+
+        int loadGeneration = generation;
+        Client previousEnd = pageEnds.get(page - 1);
+        MetricsRegistry.Sample sample = PAGE_REFRESH.start();
+        PAGE_LOADER.execute(() -> {
+            if (loadGeneration != generation) {
+                return; // reloaded while this page was queued
+            }
+            List<Client> clients = page == 0
+                    ? clientDAO.getClientsPage(null, 0, PAGE_SIZE)
+                    : previousEnd != null
+                    ? clientDAO.getClientsPage(previousEnd.getLastname(), previousEnd.getClientId(), PAGE_SIZE)
+                    : clientDAO.getClientsPageAt(page * PAGE_SIZE, PAGE_SIZE);
+            SwingUtilities.invokeLater(() -> pageLoaded(loadGeneration, page, clients, prefetch, sample));
+        });
+    }
+
+    private void pageLoaded(int loadGeneration, int page, List<Client> clients, boolean prefetch,
+                            MetricsRegistry.Sample sample) {
+        if (loadGeneration != generation) {
+            return;
+        }
+        pendingPages.remove(page);
+        pages.put(page, clients);
+        if (!clients.isEmpty()) {
+            pageEnds.put(page, clients.get(clients.size() - 1));
+        }
+        int first = page * PAGE_SIZE;
+        int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+        if (first <= last) {
+            fireTableRowsUpdated(first, last);
+        }
+        sample.setRows(clients.size());
+        sample.close();
+        if (!prefetch) {
+            requestPage(page + 1, true);
+        }
+    }
+
+    private static EntityCache<Integer, List<Client>> newPageCache() {
+        return new EntityCache<>(MAX_CACHED_PAGES, PAGE_TTL_MILLIS);
+    }
+}
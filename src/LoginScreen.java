@@ -133,6 +133,11 @@ public class LoginScreen extends JFrame {
             e.printStackTrace();
         }
 
+        // Create missing tables and indexes before any screen queries the database
+        SchemaMigrator.migrateDatabase();
+        new ChangeLogDAO().purge(Integer.getInteger("changelog.retentionDays", 7));
+        MetricsRegistry.startExporters();
+
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
@@ -0,0 +1,256 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide latency, row and error metrics of the DAO methods and panel refreshes.
+ *
+ * Every DAO method has a Timer, created once in a static field. A call opens a
+ * Sample as the first resource of its try block, so the time recorded covers
+ * getting the connection, running the statement and reading the rows. Recording
+ * is lock free (a LatencyHistogram and a few adders per timer).
+ *
+ * The metrics are exported in the Prometheus text format to a file rewritten
+ * periodically (-Dmetrics.file=path, -Dmetrics.intervalSeconds=15) and/or over
+ * HTTP on the loopback interface (-Dmetrics.port=9404, path /metrics).
+ */
+public final class MetricsRegistry {
+
+    static final String DAO = "formation_center_dao";
+    static final String PANEL = "formation_center_panel_refresh";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService fileExporter;
+    private static HttpServer httpServer;
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * Times the calls of one operation
+     */
+    public static final class Timer {
+        private final String family;
+        private final String name;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private Timer(String family, String name) {
+            this.family = family;
+            this.name = name;
+        }
+
+        /**
+         * Starts timing a call; closing the sample records it
+         */
+        public Sample start() {
+            return new Sample(this);
+        }
+
+        /**
+         * Counts a failed call, typically from the catch block of the DAO method
+         */
+        public void recordError() {
+            errors.increment();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LatencyHistogram getLatencies() {
+            return latencies;
+        }
+
+        public long getRowCount() {
+            return rows.sum();
+        }
+
+        public long getErrorCount() {
+            return errors.sum();
+        }
+    }
+
+    /**
+     * One timed call
+     */
+    public static final class Sample implements AutoCloseable {
+        private final Timer timer;
+        private final long start = System.nanoTime();
+        private long rows;
+
+        private Sample(Timer timer) {
+            this.timer = timer;
+        }
+
+        /**
+         * Sets the number of rows read or written by the call
+         */
+        public void setRows(long rows) {
+            this.rows = rows;
+        }
+
+        public void addRow() {
+            rows++;
+        }
+
+        @Override
+        public void close() {
+            timer.latencies.recordNanos(System.nanoTime() - start);
+            timer.rows.add(rows);
+        }
+    }
+
+    /**
+     * Gets the timer of a DAO method
+     *
+     * @param method the method, as "ClientDAO.getClientById"
+     */
+    public static Timer daoTimer(String method) {
+        return timer(DAO, method);
+    }
+
+    /**
+     * Gets the timer of a panel refresh, from the start of a load to its last row
+     *
+     * @param panel the panel and table, as "FormationManagementPanel.formations"
+     */
+    public static Timer panelTimer(String panel) {
+        return timer(PANEL, panel);
+    }
+
+    /**
+     * Sums the failed calls of every DAO method so far
+     */
+    static long getDaoErrorCount() {
+        return TIMERS.values().stream().filter(timer -> DAO.equals(timer.family)).mapToLong(Timer::getErrorCount).sum();
+    }
+
+    private static Timer timer(String family, String name) {
+        return TIMERS.computeIfAbsent(family + '\u0000' + name, key -> new Timer(family, name));
+    }
+
+    /**
+     * Writes every metric in the Prometheus text exposition format
+     *
+     * @param out the destination
+     */
+    public static void writePrometheus(Writer out) throws IOException {
+        Map<String, Map<String, Timer>> families = new TreeMap<>();
+        for (Timer timer : TIMERS.values()) {
+            families.computeIfAbsent(timer.family, f -> new TreeMap<>()).put(timer.name, timer);
+        }
+
+        for (Map.Entry<String, Map<String, Timer>> family : families.entrySet()) {
+            String metric = family.getKey();
+            String label = DAO.equals(metric) ? "method" : "panel";
+
+            out.write("# HELP " + metric + "_seconds Call latency\n");
+            out.write("# TYPE " + metric + "_seconds summary\n");
+            for (Timer timer : family.getValue().values()) {
+                LatencyHistogram latencies = timer.latencies;
+                String labels = label + "=\"" + escape(timer.name) + "\"";
+                for (double quantile : QUANTILES) {
+                    out.write(metric + "_seconds{" + labels + ",quantile=\"" + quantile + "\"} "
+                            + seconds(latencies.getPercentileMicros(quantile * 100)) + "\n");
+                }
+                out.write(metric + "_seconds_sum{" + labels + "} " + seconds(latencies.getTotalMicros()) + "\n");
+                out.write(metric + "_seconds_count{" + labels + "} " + latencies.getCount() + "\n");
+            }
+
+            out.write("# HELP " + metric + "_rows_total Rows read or written\n");
+            out.write("# TYPE " + metric + "_rows_total counter\n");
+            for (Timer timer : family.getValue().values()) {
+                out.write(metric + "_rows_total{" + label + "=\"" + escape(timer.name) + "\"} " + timer.getRowCount() + "\n");
+            }
+
+            out.write("# HELP " + metric + "_errors_total Failed calls\n");
+            out.write("# TYPE " + metric + "_errors_total counter\n");
+            for (Timer timer : family.getValue().values()) {
+                out.write(metric + "_errors_total{" + label + "=\"" + escape(timer.name) + "\"} " + timer.getErrorCount() + "\n");
+            }
+        }
+    }
+
+    /**
+     * Starts the exporters configured with system properties. Does nothing if none is.
+     */
+    public static synchronized void startExporters() {
+        String file = System.getProperty("metrics.file");
+        if (file != null && fileExporter == null) {
+            Path path = Paths.get(file);
+            long interval = Long.getLong("metrics.intervalSeconds", 15L);
+            fileExporter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "metrics-file-exporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            fileExporter.scheduleWithFixedDelay(() -> writeFile(path), interval, interval, TimeUnit.SECONDS);
+            // Keep the last values of a session
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> writeFile(path), "metrics-final-export"));
+        }
+
+        Integer port = Integer.getInteger("metrics.port");
+        if (port != null && httpServer == null) {
+            try {
+                httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+                httpServer.createContext("/metrics", exchange -> {
+                    StringWriter body = new StringWriter();
+                    writePrometheus(body);
+                    byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                    exchange.sendResponseHeaders(200, bytes.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(bytes);
+                    }
+                });
+                httpServer.start();
+            } catch (IOException e) {
+                System.err.println("Error starting metrics endpoint on port " + port + ": " + e.getMessage());
+                httpServer = null;
+            }
+        }
+    }
+
+    private static void writeFile(Path path) {
+        try {
+            // Written next to the target then moved, so a scraper never reads a partial file
+            Path absolute = path.toAbsolutePath();
+            Path temp = Files.createTempFile(absolute.getParent(), "metrics", ".tmp");
+            try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writePrometheus(out);
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error writing metrics file: " + e.getMessage());
+        }
+    }
+
+    private static String seconds(double micros) {
+        return Double.toString(micros / 1_000_000.0);
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,55 @@
+import java.sql.Statement;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Lets another thread stop a query a DAO is running, for example a search
+ * superseded by a newer one. The DAO registers its statement before executing
+ * it; cancel() stops it on the server, or stops it from starting.
+ *
+ * The driver opens a connection to send the cancel, so cancel() hands it to a
+ * background thread and returns at once; it is safe to call on the EDT.
+ */
+public class RunningQuery {
+
+    private Statement statement;
+    private boolean cancelled;
+
+    /**
+     * Registers the statement about to be executed. Called by the DAO.
+     *
+     * @param statement the statement
+     * @throws CancellationException if the query was already cancelled
+     */
+    public synchronized void start(Statement statement) {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        this.statement = statement;
+    }
+
+    /**
+     * Forgets the statement once its query is done. Called by the DAO.
+     */
+    public synchronized void finish() {
+        statement = null;
+    }
+
+    /**
+     * Cancels the query if it is running, and any query started afterwards
+     */
+    public void cancel() {
+        Statement running;
+        synchronized (this) {
+            cancelled = true;
+            running = statement;
+        }
+        if (running != null) {
+            CompletableFuture.runAsync(() -> DatabaseConnection.cancelQuietly(running));
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+}
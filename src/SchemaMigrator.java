@@ -0,0 +1,255 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Brings the database schema up to date at startup.
+ *
+ * Migrations are SQL scripts in db/migration on the classpath, named
+ * V&lt;version&gt;__&lt;description&gt;.sql and listed in SCRIPTS. Each one runs once:
+ * applied versions are recorded in the schema_version table with a checksum of
+ * the script. MySQL commits DDL immediately, so a script is not atomic; instead
+ * statements are written so that rerunning them is harmless, and errors meaning
+ * "already there" (existing table, column, index, primary key or trigger) are skipped.
+ * That also lets the migrator adopt databases where some indexes were created
+ * by hand. A named lock keeps two workstations from migrating at the same time.
+ */
+public class SchemaMigrator {
+
+    // In version order; add new scripts at the end
+    static final String[] SCRIPTS = {
+            "V1__baseline.sql",
+            "V2__enrollment_keys_and_indexes.sql",
+            "V3__formation_capacity.sql",
+            "V4__client_search.sql",
+            "V5__client_monthly_stats.sql",
+            "V6__change_log.sql",
+    };
+
+    private static final String SCRIPT_LOCATION = "/db/migration/";
+    private static final String LOCK_NAME = "formation_center.schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    // MySQL errors meaning the object a statement creates already exists
+    private static final int ER_TABLE_EXISTS = 1050;
+    private static final int ER_DUP_FIELDNAME = 1060;
+    private static final int ER_DUP_KEYNAME = 1061;
+    private static final int ER_MULTIPLE_PRI_KEY = 1068;
+    private static final int ER_FK_DUP_NAME = 1826;
+    private static final int ER_TRG_ALREADY_EXISTS = 1359;
+
+    /**
+     * Migrates the application database, reporting failures on stderr.
+     * Called once at startup, before any DAO is used.
+     *
+     * @return true if the schema is up to date
+     */
+    public static boolean migrateDatabase() {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            int applied = new SchemaMigrator().migrate(conn);
+            if (applied > 0) {
+                System.out.println("Database schema migrated, " + applied + " script(s) applied");
+            }
+            return true;
+        } catch (SQLException | IOException e) {
+            System.err.println("Error migrating database schema: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Applies the scripts that were not applied yet
+     *
+     * @param conn a connection to the database to migrate
+     * @return the number of scripts applied
+     * @throws SQLException if a statement fails for another reason than an existing object
+     * @throws IOException  if a script cannot be read
+     */
+    public int migrate(Connection conn) throws SQLException, IOException {
+        if (!acquireLock(conn)) {
+            throw new SQLException("Timed out waiting for another workstation to finish migrating the schema");
+        }
+        try {
+            createVersionTable(conn);
+            Map<Integer, Long> applied = getAppliedVersions(conn);
+
+            int count = 0;
+            for (String script : SCRIPTS) {
+                int version = parseVersion(script);
+                String sql = readScript(script);
+                long checksum = checksum(sql);
+
+                Long appliedChecksum = applied.get(version);
+                if (appliedChecksum != null) {
+                    if (appliedChecksum != checksum) {
+                        System.err.println("Warning: migration " + script + " was modified after it was applied");
+                    }
+                    continue;
+                }
+
+                long start = System.currentTimeMillis();
+                for (String statement : splitStatements(sql)) {
+                    execute(conn, script, statement);
+                }
+                recordVersion(conn, version, script, checksum, System.currentTimeMillis() - start);
+                count++;
+            }
+            return count;
+        } finally {
+            releaseLock(conn);
+        }
+    }
+
+    /**
+     * Splits a script into statements at semicolons ending a line.
+     * Lines starting with -- are comments.
+     *
+     * @param script the script text
+     * @return the statements, without their semicolon
+     */
+    static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\r?\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            if (current.length() > 0) {
+                current.append('\n');
+            }
+            if (trimmed.endsWith(";")) {
+                current.append(line, 0, line.lastIndexOf(';'));
+                statements.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(line);
+            }
+        }
+        if (current.toString().trim().length() > 0) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+
+    /**
+     * Gets the version number of a script from its name
+     *
+     * @param script a name like V3__formation_capacity.sql
+     * @return the version, 3 in the example
+     */
+    static int parseVersion(String script) {
+        int separator = script.indexOf("__");
+        if (!script.startsWith("V") || separator < 2) {
+            throw new IllegalArgumentException("Invalid migration name: " + script);
+        }
+        return Integer.parseInt(script.substring(1, separator));
+    }
+
+    private static void execute(Connection conn, String script, String statement) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(statement);
+        } catch (SQLException e) {
+            if (isAlreadyApplied(e)) {
+                System.out.println("Migration " + script + ": skipped, " + e.getMessage());
+                return;
+            }
+            throw new SQLException("Migration " + script + " failed on: " + statement + " (" + e.getMessage() + ")",
+                    e.getSQLState(), e.getErrorCode(), e);
+        }
+    }
+
+    private static boolean isAlreadyApplied(SQLException e) {
+        switch (e.getErrorCode()) {
+            case ER_TABLE_EXISTS:
+            case ER_DUP_FIELDNAME:
+            case ER_DUP_KEYNAME:
+            case ER_MULTIPLE_PRI_KEY:
+            case ER_FK_DUP_NAME:
+            case ER_TRG_ALREADY_EXISTS:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void createVersionTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT PRIMARY KEY, " +
+                    "script VARCHAR(200) NOT NULL, " +
+                    "checksum BIGINT NOT NULL, " +
+                    "installed_on TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                    "execution_ms BIGINT NOT NULL" +
+                    ") ENGINE = InnoDB");
+        }
+    }
+
+    private static Map<Integer, Long> getAppliedVersions(Connection conn) throws SQLException {
+        Map<Integer, Long> versions = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                versions.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+        }
+        return versions;
+    }
+
+    private static void recordVersion(Connection conn, int version, String script, long checksum, long executionMillis)
+            throws SQLException {
+        String query = "INSERT INTO schema_version (version, script, checksum, execution_ms) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, version);
+            stmt.setString(2, script);
+            stmt.setLong(3, checksum);
+            stmt.setLong(4, executionMillis);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static boolean acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("Error releasing schema migration lock: " + e.getMessage());
+        }
+    }
+
+    private static String readScript(String script) throws IOException {
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream(SCRIPT_LOCATION + script)) {
+            if (in == null) {
+                throw new IOException("Migration script not found on the classpath: " + SCRIPT_LOCATION + script);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static long checksum(String sql) {
+        CRC32 crc = new CRC32();
+        // Line endings depend on the checkout, not on the migration
+        crc.update(sql.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,316 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log of the SQL statements slower than a threshold, fed by InstrumentedJdbc.
+ *
+ * Statements are handed over through a bounded queue and written by a
+ * background thread, so a slow query never waits for the disk; when the queue
+ * is full entries are dropped and counted. The most recent entries are kept in
+ * memory for SlowQueryPanel. Settings: -Dslowquery.thresholdMs=200,
+ * -Dslowquery.file=slow-queries.log (empty to disable the file).
+ */
+public final class SlowQueryLog {
+
+    static final long THRESHOLD_MICROS = Long.getLong("slowquery.thresholdMs", 200L) * 1_000;
+
+    private static final String FILE = System.getProperty("slowquery.file", "slow-queries.log");
+    private static final int QUEUE_CAPACITY = 1_000;
+    private static final int RECENT_CAPACITY = 200;
+    // Stack frames kept per entry, starting at the DAO
+    private static final int MAX_STACK_DEPTH = 25;
+
+    private static final BlockingQueue<Entry> QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final Deque<Entry> RECENT = new ArrayDeque<>(RECENT_CAPACITY);
+    private static final LongAdder DROPPED = new LongAdder();
+    // Panel a background thread is working for, when its code is not in a panel class
+    private static final ThreadLocal<String> ORIGIN = new ThreadLocal<>();
+
+    static {
+        Thread writer = new Thread(SlowQueryLog::writeEntries, "slow-query-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private SlowQueryLog() {
+    }
+
+    /**
+     * A statement that took longer than the threshold
+     */
+    public static final class Entry {
+        private final long timestamp;
+        private final String sql;
+        private final List<String> parameters;
+        private final long executionMicros;
+        private final long fetchMicros;
+        private final long rows;
+        private final String error;
+        private final String origin;
+        private final StackTraceElement[] stack;
+
+        Entry(long timestamp, String sql, List<String> parameters, long executionMicros, long fetchMicros,
+              long rows, String error, String origin, StackTraceElement[] stack) {
+            this.timestamp = timestamp;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.executionMicros = executionMicros;
+            this.fetchMicros = fetchMicros;
+            this.rows = rows;
+            this.error = error;
+            this.origin = origin;
+            this.stack = stack;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * Gets the bound parameters in order, with password values replaced by ***
+         */
+        public List<String> getParameters() {
+            return parameters;
+        }
+
+        /**
+         * Gets the time spent in execute, until the first rows or the update count came back
+         */
+        public long getExecutionMicros() {
+            return executionMicros;
+        }
+
+        /**
+         * Gets the time spent in ResultSet.next reading the rows
+         */
+        public long getFetchMicros() {
+            return fetchMicros;
+        }
+
+        public long getTotalMicros() {
+            return executionMicros + fetchMicros;
+        }
+
+        /**
+         * Gets the rows returned by a query, or the rows changed by an update
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Gets the error code and message of a statement that failed, or null if it succeeded
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * Gets the panel or screen method that ran the statement, as "FormationViewPanel.loadFormations"
+         */
+        public String getOrigin() {
+            return origin;
+        }
+
+        public StackTraceElement[] getStack() {
+            return stack.clone();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(timestamp)))
+                    .append(" total=").append(getTotalMicros() / 1000).append("ms")
+                    .append(" execute=").append(executionMicros / 1000).append("ms")
+                    .append(" fetch=").append(fetchMicros / 1000).append("ms")
+                    .append(" rows=").append(rows)
+                    .append(" origin=").append(origin).append('\n')
+                    .append("  sql: ").append(sql.replaceAll("\\s+", " ")).append('\n');
+            if (error != null) {
+                sb.append("  error: ").append(error).append('\n');
+            }
+            if (!parameters.isEmpty()) {
+                sb.append("  parameters: ").append(parameters).append('\n');
+            }
+            for (StackTraceElement frame : stack) {
+                sb.append("    at ").append(frame).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Tells if a statement is slow enough to be logged
+     *
+     * @param totalMicros execution plus fetch time
+     */
+    static boolean isSlow(long totalMicros) {
+        return totalMicros >= THRESHOLD_MICROS;
+    }
+
+    /**
+     * Logs a slow statement from the thread that ran it. The calling stack is captured here.
+     *
+     * @param error the error the statement failed with, or null
+     */
+    static void log(String sql, List<String> parameters, long executionMicros, long fetchMicros, long rows,
+                    String error) {
+        StackTraceElement[] stack = callerStack(Thread.currentThread().getStackTrace());
+        Entry entry = new Entry(System.currentTimeMillis(), sql, parameters, executionMicros, fetchMicros, rows,
+                error, findOrigin(stack), stack);
+        if (!QUEUE.offer(entry)) {
+            DROPPED.increment();
+        }
+    }
+
+    /**
+     * Gets the most recent slow statements, newest first
+     */
+    public static List<Entry> getRecentEntries() {
+        synchronized (RECENT) {
+            return new ArrayList<>(RECENT);
+        }
+    }
+
+    public static void clearRecentEntries() {
+        synchronized (RECENT) {
+            RECENT.clear();
+        }
+    }
+
+    /**
+     * Gets the number of entries lost because the writer could not keep up
+     */
+    public static long getDroppedCount() {
+        return DROPPED.sum();
+    }
+
+    /**
+     * Sets the panel the current thread runs statements for, as "EnrollmentManagementPanel.clients".
+     * Used by the DomainStore, whose loads and writes run outside the panel classes.
+     *
+     * @param origin the origin of the statements run from now on, or null to clear it
+     */
+    static void setOrigin(String origin) {
+        if (origin == null) {
+            ORIGIN.remove();
+        } else {
+            ORIGIN.set(origin);
+        }
+    }
+
+    /**
+     * Drops the frames of the logging itself, the proxies and reflection, so the
+     * stack starts at the DAO method
+     */
+    static StackTraceElement[] callerStack(StackTraceElement[] stack) {
+        int first = 0;
+        while (first < stack.length && isInstrumentationFrame(stack[first].getClassName())) {
+            first++;
+        }
+        List<StackTraceElement> frames = new ArrayList<>();
+        for (int i = first; i < stack.length && frames.size() < MAX_STACK_DEPTH; i++) {
+            frames.add(stack[i]);
+        }
+        return frames.toArray(new StackTraceElement[0]);
+    }
+
+    private static boolean isInstrumentationFrame(String className) {
+        return className.equals("java.lang.Thread")
+                || className.startsWith("SlowQueryLog")
+                || className.startsWith("InstrumentedJdbc")
+                || className.startsWith("ConnectionPool")
+                || className.startsWith("jdk.proxy")
+                || className.startsWith("com.sun.proxy")
+                || className.startsWith("java.lang.reflect")
+                || className.startsWith("jdk.internal.reflect");
+    }
+
+    /**
+     * Finds the user interface code that ran a statement: the first panel, screen,
+     * table model or task on the stack. Code loading in the background is found too,
+     * since its lambdas are compiled into the panel class. Otherwise the origin set
+     * for the thread is used.
+     *
+     * @param stack the calling stack, innermost first
+     * @return "Class.method", the thread's origin, or the thread name if there is neither
+     */
+    static String findOrigin(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            int nested = className.indexOf('$');
+            String outer = nested >= 0 ? className.substring(0, nested) : className;
+            if (outer.endsWith("Panel") || outer.endsWith("Screen") || outer.endsWith("TableModel")
+                    || outer.endsWith("Task")) {
+                String method = frame.getMethodName();
+                // lambda$loadFormations$3 -> loadFormations
+                if (method.startsWith("lambda$")) {
+                    int end = method.indexOf('$', "lambda$".length());
+                    method = method.substring("lambda$".length(), end > 0 ? end : method.length());
+                }
+                return outer + "." + method;
+            }
+        }
+        String origin = ORIGIN.get();
+        return origin != null ? origin : "thread " + Thread.currentThread().getName();
+    }
+
+    private static void writeEntries() {
+        BufferedWriter out = null;
+        while (true) {
+            Entry entry;
+            try {
+                entry = QUEUE.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (RECENT) {
+                if (RECENT.size() == RECENT_CAPACITY) {
+                    RECENT.removeLast();
+                }
+                RECENT.addFirst(entry);
+            }
+
+            if (FILE.isEmpty()) {
+                continue;
+            }
+            try {
+                if (out == null) {
+                    out = Files.newBufferedWriter(Paths.get(FILE), StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                out.write(entry.toString());
+                if (QUEUE.isEmpty()) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing slow query log: " + e.getMessage());
+                try {
+                    if (out != null) {
+                        out.close();
+                    }
+                } catch (IOException closeError) {
+                    // reopened with the next entry
+                }
+                out = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Panel listing the recent slow SQL statements of the SlowQueryLog, with the
+ * parameters and calling stack of the selected one
+ */
+public class SlowQueryPanel extends JPanel {
+
+    private static final int REFRESH_INTERVAL_MS = 2_000;
+
+    private final SlowQueryTableModel tableModel = new SlowQueryTableModel();
+    private JTable queryTable;
+    private JTextArea detailArea;
+    private JLabel statusLabel;
+    private final Timer refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> refresh());
+
+    public SlowQueryPanel() {
+        initializeComponents();
+        refresh();
+    }
+
+    private void initializeComponents() {
+        setLayout(new BorderLayout());
+        setBorder(BorderFactory.createTitledBorder("Slow Queries"));
+
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> refresh());
+        JButton clearButton = new JButton("Clear");
+        clearButton.addActionListener(e -> {
+            SlowQueryLog.clearRecentEntries();
+            refresh();
+        });
+        statusLabel = new JLabel();
+        topPanel.add(refreshButton);
+        topPanel.add(clearButton);
+        topPanel.add(statusLabel);
+        add(topPanel, BorderLayout.NORTH);
+
+        queryTable = new JTable(tableModel);
+        queryTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        queryTable.getColumnModel().getColumn(6).setPreferredWidth(400);
+        queryTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                showSelectedEntry();
+            }
+        });
+
+        detailArea = new JTextArea(10, 80);
+        detailArea.setEditable(false);
+        detailArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                new JScrollPane(queryTable), new JScrollPane(detailArea));
+        splitPane.setResizeWeight(0.6);
+        add(splitPane, BorderLayout.CENTER);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refreshTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        refreshTimer.stop();
+        super.removeNotify();
+    }
+
+    private void refresh() {
+        // Keep the selected entry selected when newer ones are added on top
+        SlowQueryLog.Entry selected = getSelectedEntry();
+        tableModel.setEntries(SlowQueryLog.getRecentEntries());
+        int row = selected != null ? tableModel.indexOf(selected) : -1;
+        if (row >= 0) {
+            queryTable.setRowSelectionInterval(row, row);
+        } else {
+            detailArea.setText("");
+        }
+
+        String status = "Threshold: " + SlowQueryLog.THRESHOLD_MICROS / 1000 + " ms, "
+                + tableModel.getRowCount() + " recent queries";
+        long dropped = SlowQueryLog.getDroppedCount();
+        if (dropped > 0) {
+            status += ", " + dropped + " dropped";
+        }
+        statusLabel.setText(status);
+    }
+
+    private SlowQueryLog.Entry getSelectedEntry() {
+        int row = queryTable.getSelectedRow();
+        return row >= 0 ? tableModel.getEntry(queryTable.convertRowIndexToModel(row)) : null;
+    }
+
+    private void showSelectedEntry() {
+        SlowQueryLog.Entry entry = getSelectedEntry();
+        detailArea.setText(entry != null ? entry.toString() : "");
+        detailArea.setCaretPosition(0);
+    }
+
+    private static class SlowQueryTableModel extends AbstractTableModel {
+        private final String[] columnNames = {"Time", "Total (ms)", "Execute (ms)", "Fetch (ms)", "Rows", "Origin", "SQL"};
+        private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+        private List<SlowQueryLog.Entry> entries = new ArrayList<>();
+
+        void setEntries(List<SlowQueryLog.Entry> entries) {
+            this.entries = entries;
+            fireTableDataChanged();
+        }
+
+        SlowQueryLog.Entry getEntry(int row) {
+            return entries.get(row);
+        }
+
+        int indexOf(SlowQueryLog.Entry entry) {
+            return entries.indexOf(entry);
+        }
+
+        @Override
+        public int getRowCount() {
+            return entries.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column >= 1 && column <= 4 ? Long.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            SlowQueryLog.Entry entry = entries.get(row);
+            switch (column) {
+                case 0:
+                    return timeFormat.format(new Date(entry.getTimestamp()));
+                case 1:
+                    return entry.getTotalMicros() / 1000;
+                case 2:
+                    return entry.getExecutionMicros() / 1000;
+                case 3:
+                    return entry.getFetchMicros() / 1000;
+                case 4:
+                    return entry.getRows();
+                case 5:
+                    return entry.getOrigin();
+                case 6:
+                    return entry.getSql().replaceAll("\\s+", " ");
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+import java.sql.*;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Access Object for the admin dashboard figures
+ *
+ * Nothing is counted here: the seats taken of each formation are the
+ * nb_inscrits counter that EnrollmentDAO updates with every enrollment, and new
+ * clients are counted per month in client_par_mois by ClientDAO. Loading the
+ * dashboard reads one row per formation and one per month, however many
+ * clients and enrollments there are.
+ */
+public class StatisticsDAO {
+
+    private static final MetricsRegistry.Timer GET_FORMATION_STATS = MetricsRegistry.daoTimer("StatisticsDAO.getFormationStats");
+    private static final MetricsRegistry.Timer GET_NEW_CLIENTS_PER_MONTH = MetricsRegistry.daoTimer("StatisticsDAO.getNewClientsPerMonth");
+
+    /**
+     * Number of clients who arrived in a month
+     */
+    public static class MonthlyClients {
+        private final YearMonth month;
+        private final int newClients;
+
+        public MonthlyClients(YearMonth month, int newClients) {
+            this.month = month;
+            this.newClients = newClients;
+        }
+
+        public YearMonth getMonth() {
+            return month;
+        }
+
+        public int getNewClients() {
+            return newClients;
+        }
+    }
+
+    /**
+     * Gets the seats taken and revenue of every formation
+     *
+     * @return one row per formation, by title
+     */
+    public List<FormationStats> getFormationStats() {
+        List<FormationStats> stats = new ArrayList<>();
+        String query = "SELECT id_formation, libele, tarif, capacite, nb_inscrits FROM formation ORDER BY libele";
+
+        try (MetricsRegistry.Sample sample = GET_FORMATION_STATS.start();
+             Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+
+            while (rs.next()) {
+                stats.add(new FormationStats(
+                        rs.getInt("id_formation"),
+                        rs.getString("libele"),
+                        rs.getDouble("tarif"),
+                        rs.getInt("capacite"),
+                        rs.getInt("nb_inscrits")));
+            }
+            sample.setRows(stats.size());
+        } catch (SQLException e) {
+            GET_FORMATION_STATS.recordError();
+            System.err.println("Error getting formation statistics: " + e.getMessage());
+        }
+
+        return stats;
+    }
+
+    /**
+     * Gets the number of new clients of each month in a range
+     *
+     * @param from the first month
+     * @param to   the last month, included
+     * @return one row per month in order, months without new clients included
+     */
+    public List<MonthlyClients> getNewClientsPerMonth(YearMonth from, YearMonth to) {
+        Map<YearMonth, Integer> counts = new HashMap<>();
+        String query = "SELECT mois, nb_nouveaux FROM client_par_mois WHERE mois BETWEEN ? AND ?";
+
+        try (MetricsRegistry.Sample sample = GET_NEW_CLIENTS_PER_MONTH.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setDate(1, Date.valueOf(from.atDay(1)));
+            stmt.setDate(2, Date.valueOf(to.atDay(1)));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(YearMonth.from(rs.getDate("mois").toLocalDate()), rs.getInt("nb_nouveaux"));
+                }
+            }
+            sample.setRows(counts.size());
+        } catch (SQLException e) {
+            GET_NEW_CLIENTS_PER_MONTH.recordError();
+            System.err.println("Error getting new clients per month: " + e.getMessage());
+        }
+
+        return fillMonths(counts, from, to);
+    }
+
+    /**
+     * Lists every month of a range with its count, 0 for the months absent from the map
+     */
+    static List<MonthlyClients> fillMonths(Map<YearMonth, Integer> counts, YearMonth from, YearMonth to) {
+        List<MonthlyClients> months = new ArrayList<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            months.add(new MonthlyClients(month, counts.getOrDefault(month, 0)));
+        }
+        return months;
+    }
+}
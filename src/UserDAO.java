@@ -9,6 +9,9 @@ import java.sql.SQLException;
  */
 public class UserDAO {
 
+    private static final MetricsRegistry.Timer AUTHENTICATE = MetricsRegistry.daoTimer("UserDAO.authenticate");
+    private static final MetricsRegistry.Timer CREATE_USER = MetricsRegistry.daoTimer("UserDAO.createUser");
+
     /**
      * Authenticates a user based on username and password
      *
@@ -17,41 +20,45 @@ public class UserDAO {
      * @return User object if authentication successful, null otherwise
      */
     public User authenticate(String username, String password) {
-        String[] tables = {"receptionniste", "administrateur"};
-
-        for (String table : tables) {
-            String query = "SELECT * FROM " + table + " WHERE username = ? AND password = ?";
-            try (Connection conn = DatabaseConnection.getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(query)) {
-
-                stmt.setString(1, username);
-                stmt.setString(2, password);
-
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        int id;
-                        if (table.equals("administrateur")) {
-                            id = rs.getInt("id_admin");
-                        } else {
-                            id = rs.getInt("id_professionnel");
+        try (MetricsRegistry.Sample sample = AUTHENTICATE.start()) {
+            String[] tables = {"receptionniste", "administrateur"};
+
+            for (String table : tables) {
+                String query = "SELECT * FROM " + table + " WHERE username = ? AND password = ?";
+                try (Connection conn = DatabaseConnection.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(query)) {
+
+                    stmt.setString(1, username);
+                    stmt.setString(2, password);
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            sample.setRows(1);
+                            int id;
+                            if (table.equals("administrateur")) {
+                                id = rs.getInt("id_admin");
+                            } else {
+                                id = rs.getInt("id_professionnel");
+                            }
+
+                            return new User(
+                                    id,
+                                    rs.getString("username"),
+                                    rs.getString("password"),
+                                    rs.getString("nom"),
+                                    table // role
+                            );
                         }
-
-                        return new User(
-                                id,
-                                rs.getString("username"),
-                                rs.getString("password"),
-                                rs.getString("nom"),
-                                table // role
-                        );
                     }
-                }
 
-            } catch (SQLException e) {
-                System.err.println("Error checking credentials in table " + table + ": " + e.getMessage());
+                } catch (SQLException e) {
+                    AUTHENTICATE.recordError();
+                    System.err.println("Error checking credentials in table " + table + ": " + e.getMessage());
+                }
             }
-        }
 
-        return null;
+            return null;
+        }
     }
 
 
@@ -65,7 +72,8 @@ public class UserDAO {
     public boolean createUser(User user) {
         String query = "INSERT INTO users (username, password, full_name, is_active) VALUES (?, ?, ?, ?)";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (MetricsRegistry.Sample sample = CREATE_USER.start();
+             Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, user.getUsername());
@@ -73,9 +81,11 @@ public class UserDAO {
             stmt.setString(3, user.getFullName());
 
             int rowsAffected = stmt.executeUpdate();
+            sample.setRows(rowsAffected);
             return rowsAffected > 0;
 
         } catch (SQLException e) {
+            CREATE_USER.recordError();
             System.err.println("Error creating user: " + e.getMessage());
             return false;
         }
@@ -0,0 +1,39 @@
+-- Tables used by the application, as they existed before versioned migrations.
+-- Existing databases already have them; CREATE TABLE IF NOT EXISTS leaves them untouched.
+
+CREATE TABLE IF NOT EXISTS client (
+    id_client    INT AUTO_INCREMENT PRIMARY KEY,
+    nom          VARCHAR(100) NOT NULL,
+    prenom       VARCHAR(100) NOT NULL,
+    email        VARCHAR(150) NOT NULL,
+    telephone    VARCHAR(30)  NOT NULL,
+    date_arrivee DATE
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS formation (
+    id_formation INT AUTO_INCREMENT PRIMARY KEY,
+    libele       VARCHAR(150) NOT NULL,
+    description  TEXT,
+    date_debut   DATE,
+    duree        INT,
+    tarif        DECIMAL(10, 2)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS client_formation (
+    id_client    INT NOT NULL,
+    id_formation INT NOT NULL
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS receptionniste (
+    id_professionnel INT AUTO_INCREMENT PRIMARY KEY,
+    username         VARCHAR(50)  NOT NULL,
+    password         VARCHAR(255) NOT NULL,
+    nom              VARCHAR(100)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS administrateur (
+    id_admin INT AUTO_INCREMENT PRIMARY KEY,
+    username VARCHAR(50)  NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    nom      VARCHAR(100)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,24 @@
+-- One row per (client, formation): drop duplicates left by the old check-then-insert
+-- enrollment so the primary key can be created.
+CREATE TEMPORARY TABLE client_formation_distinct AS
+    SELECT DISTINCT id_client, id_formation FROM client_formation;
+START TRANSACTION;
+DELETE FROM client_formation;
+INSERT INTO client_formation (id_client, id_formation)
+    SELECT id_client, id_formation FROM client_formation_distinct;
+COMMIT;
+DROP TEMPORARY TABLE client_formation_distinct;
+
+-- Enrollments of a client (primary key) and roster of a formation (secondary index)
+ALTER TABLE client_formation ADD PRIMARY KEY (id_client, id_formation);
+CREATE INDEX idx_client_formation_formation ON client_formation (id_formation, id_client);
+
+-- Client list order and keyset paging on (nom, id_client)
+CREATE INDEX idx_client_nom ON client (nom);
+
+-- Formation catalog by start date
+CREATE INDEX idx_formation_date_debut ON formation (date_debut);
+
+-- Login lookups
+CREATE INDEX idx_receptionniste_username ON receptionniste (username);
+CREATE INDEX idx_administrateur_username ON administrateur (username);
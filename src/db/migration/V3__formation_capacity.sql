@@ -0,0 +1,6 @@
+-- Seat capacity and the counter of taken seats updated by every enrollment
+ALTER TABLE formation ADD COLUMN capacite INT NOT NULL DEFAULT 20;
+ALTER TABLE formation ADD COLUMN nb_inscrits INT NOT NULL DEFAULT 0;
+
+UPDATE formation f
+SET nb_inscrits = (SELECT COUNT(*) FROM client_formation cf WHERE cf.id_formation = f.id_formation);
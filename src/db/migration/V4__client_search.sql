@@ -0,0 +1,7 @@
+-- Ranked prefix search on every searchable client column
+ALTER TABLE client ADD FULLTEXT INDEX ft_client_search (nom, prenom, email, telephone);
+
+-- Words too short for the FULLTEXT index are matched on the start of each column
+CREATE INDEX idx_client_prenom ON client (prenom);
+CREATE INDEX idx_client_email ON client (email);
+CREATE INDEX idx_client_telephone ON client (telephone);
@@ -0,0 +1,13 @@
+-- New clients per month of arrival, kept up to date by ClientDAO with each insert
+-- so the dashboard never counts the client table
+CREATE TABLE IF NOT EXISTS client_par_mois (
+    mois        DATE NOT NULL PRIMARY KEY,
+    nb_nouveaux INT  NOT NULL DEFAULT 0
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+INSERT INTO client_par_mois (mois, nb_nouveaux)
+SELECT DATE_FORMAT(date_arrivee, '%Y-%m-01'), COUNT(*)
+FROM client
+WHERE date_arrivee IS NOT NULL
+GROUP BY DATE_FORMAT(date_arrivee, '%Y-%m-01')
+ON DUPLICATE KEY UPDATE nb_nouveaux = VALUES(nb_nouveaux);
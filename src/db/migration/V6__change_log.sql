@@ -0,0 +1,41 @@
+-- One row per insert, update or delete of a client, formation or enrollment, written
+-- by the triggers below. Panels remember the last id they have seen (their watermark)
+-- and reload only the rows changed after it. Creating triggers needs the TRIGGER
+-- privilege, and SUPER or log_bin_trust_function_creators when binary logging is on.
+CREATE TABLE IF NOT EXISTS change_log (
+    id         BIGINT AUTO_INCREMENT PRIMARY KEY,
+    table_name VARCHAR(64)  NOT NULL,
+    row_id     INT          NOT NULL,
+    -- id_formation of a client_formation row, NULL otherwise
+    row_id2    INT          NULL,
+    changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX idx_change_log_table (table_name, id),
+    INDEX idx_change_log_changed_at (changed_at)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TRIGGER trg_client_insert AFTER INSERT ON client FOR EACH ROW
+    INSERT INTO change_log (table_name, row_id) VALUES ('client', NEW.id_client);
+CREATE TRIGGER trg_client_update AFTER UPDATE ON client FOR EACH ROW
+    INSERT INTO change_log (table_name, row_id) VALUES ('client', NEW.id_client);
+CREATE TRIGGER trg_client_delete AFTER DELETE ON client FOR EACH ROW
+    INSERT INTO change_log (table_name, row_id) VALUES ('client', OLD.id_client);
+
+CREATE TRIGGER trg_formation_insert AFTER INSERT ON formation FOR EACH ROW
+    INSERT INTO change_log (table_name, row_id) VALUES ('formation', NEW.id_formation);
+-- Every enrollment updates nb_inscrits; those updates are already logged as client_formation rows
+CREATE TRIGGER trg_formation_update AFTER UPDATE ON formation FOR EACH ROW
+    INSERT INTO change_log (table_name, row_id)
+    SELECT 'formation', NEW.id_formation FROM DUAL
+    WHERE NOT (NEW.libele <=> OLD.libele AND NEW.description <=> OLD.description
+        AND NEW.date_debut <=> OLD.date_debut AND NEW.duree <=> OLD.duree
+        AND NEW.tarif <=> OLD.tarif AND NEW.capacite <=> OLD.capacite);
+CREATE TRIGGER trg_formation_delete AFTER DELETE ON formation FOR EACH ROW
+    INSERT INTO change_log (table_name, row_id) VALUES ('formation', OLD.id_formation);
+
+CREATE TRIGGER trg_client_formation_insert AFTER INSERT ON client_formation FOR EACH ROW
+    INSERT INTO change_log (table_name, row_id, row_id2) VALUES ('client_formation', NEW.id_client, NEW.id_formation);
+CREATE TRIGGER trg_client_formation_update AFTER UPDATE ON client_formation FOR EACH ROW
+    INSERT INTO change_log (table_name, row_id, row_id2)
+    VALUES ('client_formation', OLD.id_client, OLD.id_formation), ('client_formation', NEW.id_client, NEW.id_formation);
+CREATE TRIGGER trg_client_formation_delete AFTER DELETE ON client_formation FOR EACH ROW
+    INSERT INTO change_log (table_name, row_id, row_id2) VALUES ('client_formation', OLD.id_client, OLD.id_formation);
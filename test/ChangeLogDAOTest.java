@@ -0,0 +1,27 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeLogDAOTest {
+
+    @Test
+    public void testWatermarkStopsBeforeFirstUnsettledChange() {
+        assertEquals(12, ChangeLogDAO.nextWatermark(10, Arrays.asList(
+                new long[]{11, 1}, new long[]{12, 1}, new long[]{13, 0}, new long[]{14, 1})));
+    }
+
+    @Test
+    public void testWatermarkUnchangedWithoutSettledChanges() {
+        assertEquals(10, ChangeLogDAO.nextWatermark(10, Collections.emptyList()));
+        assertEquals(10, ChangeLogDAO.nextWatermark(10, Collections.singletonList(new long[]{11, 0})));
+    }
+
+    @Test
+    public void testEnrollmentKeysAreDistinctPerPair() {
+        assertNotEquals(EnrollmentView.key(1, 2), EnrollmentView.key(2, 1));
+        assertEquals(EnrollmentView.key(7, 3), new EnrollmentView(7, 3, "a", "b", 1, 1.0).getKey());
+    }
+}
@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClientImporterTest {
+
+    /**
+     * Keeps the inserted clients in memory instead of writing them to the database
+     */
+    static class RecordingClientDAO extends ClientDAO {
+        final List<Client> inserted = new ArrayList<>();
+
+        @Override
+        public boolean createClients(List<Client> clients) {
+            inserted.addAll(clients);
+            return true;
+        }
+    }
+
+    private static ClientImporter.Report importCsv(RecordingClientDAO dao, String text) throws IOException {
+        CsvReader csv = new CsvReader(new StringReader(text), ',');
+        return new ClientImporter(dao).importClients(csv, (imported, rejected) -> { }, () -> false);
+    }
+
+    @Test
+    public void testParseClientUsesFormValidation() {
+        Client client = ClientImporter.parseClient(new String[]{" Yassine ", "Alami", "y@alami.ma", "0600000000", "2024-09-01"});
+        assertEquals("Yassine", client.getFirstname());
+        assertEquals(java.sql.Date.valueOf("2024-09-01"), client.getRegistrationDate());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> ClientImporter.parseClient(new String[]{"Yassine", "Alami", "not-an-email", "0600000000"}));
+        assertEquals("Please enter a valid email address.", e.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> ClientImporter.parseClient(new String[]{"Yassine", "", "y@alami.ma", "0600000000"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> ClientImporter.parseClient(new String[]{"Yassine", "Alami", "y@alami.ma"}));
+    }
+
+    @Test
+    public void testHeaderIsRecognisedByItsEmailColumn() {
+        assertTrue(ClientImporter.isHeader(new String[]{"Prénom", "Nom", "Email", "Téléphone"}));
+        assertTrue(ClientImporter.isHeader(new String[]{"firstname", "lastname", "mail", "phone"}));
+        assertTrue(ClientImporter.isHeader(new String[]{"First name", "Last name", "E-mail address", "Phone"}));
+        assertFalse(ClientImporter.isHeader(new String[]{"Yassine", "Alami", "yassine.gmail.com", "0600000000"}));
+        assertFalse(ClientImporter.isHeader(new String[]{"Yassine", "Alami", "y@gmail.com", "0600000000"}));
+        assertFalse(ClientImporter.isHeader(new String[]{"Sara", "Benali", "contact@mail.ma", "0611111111"}));
+    }
+
+    @Test
+    public void testHeaderRowIsSkippedAndReported() throws IOException {
+        RecordingClientDAO dao = new RecordingClientDAO();
+        ClientImporter.Report report = importCsv(dao,
+                "firstname,lastname,email,phone\nYassine,Alami,y@alami.ma,0600000000\n");
+
+        assertEquals(1, report.getImportedCount());
+        assertEquals(1, report.getHeaderLine());
+        assertTrue(report.getErrors().isEmpty());
+        assertEquals("Yassine", dao.inserted.get(0).getFirstname());
+    }
+
+    @Test
+    public void testFirstClientWithMailInTheAddressIsImported() throws IOException {
+        RecordingClientDAO dao = new RecordingClientDAO();
+        ClientImporter.Report report = importCsv(dao,
+                "Yassine,Alami,yassine@gmail.com,0600000000\nSara,Benali,s@benali.ma,0611111111\n");
+
+        assertEquals(2, report.getImportedCount());
+        assertEquals(0, report.getHeaderLine());
+        assertEquals("yassine@gmail.com", dao.inserted.get(0).getEmail());
+    }
+
+    @Test
+    public void testFirstRowWithAMalformedEmailIsReported() throws IOException {
+        RecordingClientDAO dao = new RecordingClientDAO();
+        ClientImporter.Report report = importCsv(dao,
+                "Yassine,Alami,yassine-at-gmail.com,0600000000\nSara,Benali,s@benali.ma,0611111111\n");
+
+        assertEquals(1, report.getImportedCount());
+        assertEquals(0, report.getHeaderLine());
+        assertEquals(1, report.getErrors().size());
+        assertEquals(1, report.getErrors().get(0).getLine());
+    }
+
+    @Test
+    public void testInvalidRowsAreReportedWithTheirLine() throws IOException {
+        RecordingClientDAO dao = new RecordingClientDAO();
+        ClientImporter.Report report = importCsv(dao,
+                "Yassine,Alami,y@alami.ma,0600000000\nSara,Benali,not-an-email,0611111111\n");
+
+        assertEquals(1, report.getImportedCount());
+        assertEquals(1, report.getErrors().size());
+        assertEquals(2, report.getErrors().get(0).getLine());
+    }
+}
@@ -0,0 +1,65 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClientSearchTest {
+
+    @Test
+    public void testWordsAreSplitLikeTheFullTextParser() {
+        assertEquals(Arrays.asList("yassine", "alami", "ma"), ClientSearch.parse("  Yassine.ALAMI@ma ").getWords());
+        assertEquals(Arrays.asList("o", "neil"), ClientSearch.parse("O'Neil").getWords());
+    }
+
+    @Test
+    public void testLongWordsBecomeRequiredPrefixTerms() {
+        ClientSearch search = ClientSearch.parse("alami 0612");
+        assertEquals("+alami* +0612*", search.getFullTextQuery());
+        assertTrue(search.getShortWords().isEmpty());
+    }
+
+    @Test
+    public void testShortWordsAreKeptForLike() {
+        ClientSearch search = ClientSearch.parse("ben al");
+        assertEquals("+ben*", search.getFullTextQuery());
+        assertEquals(Collections.singletonList("al"), search.getShortWords());
+
+        assertNull(ClientSearch.parse("yo").getFullTextQuery());
+    }
+
+    @Test
+    public void testOperatorsAreNotPassedToFullText() {
+        ClientSearch search = ClientSearch.parse("+alami -\"yassine\" (x*)");
+        assertEquals("+alami* +yassine*", search.getFullTextQuery());
+        assertEquals(Collections.singletonList("x"), search.getShortWords());
+    }
+
+    @Test
+    public void testEmptyTerm() {
+        assertTrue(ClientSearch.parse(" -*@ ").isEmpty());
+        assertTrue(ClientSearch.parse(null).isEmpty());
+    }
+
+    @Test
+    public void testMatchesLikeTheDatabase() {
+        Client client = new Client("Élodie", "Ben Ali", "elodie.benali@mail.ma", "0612345678", null);
+        assertTrue(ClientSearch.parse("elod ali").matches(client));
+        assertTrue(ClientSearch.parse("0612").matches(client));
+        assertTrue(ClientSearch.parse("benali@").matches(client));
+        assertTrue(ClientSearch.parse("be").matches(client));
+        assertFalse(ClientSearch.parse("al").matches(client)); // short words only match the start of a column
+        assertFalse(ClientSearch.parse("elodie martin").matches(client));
+    }
+
+    @Test
+    public void testNarrows() {
+        ClientSearch alami = ClientSearch.parse("alami");
+        assertTrue(ClientSearch.parse("alamin").narrows(alami));
+        assertTrue(ClientSearch.parse("alami yas").narrows(alami));
+        assertTrue(ClientSearch.parse("yas alami").narrows(alami));
+        assertFalse(ClientSearch.parse("alam").narrows(alami));
+        assertFalse(ClientSearch.parse("alami").narrows(ClientSearch.parse("al")));
+    }
+}
@@ -0,0 +1,363 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest {
+
+    private static final String URL = "jdbc:pooltest:";
+
+    // Physical connections opened by the stub driver, in creation order
+    private static final List<StubConnection> opened = new CopyOnWriteArrayList<>();
+
+    private ConnectionPool pool;
+
+    @BeforeAll
+    public static void registerDriver() throws SQLException {
+        DriverManager.registerDriver(new StubDriver());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        opened.clear();
+    }
+
+    private ConnectionPool newPool(int maxSize, long borrowTimeoutMillis, long idleTimeoutMillis, long leakThresholdMillis) {
+        pool = new ConnectionPool(URL, "user", "password", 0, maxSize, borrowTimeoutMillis,
+                idleTimeoutMillis, leakThresholdMillis);
+        // Let the housekeeping pass scheduled at construction run before the test's own calls
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return pool;
+    }
+
+    @Test
+    public void testBorrowTimesOutWhenThePoolIsExhausted() throws SQLException {
+        newPool(1, 100, 60_000, 60_000);
+        try (Connection first = pool.getConnection()) {
+            assertFalse(first.isClosed());
+            long start = System.nanoTime();
+            assertThrows(SQLException.class, pool::getConnection);
+            assertTrue(System.nanoTime() - start >= 90_000_000L);
+            assertEquals(1, pool.getStats().getTimeoutCount());
+        }
+        // The permit of the failed borrow was not lost
+        try (Connection again = pool.getConnection()) {
+            assertFalse(again.isClosed());
+        }
+    }
+
+    @Test
+    public void testLastReturnedConnectionIsReusedFirst() throws SQLException {
+        newPool(2, 1_000, 60_000, 60_000);
+        Connection a = pool.getConnection();
+        Connection b = pool.getConnection();
+        String physicalB = b.getCatalog();
+        a.close();
+        b.close();
+
+        try (Connection next = pool.getConnection()) {
+            assertEquals(physicalB, next.getCatalog());
+        }
+        assertEquals(2, pool.getStats().getCreatedCount());
+    }
+
+    @Test
+    public void testHousekeepingEvictsIdleConnections() throws Exception {
+        newPool(2, 1_000, 0, 60_000);
+        Connection a = pool.getConnection();
+        Connection b = pool.getConnection();
+        a.close();
+        b.close();
+        assertEquals(2, pool.getStats().getIdle());
+
+        Thread.sleep(5);
+        pool.housekeep();
+
+        assertEquals(0, pool.getStats().getIdle());
+        assertEquals(2, pool.getStats().getDestroyedCount());
+        assertTrue(opened.stream().allMatch(c -> c.closed));
+    }
+
+    @Test
+    public void testLeakIsReportedOnce() throws Exception {
+        newPool(1, 1_000, 60_000, 0);
+        Connection leaked = pool.getConnection();
+        try {
+            Thread.sleep(5);
+            pool.housekeep();
+            pool.housekeep();
+            assertEquals(1, pool.getStats().getLeakCount());
+        } finally {
+            leaked.close();
+        }
+    }
+
+    @Test
+    public void testWaitingBorrowIsCounted() throws Exception {
+        newPool(1, 5_000, 60_000, 60_000);
+        Connection held = pool.getConnection();
+        CountDownLatch waiting = new CountDownLatch(1);
+        Thread releaser = new Thread(() -> {
+            try {
+                waiting.await();
+                Thread.sleep(100);
+                held.close();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        releaser.start();
+
+        waiting.countDown();
+        try (Connection next = pool.getConnection()) {
+            assertFalse(next.isClosed());
+        }
+        releaser.join();
+
+        ConnectionPool.Stats stats = pool.getStats();
+        assertEquals(2, stats.getBorrowCount());
+        assertTrue(stats.getMaxWaitMillis() >= 50, stats.toString());
+        assertTrue(stats.getTotalWaitMillis() >= stats.getMaxWaitMillis());
+        assertEquals(1, stats.getCreatedCount());
+    }
+
+    @Test
+    public void testConnectionFailureDiscardsThePhysicalConnection() throws SQLException {
+        newPool(1, 1_000, 60_000, 60_000);
+        try (Connection conn = pool.getConnection()) {
+            opened.get(0).failWith = "08S01";
+            assertThrows(SQLException.class, () -> conn.prepareStatement("SELECT 1"));
+        }
+        assertTrue(opened.get(0).closed);
+        assertEquals(1, pool.getStats().getDestroyedCount());
+
+        try (Connection next = pool.getConnection()) {
+            assertFalse(next.isClosed());
+        }
+        assertEquals(2, pool.getStats().getCreatedCount());
+    }
+
+    @Test
+    public void testOtherErrorsKeepTheConnection() throws SQLException {
+        newPool(1, 1_000, 60_000, 60_000);
+        try (Connection conn = pool.getConnection()) {
+            opened.get(0).failWith = "42000";
+            assertThrows(SQLException.class, () -> conn.prepareStatement("SELEC 1"));
+            opened.get(0).failWith = null;
+        }
+        assertEquals(1, pool.getStats().getIdle());
+        assertEquals(0, pool.getStats().getDestroyedCount());
+    }
+
+    @Test
+    public void testHandleIsSingleUse() throws SQLException {
+        newPool(1, 1_000, 60_000, 60_000);
+        Connection conn = pool.getConnection();
+        conn.close();
+        conn.close();
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::getCatalog);
+        assertEquals(1, pool.getStats().getIdle());
+    }
+
+    @Test
+    public void testPhysicalConnectionIsNeverHandedOut() throws SQLException {
+        newPool(1, 1_000, 60_000, 60_000);
+        try (Connection conn = pool.getConnection()) {
+            assertThrows(SQLException.class, () -> conn.unwrap(StubConnection.class));
+            assertFalse(conn.isWrapperFor(StubConnection.class));
+            assertSame(conn, conn.unwrap(Connection.class));
+
+            PreparedStatement stmt = conn.prepareStatement("SELECT 1");
+            assertSame(conn, stmt.getConnection());
+            ResultSet rs = stmt.executeQuery();
+            assertSame(stmt, rs.getStatement());
+            assertSame(conn, rs.getStatement().getConnection());
+            assertSame(conn, conn.getMetaData().getConnection());
+        }
+    }
+
+    @Test
+    public void testStatementIsUnusableOnceItsConnectionIsClosed() throws SQLException {
+        newPool(1, 1_000, 60_000, 60_000);
+        Connection conn = pool.getConnection();
+        PreparedStatement stmt = conn.prepareStatement("SELECT 1");
+        ResultSet rs = stmt.executeQuery();
+        conn.close();
+
+        SQLException e = assertThrows(SQLException.class, stmt::executeQuery);
+        assertEquals("Statement is closed", e.getMessage());
+        assertThrows(SQLException.class, rs::next);
+        assertTrue(stmt.isClosed());
+        stmt.close();
+    }
+
+    @Test
+    public void testStatementsLeftOpenAreClosedOnRelease() throws SQLException {
+        newPool(1, 1_000, 60_000, 60_000);
+        try (Connection conn = pool.getConnection()) {
+            PreparedStatement closed = conn.prepareStatement("SELECT 1");
+            closed.close();
+            conn.prepareStatement("SELECT 2").executeQuery();
+        }
+
+        StubConnection physical = opened.get(0);
+        assertEquals(3, physical.children.size());
+        assertTrue(physical.children.stream().allMatch(child -> child.closeCount == 1), "each child closed exactly once");
+        // The physical connection itself stays open in the pool
+        assertFalse(physical.closed);
+        assertEquals(1, pool.getStats().getIdle());
+    }
+
+    /**
+     * Physical statement or result set, counting its close() calls
+     */
+    static class StubChild {
+        volatile int closeCount;
+    }
+
+    /**
+     * Physical connection whose statements and result sets lead back to it, like a real driver's
+     */
+    static class StubConnection {
+        final String name = "stub-" + opened.size();
+        final Connection proxy;
+        volatile boolean closed;
+        volatile boolean autoCommit = true;
+        volatile String failWith;
+        final List<StubChild> children = new CopyOnWriteArrayList<>();
+
+        StubConnection() {
+            proxy = (Connection) Proxy.newProxyInstance(ConnectionPoolTest.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (p, method, args) -> {
+                        if (failWith != null && !method.getName().equals("close")) {
+                            throw new SQLException("stub failure", failWith);
+                        }
+                        switch (method.getName()) {
+                            case "close":
+                                closed = true;
+                                return null;
+                            case "isClosed":
+                                return closed;
+                            case "isValid":
+                                return !closed;
+                            case "getAutoCommit":
+                                return autoCommit;
+                            case "setAutoCommit":
+                                autoCommit = (Boolean) args[0];
+                                return null;
+                            case "getCatalog":
+                                return name;
+                            case "prepareStatement":
+                                return child(PreparedStatement.class, null);
+                            case "getMetaData":
+                                return child(java.sql.DatabaseMetaData.class, null);
+                            case "unwrap":
+                                return this;
+                            case "isWrapperFor":
+                                return true;
+                            case "hashCode":
+                                return System.identityHashCode(p);
+                            case "equals":
+                                return p == args[0];
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private Object child(Class<?> type, Object parent) {
+            StubChild state = new StubChild();
+            if (type != java.sql.DatabaseMetaData.class) {
+                children.add(state);
+            }
+            return Proxy.newProxyInstance(ConnectionPoolTest.class.getClassLoader(), new Class<?>[]{type},
+                    (p, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                state.closeCount++;
+                                return null;
+                            case "isClosed":
+                                return state.closeCount > 0;
+                            case "getConnection":
+                                return proxy;
+                            case "getStatement":
+                                return parent;
+                            case "executeQuery":
+                                return child(ResultSet.class, p);
+                            case "hashCode":
+                                return System.identityHashCode(p);
+                            case "equals":
+                                return p == args[0];
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+
+    static class StubDriver implements Driver {
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            StubConnection connection = new StubConnection();
+            opened.add(connection);
+            return connection.proxy;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith(URL);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+}
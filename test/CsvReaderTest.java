@@ -0,0 +1,45 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvReaderTest {
+
+    private static CsvReader reader(String text) {
+        return new CsvReader(new StringReader(text), ',');
+    }
+
+    @Test
+    public void testSimpleRecords() throws IOException {
+        CsvReader csv = reader("Yassine,Alami,y@alami.ma,0600000000\r\nSara,Benali,s@benali.ma,0611111111");
+        assertArrayEquals(new String[]{"Yassine", "Alami", "y@alami.ma", "0600000000"}, csv.readRecord());
+        assertEquals(1, csv.getRecordLine());
+        assertArrayEquals(new String[]{"Sara", "Benali", "s@benali.ma", "0611111111"}, csv.readRecord());
+        assertEquals(2, csv.getRecordLine());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    public void testQuotedFields() throws IOException {
+        CsvReader csv = reader("\"Alami, Y\",\"Le \"\"Grand\"\"\",\"two\nlines\",\n");
+        assertArrayEquals(new String[]{"Alami, Y", "Le \"Grand\"", "two\nlines", ""}, csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    public void testBlankLinesAreSkippedAndLinesCounted() throws IOException {
+        CsvReader csv = reader("a,b\n\n\"x\ny\",z\nc,d\n");
+        csv.readRecord();
+        csv.readRecord();
+        assertEquals(3, csv.getRecordLine());
+        assertArrayEquals(new String[]{"c", "d"}, csv.readRecord());
+        assertEquals(5, csv.getRecordLine());
+    }
+
+    @Test
+    public void testUnterminatedQuoteFails() {
+        assertThrows(IOException.class, () -> reader("\"abc,def\n").readRecord());
+    }
+}
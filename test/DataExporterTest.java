@@ -0,0 +1,36 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataExporterTest {
+
+    @Test
+    public void testCsvRowQuotesOnlyWhenNeeded() throws IOException {
+        StringWriter out = new StringWriter();
+        DataExporter.writeCsvRow(out, new String[]{"1", "Alami, Y", "Le \"Grand\"", null, "a\nb"});
+        assertEquals("1,\"Alami, Y\",\"Le \"\"Grand\"\"\",,\"a\nb\"\r\n", out.toString());
+    }
+
+    @Test
+    public void testCsvRowReadsBack() throws IOException {
+        String[] values = {"42", "Réseaux, niveau 1", "dit \"Omar\"", "two\r\nlines"};
+        StringWriter out = new StringWriter();
+        DataExporter.writeCsvRow(out, values);
+        assertArrayEquals(values, new CsvReader(new StringReader(out.toString()), ',').readRecord());
+    }
+
+    @Test
+    public void testJsonLine() throws IOException {
+        StringWriter out = new StringWriter();
+        DataExporter.writeJsonLine(out,
+                new String[]{"id_client", "nom", "telephone", "date_arrivee"},
+                new String[]{"7", "Ben \"Ali\"\\", null, "2024-09-01"},
+                new boolean[]{true, false, false, false});
+        assertEquals("{\"id_client\":7,\"nom\":\"Ben \\\"Ali\\\"\\\\\",\"telephone\":null,\"date_arrivee\":\"2024-09-01\"}\n",
+                out.toString());
+    }
+}
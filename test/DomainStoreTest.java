@@ -0,0 +1,43 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DomainStoreTest {
+
+    @Test
+    public void testApplyChangesKeepsPositionsAndAppendsNewEntries() {
+        Map<Integer, String> entries = new LinkedHashMap<>();
+        entries.put(1, "a");
+        entries.put(2, "b");
+        entries.put(3, "c");
+
+        Map<Integer, String> changed = new LinkedHashMap<>();
+        changed.put(2, "B");
+        changed.put(4, "d");
+        DomainStore.applyChanges(entries, new Delta<>(changed, new HashSet<>(Collections.singletonList(1)), 10));
+
+        assertEquals(Arrays.asList(2, 3, 4), Arrays.asList(entries.keySet().toArray()));
+        assertEquals("B", entries.get(2));
+    }
+
+    @Test
+    public void testLowerIgnoresMissingWatermarks() {
+        assertEquals(5, DomainStore.lower(-1, 5));
+        assertEquals(5, DomainStore.lower(5, -1));
+        assertEquals(3, DomainStore.lower(5, 3));
+        assertEquals(3, DomainStore.lower(3, 5));
+    }
+
+    @Test
+    public void testAdvanceKeepsAWatermarkLoweredDuringTheRefresh() {
+        assertEquals(20, DomainStore.advance(10, 10, 20));
+        // A listener asked for the changes after 7 while the delta from 10 was read
+        assertEquals(7, DomainStore.advance(7, 10, 20));
+    }
+}
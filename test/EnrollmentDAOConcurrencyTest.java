@@ -0,0 +1,179 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Stress test of the seat reservation: many clients enroll into the same
+ * formation at once and exactly its capacity must succeed.
+ *
+ * The test migrates and writes to the database, and leaves its traces in the
+ * monthly statistics and the change log. It only runs against a dedicated
+ * schema given explicitly, as the benchmarks do:
+ * -Ddb.url=jdbc:mysql://localhost:3306/formation_bench?rewriteBatchedStatements=true
+ * It is skipped when db.url is not set, points to the application's schema, or
+ * the database is not reachable.
+ */
+public class EnrollmentDAOConcurrencyTest {
+
+    private static final int CAPACITY = 10;
+    private static final int CLIENTS = 50;
+    private static final String APPLICATION_SCHEMA = "/formation_center";
+
+    private final FormationDAO formationDAO = new FormationDAO();
+    private final ClientDAO clientDAO = new ClientDAO();
+    private final EnrollmentDAO enrollmentDAO = new EnrollmentDAO();
+
+    private Formation formation;
+    private final List<Integer> clientIds = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        String url = System.getProperty("db.url");
+        assumeTrue(url != null && !url.contains(APPLICATION_SCHEMA),
+                "no dedicated test schema given with -Ddb.url");
+        assumeTrue(isDatabaseAvailable(), "database not reachable");
+        assertTrue(SchemaMigrator.migrateDatabase());
+
+        formation = new Formation(0, "Stress test", "Seat reservation stress test",
+                new java.sql.Date(System.currentTimeMillis()), 1, 0.0, CAPACITY);
+        assertTrue(formationDAO.insertFormation(formation));
+
+        for (int i = 0; i < CLIENTS; i++) {
+            Client client = clientDAO.createClient(new Client("Stress" + i, "Test",
+                    "stress" + i + "@example.com", "0600000000", new Date()));
+            assertNotNull(client);
+            clientIds.add(client.getClientId());
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        if (formation == null || formation.getFormationId() == 0) {
+            return;
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM client_formation WHERE id_formation = ?")) {
+                stmt.setInt(1, formation.getFormationId());
+                stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM client WHERE id_client = ?")) {
+                for (int clientId : clientIds) {
+                    stmt.setInt(1, clientId);
+                    stmt.executeUpdate();
+                    ClientDAO.getCache().invalidate(clientId);
+                }
+            }
+        }
+        formationDAO.deleteFormation(formation.getFormationId());
+    }
+
+    @Test
+    public void testConcurrentEnrollmentsNeverOverbook() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger enrolled = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int clientId : clientIds) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                if (enrollmentDAO.createEnrollment(new Enrollment(clientId, formation.getFormationId(), new Date(), "PENDING"))) {
+                    enrolled.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(CAPACITY, enrolled.get());
+        assertEquals(CAPACITY, formationDAO.getEnrollmentCount(formation.getFormationId()));
+        assertEquals(CAPACITY, getReservedSeats());
+        assertFalse(formationDAO.isFormationAvailable(formation.getFormationId()));
+    }
+
+    @Test
+    public void testUnenrollFreesSeat() {
+        for (int i = 0; i < CAPACITY; i++) {
+            assertTrue(enrollmentDAO.createEnrollment(new Enrollment(clientIds.get(i), formation.getFormationId(), new Date(), "PENDING")));
+        }
+        assertFalse(enrollmentDAO.createEnrollment(new Enrollment(clientIds.get(CAPACITY), formation.getFormationId(), new Date(), "PENDING")));
+
+        assertTrue(enrollmentDAO.deleteEnrollment(clientIds.get(0), formation.getFormationId()));
+        assertEquals(CAPACITY - 1, getReservedSeats());
+        assertTrue(enrollmentDAO.createEnrollment(new Enrollment(clientIds.get(CAPACITY), formation.getFormationId(), new Date(), "PENDING")));
+    }
+
+    @Test
+    public void testConcurrentEnrollmentOfSameClientIsIdempotent() throws Exception {
+        int desks = 8;
+        int clientId = clientIds.get(0);
+        ExecutorService executor = Executors.newFixedThreadPool(desks);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<EnrollmentDAO.EnrollResult>> futures = new ArrayList<>();
+
+        for (int i = 0; i < desks; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return enrollmentDAO.enroll(clientId, formation.getFormationId());
+            }));
+        }
+        start.countDown();
+        int created = 0;
+        for (Future<EnrollmentDAO.EnrollResult> future : futures) {
+            EnrollmentDAO.EnrollResult result = future.get(60, TimeUnit.SECONDS);
+            if (result == EnrollmentDAO.EnrollResult.CREATED) {
+                created++;
+            } else {
+                assertEquals(EnrollmentDAO.EnrollResult.ALREADY_ENROLLED, result);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, created);
+        assertEquals(1, getReservedSeats());
+        assertEquals(EnrollmentDAO.EnrollResult.ALREADY_ENROLLED, enrollmentDAO.enroll(clientId, formation.getFormationId()));
+    }
+
+    private int getReservedSeats() {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT nb_inscrits FROM formation WHERE id_formation = ?")) {
+            stmt.setInt(1, formation.getFormationId());
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            fail(e);
+            return -1;
+        }
+    }
+
+    private static boolean isDatabaseAvailable() {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return conn != null && conn.isValid(2);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
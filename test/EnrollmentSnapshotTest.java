@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EnrollmentSnapshotTest {
+
+    private EnrollmentSnapshot snapshot;
+
+    @BeforeEach
+    public void setUp() {
+        snapshot = new EnrollmentSnapshot(Arrays.asList(
+                new EnrollmentView(1, 10, "Alami Yassine", "Java Avancé", 5, 300.0),
+                new EnrollmentView(2, 10, "Benali Sara", "Java Avancé", 5, 300.0),
+                new EnrollmentView(1, 11, "Alami Yassine", "Réseaux", 3, 150.0),
+                new EnrollmentView(3, 12, "Chraibi Omar", "Gestion de projet", 2, 200.0)
+        ));
+    }
+
+    @Test
+    public void testEmptySearchReturnsAllRows() {
+        assertEquals(4, snapshot.filter("  ", EnrollmentSnapshot.Field.ALL).size());
+    }
+
+    @Test
+    public void testFilterByClient() {
+        List<EnrollmentView> rows = snapshot.filter("alami", EnrollmentSnapshot.Field.CLIENT);
+        assertEquals(2, rows.size());
+        assertEquals("Java Avancé", rows.get(0).getFormationTitle());
+        assertEquals("Réseaux", rows.get(1).getFormationTitle());
+    }
+
+    @Test
+    public void testFilterByFormationIgnoresCaseAndAccents() {
+        List<EnrollmentView> rows = snapshot.filter("RESEAU", EnrollmentSnapshot.Field.FORMATION);
+        assertEquals(1, rows.size());
+        assertEquals("Alami Yassine", rows.get(0).getClientName());
+    }
+
+    @Test
+    public void testFilterAllKeepsDisplayOrder() {
+        List<EnrollmentView> rows = snapshot.filter("a", EnrollmentSnapshot.Field.ALL);
+        assertEquals(4, rows.size());
+        assertEquals("Benali Sara", rows.get(1).getClientName());
+    }
+
+    @Test
+    public void testNarrowingAndWideningSearch() {
+        assertEquals(2, snapshot.filter("java", EnrollmentSnapshot.Field.FORMATION).size());
+        assertEquals(2, snapshot.filter("java av", EnrollmentSnapshot.Field.FORMATION).size());
+        assertEquals(0, snapshot.filter("java avx", EnrollmentSnapshot.Field.FORMATION).size());
+        assertEquals(1, snapshot.filter("ges", EnrollmentSnapshot.Field.FORMATION).size());
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("ecole d'ete", EnrollmentSnapshot.normalize("  École   d'Été "));
+        assertEquals("", EnrollmentSnapshot.normalize(null));
+    }
+
+    @Test
+    public void testWithChangesReplacesRemovesAndAppends() {
+        Map<Long, EnrollmentView> changed = new LinkedHashMap<>();
+        changed.put(EnrollmentView.key(2, 10), new EnrollmentView(2, 10, "Benali Sara", "Java Expert", 5, 350.0));
+        changed.put(EnrollmentView.key(4, 11), new EnrollmentView(4, 11, "Doukkali Nadia", "Réseaux", 3, 150.0));
+        Delta<Long, EnrollmentView> delta = new Delta<>(changed,
+                new HashSet<>(Collections.singletonList(EnrollmentView.key(1, 11))), 42);
+
+        EnrollmentSnapshot updated = snapshot.withChanges(delta);
+
+        assertEquals(4, snapshot.size());
+        assertEquals(4, updated.size());
+        assertEquals("Java Expert", updated.getRows().get(1).getFormationTitle());
+        assertEquals("Chraibi Omar", updated.getRows().get(2).getClientName());
+        assertEquals("Doukkali Nadia", updated.getRows().get(3).getClientName());
+        assertEquals(1, updated.filter("expert", EnrollmentSnapshot.Field.FORMATION).size());
+        assertEquals(4, updated.filter("reseaux", EnrollmentSnapshot.Field.FORMATION).get(0).getClientId());
+    }
+
+    @Test
+    public void testMatchesAgreesWithFilter() {
+        for (EnrollmentView row : snapshot.getRows()) {
+            assertEquals(snapshot.filter("java", EnrollmentSnapshot.Field.ALL).contains(row),
+                    EnrollmentSnapshot.matches(row, "JAVA", EnrollmentSnapshot.Field.ALL));
+            assertEquals(snapshot.filter("alami", EnrollmentSnapshot.Field.FORMATION).contains(row),
+                    EnrollmentSnapshot.matches(row, "alami", EnrollmentSnapshot.Field.FORMATION));
+        }
+        assertTrue(EnrollmentSnapshot.matches(snapshot.getRows().get(0), " ", EnrollmentSnapshot.Field.CLIENT));
+    }
+}
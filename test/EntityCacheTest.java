@@ -0,0 +1,81 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityCacheTest {
+
+    @Test
+    public void testReadThroughLoadsOnce() {
+        EntityCache<Integer, String> cache = new EntityCache<>(10, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        Function<Integer, String> loader = id -> {
+            loads.incrementAndGet();
+            return "client-" + id;
+        };
+
+        assertEquals("client-1", cache.getOrLoad(1, loader));
+        assertEquals("client-1", cache.getOrLoad(1, loader));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testNullIsNotCached() {
+        EntityCache<Integer, String> cache = new EntityCache<>(10, 60_000);
+        assertNull(cache.getOrLoad(1, id -> null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        EntityCache<Integer, String> cache = new EntityCache<>(2, 60_000);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.get(1);
+        cache.put(3, "c");
+
+        assertEquals("a", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("c", cache.get(3));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testExpiredEntryIsReloaded() throws InterruptedException {
+        EntityCache<Integer, String> cache = new EntityCache<>(10, 1);
+        cache.put(1, "old");
+        Thread.sleep(5);
+
+        assertEquals("new", cache.getOrLoad(1, id -> "new"));
+    }
+
+    @Test
+    public void testInvalidateAndWriteThrough() {
+        EntityCache<Integer, String> cache = new EntityCache<>(10, 60_000);
+        cache.put(1, "a");
+        cache.invalidate(1);
+        assertNull(cache.get(1));
+
+        cache.put(1, "b");
+        assertEquals("b", cache.getOrLoad(1, id -> "from-db"));
+    }
+
+    @Test
+    public void testLoadRacingWithWriteIsNotCached() {
+        EntityCache<Integer, String> cache = new EntityCache<>(10, 60_000);
+        // The row is updated while the loader is still reading the old value
+        String loaded = cache.getOrLoad(1, id -> {
+            cache.invalidate(1);
+            return "stale";
+        });
+
+        assertEquals("stale", loaded);
+        assertNull(cache.get(1));
+    }
+}
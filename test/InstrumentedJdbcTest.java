@@ -0,0 +1,99 @@
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstrumentedJdbcTest {
+
+    @Test
+    public void testPasswordComparedInWhereIsSensitive() {
+        boolean[] sensitive = InstrumentedJdbc.sensitiveParameters(
+                "SELECT * FROM receptionniste WHERE username = ? AND password = ?");
+
+        assertArrayEquals(new boolean[]{false, true}, sensitive);
+    }
+
+    @Test
+    public void testPasswordColumnOfInsertIsSensitive() {
+        boolean[] sensitive = InstrumentedJdbc.sensitiveParameters(
+                "INSERT INTO users (username, password, full_name, is_active) VALUES (?, ?, ?, ?)");
+
+        assertArrayEquals(new boolean[]{false, true, false, false}, sensitive);
+    }
+
+    @Test
+    public void testQualifiedPasswordColumnIsSensitive() {
+        boolean[] sensitive = InstrumentedJdbc.sensitiveParameters(
+                "UPDATE users u SET u.`mot_de_passe` = ? WHERE u.id = ?");
+
+        assertArrayEquals(new boolean[]{true, false}, sensitive);
+    }
+
+    @Test
+    public void testFormatParameter() {
+        assertEquals("***", InstrumentedJdbc.formatParameter("secret", true));
+        assertEquals("NULL", InstrumentedJdbc.formatParameter(null, false));
+        assertEquals("'Dupont'", InstrumentedJdbc.formatParameter("Dupont", false));
+        assertEquals("42", InstrumentedJdbc.formatParameter(42, false));
+        assertEquals(105, InstrumentedJdbc.formatParameter("x".repeat(500), false).length());
+    }
+
+    @Test
+    public void testFailedStatementIsLoggedWithItsErrorCode() {
+        String error = InstrumentedJdbc.describeError(
+                new SQLException("Lock wait timeout exceeded; try restarting transaction", "HY000", 1205));
+        SlowQueryLog.Entry entry = new SlowQueryLog.Entry(0, "UPDATE formation SET nb_inscrits = ?",
+                Collections.singletonList("12"), 51_000_000, 0, 0, error, "FormationManagementPanel.editFormation",
+                new StackTraceElement[0]);
+
+        assertEquals("1205 (HY000): Lock wait timeout exceeded; try restarting transaction", error);
+        assertTrue(entry.toString().contains("  error: 1205 (HY000): Lock wait timeout exceeded"));
+    }
+
+    @Test
+    public void testOriginIsTheFirstPanelMethod() {
+        StackTraceElement[] stack = {
+                new StackTraceElement("FormationDAO", "getAllFormations", "FormationDAO.java", 40),
+                new StackTraceElement("FormationViewPanel", "lambda$loadFormations$2", "FormationViewPanel.java", 90),
+                new StackTraceElement("BackgroundLoader$1", "doInBackground", "BackgroundLoader.java", 60)
+        };
+
+        assertEquals("FormationViewPanel.loadFormations", SlowQueryLog.findOrigin(stack));
+    }
+
+    @Test
+    public void testOriginOfAStoreLoadIsTheRequestingPanel() {
+        StackTraceElement[] stack = {
+                new StackTraceElement("ClientDAO", "getAllClients", "ClientDAO.java", 40),
+                new StackTraceElement("DomainStore", "lambda$loadClients$0", "DomainStore.java", 195),
+                new StackTraceElement("BackgroundLoader$Worker", "doInBackground", "BackgroundLoader.java", 170)
+        };
+
+        SlowQueryLog.setOrigin("EnrollmentManagementPanel.clients");
+        try {
+            assertEquals("EnrollmentManagementPanel.clients", SlowQueryLog.findOrigin(stack));
+        } finally {
+            SlowQueryLog.setOrigin(null);
+        }
+        assertTrue(SlowQueryLog.findOrigin(stack).startsWith("thread "));
+    }
+
+    @Test
+    public void testCallerStackStartsAfterTheInstrumentation() {
+        StackTraceElement[] stack = {
+                new StackTraceElement("java.lang.Thread", "getStackTrace", "Thread.java", 1),
+                new StackTraceElement("SlowQueryLog", "log", "SlowQueryLog.java", 1),
+                new StackTraceElement("InstrumentedJdbc$Execution", "finish", "InstrumentedJdbc.java", 1),
+                new StackTraceElement("jdk.proxy1.$Proxy3", "close", null, -1),
+                new StackTraceElement("ClientDAO", "getClientById", "ClientDAO.java", 1),
+                new StackTraceElement("java.lang.Thread", "run", "Thread.java", 1)
+        };
+
+        StackTraceElement[] caller = SlowQueryLog.callerStack(stack);
+
+        assertEquals(2, caller.length);
+        assertEquals("ClientDAO", caller[0].getClassName());
+    }
+}
@@ -0,0 +1,77 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsCoverEveryValueOnce() {
+        long previousUpperBound = -1;
+        for (int i = 0; LatencyHistogram.bucketUpperBound(i) < Long.MAX_VALUE; i++) {
+            long upperBound = LatencyHistogram.bucketUpperBound(i);
+            assertEquals(i, LatencyHistogram.bucketIndex(previousUpperBound + 1));
+            assertEquals(i, LatencyHistogram.bucketIndex(upperBound));
+            previousUpperBound = upperBound;
+        }
+    }
+
+    @Test
+    public void testPercentilesWithinThreePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 100_000; micros++) {
+            histogram.recordNanos(micros * 1_000L);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMaxMicros());
+        assertEquals(50_000.5, histogram.getMeanMicros(), 0.001);
+        assertEquals(50_000, histogram.getPercentileMicros(50), 50_000 * 0.03);
+        assertEquals(99_000, histogram.getPercentileMicros(99), 99_000 * 0.03);
+        assertEquals(100_000, histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(5_000);
+        histogram.recordNanos(7_000);
+        assertEquals(5, histogram.getPercentileMicros(50));
+        assertEquals(7, histogram.getPercentileMicros(99));
+    }
+
+    @Test
+    public void testConcurrentRecordingLosesNothing() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.recordNanos(i * 1_000L);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80_000, histogram.getCount());
+    }
+
+    @Test
+    public void testAdd() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.recordNanos(1_000_000);
+        b.recordNanos(3_000_000);
+
+        a.add(b);
+
+        assertEquals(2, a.getCount());
+        assertEquals(3_000, a.getMaxMicros());
+        assertEquals(2_000.0, a.getMeanMicros(), 0.001);
+    }
+}
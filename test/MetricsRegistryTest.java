@@ -0,0 +1,48 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testSampleRecordsLatencyAndRows() {
+        MetricsRegistry.Timer timer = MetricsRegistry.daoTimer("MetricsRegistryTest.sample");
+        try (MetricsRegistry.Sample sample = timer.start()) {
+            sample.setRows(3);
+        }
+        try (MetricsRegistry.Sample sample = timer.start()) {
+            sample.addRow();
+        }
+        timer.recordError();
+
+        assertEquals(2, timer.getLatencies().getCount());
+        assertEquals(4, timer.getRowCount());
+        assertEquals(1, timer.getErrorCount());
+    }
+
+    @Test
+    public void testSameNameGivesSameTimer() {
+        assertSame(MetricsRegistry.daoTimer("MetricsRegistryTest.same"), MetricsRegistry.daoTimer("MetricsRegistryTest.same"));
+        assertNotSame(MetricsRegistry.daoTimer("MetricsRegistryTest.same"), MetricsRegistry.panelTimer("MetricsRegistryTest.same"));
+    }
+
+    @Test
+    public void testPrometheusFormat() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.panelTimer("MetricsRegistryTest.\"quoted\"");
+        try (MetricsRegistry.Sample sample = timer.start()) {
+            sample.setRows(7);
+        }
+
+        StringWriter out = new StringWriter();
+        MetricsRegistry.writePrometheus(out);
+        String text = out.toString();
+
+        assertTrue(text.contains("# TYPE formation_center_panel_refresh_seconds summary\n"));
+        assertTrue(text.contains("formation_center_panel_refresh_seconds_count{panel=\"MetricsRegistryTest.\\\"quoted\\\"\"} 1\n"));
+        assertTrue(text.contains("formation_center_panel_refresh_rows_total{panel=\"MetricsRegistryTest.\\\"quoted\\\"\"} 7\n"));
+        assertTrue(text.contains("formation_center_panel_refresh_seconds{panel=\"MetricsRegistryTest.\\\"quoted\\\"\",quantile=\"0.99\"} "));
+    }
+}
@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Statement;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunningQueryTest {
+
+    private static Statement statement(CountDownLatch cancelled) {
+        return (Statement) Proxy.newProxyInstance(RunningQueryTest.class.getClassLoader(),
+                new Class<?>[]{Statement.class}, (p, method, args) -> {
+                    if (method.getName().equals("cancel")) {
+                        cancelled.countDown();
+                    }
+                    return null;
+                });
+    }
+
+    @Test
+    public void testCancelStopsTheRunningStatement() throws InterruptedException {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        RunningQuery query = new RunningQuery();
+        query.start(statement(cancelled));
+
+        query.cancel();
+
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+        assertTrue(query.isCancelled());
+    }
+
+    @Test
+    public void testQueryCancelledBeforeItStartsIsNotExecuted() {
+        RunningQuery query = new RunningQuery();
+        query.cancel();
+        assertThrows(CancellationException.class, () -> query.start(statement(new CountDownLatch(1))));
+    }
+
+    @Test
+    public void testFinishedStatementIsNotCancelled() throws InterruptedException {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        RunningQuery query = new RunningQuery();
+        query.start(statement(cancelled));
+        query.finish();
+
+        query.cancel();
+
+        assertFalse(cancelled.await(200, TimeUnit.MILLISECONDS));
+    }
+}
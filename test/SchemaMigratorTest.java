@@ -0,0 +1,107 @@
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class SchemaMigratorTest {
+
+    @Test
+    public void testSplitStatements() {
+        List<String> statements = SchemaMigrator.splitStatements(
+                "-- comment\n" +
+                "CREATE TABLE t (\r\n" +
+                "    id INT\r\n" +
+                ");\n" +
+                "\n" +
+                "CREATE INDEX idx ON t (id);\n" +
+                "UPDATE t SET id = 1");
+        assertEquals(Arrays.asList("CREATE TABLE t (\n    id INT\n)", "CREATE INDEX idx ON t (id)", "UPDATE t SET id = 1"),
+                statements);
+    }
+
+    @Test
+    public void testSplitStatementsKeepsMultiLineTriggers() {
+        List<String> statements = SchemaMigrator.splitStatements(
+                "CREATE TRIGGER trg AFTER UPDATE ON t FOR EACH ROW\n" +
+                "    INSERT INTO log (row_id)\n" +
+                "    -- skipped\n" +
+                "    SELECT NEW.id FROM DUAL WHERE NOT (NEW.a <=> OLD.a);\n" +
+                "CREATE TRIGGER trg2 AFTER DELETE ON t FOR EACH ROW\n" +
+                "    INSERT INTO log (row_id) VALUES (OLD.id);\n");
+        assertEquals(2, statements.size());
+        assertEquals("CREATE TRIGGER trg AFTER UPDATE ON t FOR EACH ROW\n" +
+                "    INSERT INTO log (row_id)\n" +
+                "    SELECT NEW.id FROM DUAL WHERE NOT (NEW.a <=> OLD.a)", statements.get(0));
+        assertTrue(statements.get(1).endsWith("VALUES (OLD.id)"));
+    }
+
+    @Test
+    public void testParseVersion() {
+        assertEquals(3, SchemaMigrator.parseVersion("V3__formation_capacity.sql"));
+        assertEquals(12, SchemaMigrator.parseVersion("V12__x.sql"));
+        assertThrows(IllegalArgumentException.class, () -> SchemaMigrator.parseVersion("formation_capacity.sql"));
+    }
+
+    @Test
+    public void testScriptsAreOrderedAndOnTheClasspath() {
+        int previous = 0;
+        for (String script : SchemaMigrator.SCRIPTS) {
+            int version = SchemaMigrator.parseVersion(script);
+            assertTrue(version > previous, script + " is out of order");
+            previous = version;
+            assertNotNull(SchemaMigrator.class.getResource("/db/migration/" + script), script + " not found");
+        }
+    }
+
+    @Test
+    public void testMigrateIsIdempotentAndCreatesIndexes() throws Exception {
+        assumeTrue(isDatabaseAvailable(), "database not reachable");
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            SchemaMigrator migrator = new SchemaMigrator();
+            migrator.migrate(conn);
+            assertEquals(0, migrator.migrate(conn));
+
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*), MAX(version) FROM schema_version")) {
+                assertTrue(rs.next());
+                assertEquals(SchemaMigrator.SCRIPTS.length, rs.getInt(1));
+                assertEquals(SchemaMigrator.parseVersion(SchemaMigrator.SCRIPTS[SchemaMigrator.SCRIPTS.length - 1]), rs.getInt(2));
+            }
+
+            Set<String> clientFormationIndexes = getIndexNames(conn, "client_formation");
+            assertTrue(clientFormationIndexes.contains("PRIMARY"));
+            assertTrue(clientFormationIndexes.contains("idx_client_formation_formation"));
+            assertTrue(getIndexNames(conn, "client").containsAll(Arrays.asList("idx_client_nom", "ft_client_search")));
+            assertTrue(getIndexNames(conn, "formation").contains("idx_formation_date_debut"));
+        }
+    }
+
+    private static Set<String> getIndexNames(Connection conn, String table) throws Exception {
+        Set<String> names = new HashSet<>();
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null, table, false, false)) {
+            while (rs.next()) {
+                names.add(rs.getString("INDEX_NAME"));
+            }
+        }
+        return names;
+    }
+
+    private static boolean isDatabaseAvailable() {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return conn != null && conn.isValid(2);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatisticsDAOTest {
+
+    @Test
+    public void testMissingMonthsAreZero() {
+        List<StatisticsDAO.MonthlyClients> months = StatisticsDAO.fillMonths(
+                Map.of(YearMonth.of(2024, 12), 4, YearMonth.of(2025, 2), 7),
+                YearMonth.of(2024, 11), YearMonth.of(2025, 2));
+
+        assertEquals(4, months.size());
+        assertEquals(YearMonth.of(2024, 11), months.get(0).getMonth());
+        assertEquals(0, months.get(0).getNewClients());
+        assertEquals(4, months.get(1).getNewClients());
+        assertEquals(0, months.get(2).getNewClients());
+        assertEquals(7, months.get(3).getNewClients());
+    }
+
+    @Test
+    public void testRevenueAndFillRate() {
+        FormationStats stats = new FormationStats(1, "Java", 250.0, 20, 15);
+
+        assertEquals(3750.0, stats.getRevenue(), 0.001);
+        assertEquals(0.75, stats.getFillRate(), 0.001);
+        assertEquals(0, new FormationStats(2, "Empty", 100.0, 0, 0).getFillRate());
+    }
+
+    @Test
+    public void testClientsAreCountedInTheirArrivalMonth() {
+        java.util.Date arrival = java.sql.Date.valueOf(LocalDate.of(2025, 3, 17));
+
+        assertEquals(LocalDate.of(2025, 3, 1), ClientDAO.monthOf(arrival).toLocalDate());
+    }
+}